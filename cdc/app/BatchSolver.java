@@ -0,0 +1,335 @@
+package cdc.app;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.JMException;
+
+import cdc.maze.BinaryMazeReader;
+import cdc.maze.MazeCatalog;
+import cdc.maze.MazeGrid;
+import cdc.search.GridSearch;
+import cdc.search.ManhattanHeuristic;
+import cdc.search.SearchContext;
+import cdc.search.SearchStatistics;
+
+/**
+ * A headless application that solves every maze in a maze file. The mazes are
+ * loaded and solved in parallel on a fork/join pool, and each result is written
+ * as soon as it is finished, so results appear in completion order rather than
+ * maze order. A throughput summary and the aggregate search metrics are written
+ * at the end.
+ * <p>
+ * Usage: java cdc.app.BatchSolver [-threads n] [-out file] [-paths] [-jmx] [maze file]
+ * <ul>
+ * <li>-threads n: the number of worker threads. Defaults to the number of processors.</li>
+ * <li>-out file: write the results to a file instead of standard output.</li>
+ * <li>-paths: include each path in the results.</li>
+ * <li>-jmx: export the search metrics through JMX while the mazes are solved, as
+ * cdc.search:type=SearchStatistics,name="BatchSolver".</li>
+ * <li>maze file: a text maze file, or a binary maze file ending in ".cmz".
+ * Defaults to mazes.txt.</li>
+ * </ul>
+ * @author Christopher D. Canfield
+ */
+public class BatchSolver
+{
+	public static void main(String[] args)
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		String outFile = null;
+		boolean printPaths = false;
+		boolean jmx = false;
+		String mazeFile = "mazes.txt";
+
+		try
+		{
+			for (int i = 0; i < args.length; ++i)
+			{
+				if (args[i].equals("-threads"))
+				{
+					threads = Integer.parseInt(args[++i]);
+				}
+				else if (args[i].equals("-out"))
+				{
+					outFile = args[++i];
+				}
+				else if (args[i].equals("-paths"))
+				{
+					printPaths = true;
+				}
+				else if (args[i].equals("-jmx"))
+				{
+					jmx = true;
+				}
+				else
+				{
+					mazeFile = args[i];
+				}
+			}
+			if (threads < 1)
+			{
+				throw new IllegalArgumentException("threads must be at least 1");
+			}
+		}
+		catch (RuntimeException e)
+		{
+			System.err.println("Usage: java cdc.app.BatchSolver [-threads n] [-out file] [-paths] [-jmx] [maze file]");
+			System.exit(2);
+		}
+
+		try (PrintWriter out = (outFile == null) ?
+				new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) :
+				new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8))))
+		{
+			BatchSolver solver = new BatchSolver(mazeFile, threads, printPaths);
+			if (jmx)
+			{
+				solver.getStatistics().register("BatchSolver");
+			}
+			solver.solveAll(out);
+		}
+		catch (IOException | JMException e)
+		{
+			System.err.println("Unable to solve " + mazeFile + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	// The source of the mazes: either a text maze catalog or a binary maze file.
+	private final MazeCatalog catalog;
+	private final BinaryMazeReader binaryReader;
+	// The number of mazes in the file.
+	private final int mazeCount;
+	// The number of worker threads.
+	private final int threads;
+	// Whether the paths are included in the results.
+	private final boolean printPaths;
+	// The aggregate metrics of the searches.
+	private final SearchStatistics statistics = new SearchStatistics();
+
+	/**
+	 * Instantiates a batch solver.
+	 * @param mazeFile The path to a text maze file, or a binary maze file ending in ".cmz".
+	 * @param threads The number of worker threads.
+	 * @param printPaths Whether the paths are included in the results.
+	 * @throws IOException If the maze file cannot be read.
+	 */
+	public BatchSolver(String mazeFile, int threads, boolean printPaths) throws IOException
+	{
+		if (mazeFile.endsWith(".cmz"))
+		{
+			this.catalog = null;
+			this.binaryReader = new BinaryMazeReader(new File(mazeFile));
+			this.mazeCount = binaryReader.getMazeCount();
+		}
+		else
+		{
+			this.catalog = MazeCatalog.forFile(mazeFile);
+			this.binaryReader = null;
+			this.mazeCount = catalog.getMazeCount();
+		}
+		this.threads = threads;
+		this.printPaths = printPaths;
+	}
+
+	/**
+	 * Returns the aggregate metrics of the searches run by this solver.
+	 * @return The search statistics.
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	/**
+	 * Solves every maze in the file, writing each result as it finishes, followed by
+	 * a summary.
+	 * @param out The writer that receives the results.
+	 * @throws IOException If the binary maze file cannot be closed.
+	 */
+	public void solveAll(PrintWriter out) throws IOException
+	{
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		CompletionService<Result> completion = new ExecutorCompletionService<Result>(pool);
+
+		final long start = System.nanoTime();
+		for (int mazeNumber = 1; mazeNumber <= mazeCount; ++mazeNumber)
+		{
+			final int number = mazeNumber;
+			completion.submit(new Callable<Result>()
+			{
+				@Override
+				public Result call()
+				{
+					return solve(number);
+				}
+			});
+		}
+
+		long[] latencies = new long[mazeCount];
+		int solved = 0;
+		int failed = 0;
+		try
+		{
+			for (int i = 0; i < mazeCount; ++i)
+			{
+				Result result = completion.take().get();
+				out.println(result.text);
+				out.flush();
+
+				latencies[i] = result.nanos;
+				if (result.error)
+				{
+					++failed;
+				}
+				else if (result.found)
+				{
+					++solved;
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while solving the mazes.", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException(e.getCause());
+		}
+		finally
+		{
+			pool.shutdownNow();
+			if (binaryReader != null)
+			{
+				binaryReader.close();
+			}
+		}
+		final long elapsed = System.nanoTime() - start;
+
+		Arrays.sort(latencies);
+		out.println();
+		out.println("Mazes: " + mazeCount + " (" + solved + " solved, " +
+				(mazeCount - solved - failed) + " without a path, " + failed + " failed)");
+		out.println("Threads: " + threads);
+		out.println("Elapsed: " + String.format("%.3f", elapsed / 1e9) + " s");
+		out.println("Throughput: " + String.format("%.1f", mazeCount / (elapsed / 1e9)) + " mazes/s");
+		out.println("Latency p50: " + formatMicros(percentile(latencies, 50)) +
+				", p99: " + formatMicros(percentile(latencies, 99)) +
+				", max: " + formatMicros(mazeCount == 0 ? 0 : latencies[mazeCount - 1]));
+		out.println("Expanded nodes: " + statistics.getExpandedCount());
+		out.println("Generated nodes: " + statistics.getGeneratedCount() +
+				", reopened: " + statistics.getReopenedCount() +
+				", heuristic calls: " + statistics.getHeuristicCallCount());
+		out.println("Peak frontier (largest): " + statistics.getMaxPeakFrontierSize());
+		out.println("Search time mean: " + formatMicros((long)statistics.getMeanNanos()) +
+				", max: " + formatMicros(statistics.getMaxNanos()));
+		out.flush();
+	}
+
+	/**
+	 * Loads and solves one maze.
+	 * @param mazeNumber The maze number in the file, starting with 1.
+	 * @return The result.
+	 */
+	private Result solve(int mazeNumber)
+	{
+		Result result = new Result();
+		final long start = System.nanoTime();
+		try
+		{
+			MazeGrid maze = (catalog != null) ? catalog.loadGrid(mazeNumber) : binaryReader.readGrid(mazeNumber);
+			if (maze.getEntrance() == MazeGrid.NO_CELL || maze.getExit() == MazeGrid.NO_CELL)
+			{
+				throw new IOException("Maze is missing an exit or entrance.");
+			}
+
+			SearchContext context = new SearchContext(maze);
+			result.found = GridSearch.aStar(context, maze.getEntrance(), maze.getExit(), new ManhattanHeuristic());
+			result.expanded = context.getExpandedCount();
+			statistics.searchFinished("aStar", result.found, context.getMetrics());
+			result.nanos = System.nanoTime() - start;
+
+			StringBuilder sb = new StringBuilder();
+			sb.append("maze ").append(mazeNumber).append(": ");
+			if (result.found)
+			{
+				sb.append("solved length=").append(context.getPathLength() - 1);
+			}
+			else
+			{
+				sb.append("no path");
+			}
+			sb.append(" expanded=").append(result.expanded);
+			sb.append(" time=").append(formatMicros(result.nanos));
+			if (result.found && printPaths)
+			{
+				sb.append(" path=");
+				for (int i = 0; i < context.getPathLength(); ++i)
+				{
+					int cell = context.getPathCell(i);
+					sb.append("(").append(maze.rowOf(cell)).append(",").append(maze.columnOf(cell)).append(")");
+				}
+			}
+			result.text = sb.toString();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			result.error = true;
+			result.nanos = System.nanoTime() - start;
+			result.text = "maze " + mazeNumber + ": error " + e.getMessage();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a percentile of a sorted array, using the nearest-rank method.
+	 * @param sorted The sorted values.
+	 * @param percentile The percentile, from 0 to 100.
+	 * @return The value at the percentile, or 0 if the array is empty.
+	 */
+	private static long percentile(long[] sorted, int percentile)
+	{
+		if (sorted.length == 0)
+		{
+			return 0;
+		}
+		int rank = (int)Math.ceil(percentile / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	private static String formatMicros(long nanos)
+	{
+		return String.format("%.1f us", nanos / 1000.0);
+	}
+
+
+	/**
+	 * The result of solving one maze.
+	 */
+	private static class Result
+	{
+		// The line written for the maze.
+		String text;
+		// Whether a path was found.
+		boolean found;
+		// Whether the maze could not be loaded or solved.
+		boolean error;
+		// The number of nodes expanded by the search.
+		long expanded;
+		// The time taken to load and solve the maze.
+		long nanos;
+	}
+}
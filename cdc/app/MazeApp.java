@@ -1,7 +1,13 @@
 package cdc.app;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 
@@ -14,6 +20,11 @@ import cdc.search.SearchResult;
 
 /**
  * The maze solver application.
+ * <p>
+ * The maze is drawn in two cached layers: the search layer, which holds the searched
+ * nodes and the path, and the maze layer above it, which holds the walls, the entrance,
+ * the exit and the node outlines. Each layer is only redrawn where it changed, and
+ * painting the window copies the layers.
  * @author Christopher D. Canfield
  */
 public class MazeApp extends JFrame
@@ -35,6 +46,8 @@ public class MazeApp extends JFrame
 	private static final int FIRST_NODE_Y = 110;
 	/** The number of pixels per node. **/
 	private static final int PIXELS_PER_NODE = 40;
+	/** The number of pixels that the maze is scaled to fit, in each direction. **/
+	private static final int MAZE_PIXELS = PIXELS_PER_NODE * 10;
 	
 	/** The maze, as an array of nodes. **/
 	private Node[][] maze = null;
@@ -50,6 +63,20 @@ public class MazeApp extends JFrame
 	 */
 	private SearchResult searchResult = null;
 	
+	/** The number of pixels per node, scaled so that the maze fits in MAZE_PIXELS. **/
+	private int pixelsPerNode = PIXELS_PER_NODE;
+	
+	/** The cached maze layer: walls, the entrance and exit, and the node outlines. **/
+	private BufferedImage mazeLayer = null;
+	/** The cached search layer: the searched nodes and the path. **/
+	private BufferedImage searchLayer = null;
+	/** Whether both layers must be redrawn in full, because the maze was replaced. **/
+	private boolean layersInvalid = true;
+	/** The nodes whose squares must be redrawn in the maze layer. **/
+	private final List<Node> changedNodes = new ArrayList<Node>();
+	/** The search result that is drawn in the search layer. **/
+	private SearchResult drawnSearchResult = null;
+	
 	/**
 	 * Instantiates the maze solver.
 	 */
@@ -78,14 +105,14 @@ public class MazeApp extends JFrame
 			mazeNumber = getMazeNumberFromUser();
 
 			// Load the maze specified by the user.
-			maze = MazeCreator.loadMaze(mazeNumber);
+			setMaze(MazeCreator.loadMaze(mazeNumber));
 			
 			// Get the maze's start and end nodes.
-			start = MazeCreator.getEntrance(maze);
-			exit = MazeCreator.getExit(maze);
+			setStart(MazeCreator.getEntrance(maze));
+			setExit(MazeCreator.getExit(maze));
 			
 			// Perform an A* search, and get the path from the start to the goal.
-			searchResult = Search.aStar(start, exit, new ManhattanHeuristic());
+			setSearchResult(Search.aStar(start, exit, new ManhattanHeuristic()));
 			
 			// Print the path to the console.
 			System.out.println("Path: " + searchResult.toString());
@@ -94,10 +121,10 @@ public class MazeApp extends JFrame
 		{
 			// If the user cancelled the maze number dialog box or entered an invalid
 			// value, or if an error occurred, cancel the run attempt and show a blank grid.
-			maze = MazeCreator.generateAllOpen(new MazeLocation(0, 0), new MazeLocation(9, 9));
-			start = exit = null;
-			searchResult = null;
-			
+			setMaze(MazeCreator.generateAllOpen(new MazeLocation(0, 0), new MazeLocation(9, 9)));
+			setStart(null);
+			setExit(null);
+			setSearchResult(null);
 		}
 
 		// Repaint the JFrame to ensure that the visualization of the search appears.
@@ -108,17 +135,33 @@ public class MazeApp extends JFrame
 	 * Sets the maze. Used by test applications.
 	 * @param maze Reference to the instantiated maze.
 	 */
-	protected void setMaze(Node[][] maze)
+	protected synchronized void setMaze(Node[][] maze)
 	{
 		this.maze = maze;
+		if (maze != null)
+		{
+			final int nodes = Math.max(maze.length, maze[0].length);
+			pixelsPerNode = Math.max(1, Math.min(PIXELS_PER_NODE, MAZE_PIXELS / nodes));
+		}
+		layersInvalid = true;
+		repaint();
 	}
 	
 	/**
 	 * Sets the search result. Used by test applications.
 	 * @param result Reference to an A* search result.
 	 */
-	protected void setSearchResult(SearchResult result)
+	protected synchronized void setSearchResult(SearchResult result)
 	{
+		if (!layersInvalid)
+		{
+			// Repaint the squares of the result that is drawn and of the new result.
+			Rectangle dirty = union(searchBounds(drawnSearchResult), searchBounds(result));
+			if (dirty != null)
+			{
+				repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+			}
+		}
 		searchResult = result;
 	}
 	
@@ -132,22 +175,42 @@ public class MazeApp extends JFrame
 		return searchResult;
 	}
 	
+	/**
+	 * Redraws a node whose open, entrance or exit state has changed. Only the node's
+	 * square is redrawn and repainted.
+	 * @param node The node that changed.
+	 */
+	public synchronized void nodeChanged(Node node)
+	{
+		if (node == null)
+		{
+			return;
+		}
+		changedNodes.add(node);
+		Rectangle bounds = nodeBounds(node);
+		repaint(bounds.x, bounds.y, bounds.width, bounds.height);
+	}
+	
 	/**
 	 * Sets the start node. Used by test applications.
 	 * @param start The maze's start node.
 	 */
-	protected void setStart(Node start)
+	protected synchronized void setStart(Node start)
 	{
+		nodeChanged(this.start);
 		this.start = start;
+		nodeChanged(start);
 	}
 	
 	/**
 	 * Sets the exit node. Used by test applications.
 	 * @param exit The maze's exit node.
 	 */
-	protected void setExit(Node exit)
+	protected synchronized void setExit(Node exit)
 	{
+		nodeChanged(this.exit);
 		this.exit = exit;
+		nodeChanged(exit);
 	}
 	
 	/**
@@ -181,42 +244,117 @@ public class MazeApp extends JFrame
 		g.drawString("White: Open", 350, 55);
 		g.drawString("Black: Wall", 350, 75);
 		
-		if (maze != null)
+		synchronized (this)
 		{
-			g.drawString("<< Click to restart >>", 200, 100);
-			drawSearchResult(g);
-			drawStartAndExit(g);
-			drawMaze(g);
+			if (maze != null)
+			{
+				g.drawString("<< Click to restart >>", 200, 100);
+				updateLayers();
+				g.drawImage(searchLayer, FIRST_NODE_X, FIRST_NODE_Y, null);
+				g.drawImage(mazeLayer, FIRST_NODE_X, FIRST_NODE_Y, null);
+			}
 		}
 		
 		// Write text at the bottom of the JFrame.
 		g.setColor(Color.BLACK);
 		g.drawString("BU MET CS664 | Christopher Canfield", 
-				150, FIRST_NODE_Y + 30 + PIXELS_PER_NODE * 10);
+				150, FIRST_NODE_Y + 30 + MAZE_PIXELS);
+	}
+	
+	/**
+	 * Brings the cached layers up to date: both are redrawn in full if the maze was
+	 * replaced; otherwise, only the changed nodes and search results are redrawn.
+	 */
+	private void updateLayers()
+	{
+		if (layersInvalid)
+		{
+			final int width = maze[0].length * pixelsPerNode + 1;
+			final int height = maze.length * pixelsPerNode + 1;
+			mazeLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			searchLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			
+			Graphics2D g = mazeLayer.createGraphics();
+			drawStartAndExit(g);
+			drawMaze(g);
+			g.dispose();
+			
+			drawnSearchResult = null;
+			changedNodes.clear();
+			layersInvalid = false;
+		}
+		
+		if (!changedNodes.isEmpty())
+		{
+			Graphics2D g = mazeLayer.createGraphics();
+			for (Node node : changedNodes)
+			{
+				redrawNode(g, node);
+			}
+			g.dispose();
+			changedNodes.clear();
+		}
+		
+		if (drawnSearchResult != searchResult)
+		{
+			Graphics2D g = searchLayer.createGraphics();
+			eraseSearchResult(g, drawnSearchResult);
+			drawSearchResult(g, searchResult);
+			g.dispose();
+			drawnSearchResult = searchResult;
+		}
+	}
+	
+	/**
+	 * Clears the squares of a search result from the search layer.
+	 * @param g The search layer's graphics context.
+	 * @param result The search result, or null.
+	 */
+	private void eraseSearchResult(Graphics2D g, SearchResult result)
+	{
+		if (result != null)
+		{
+			g.setComposite(AlphaComposite.Clear);
+			for (Node node : result.getSearchedNodes())
+			{
+				g.fillRect(node.getColumn() * pixelsPerNode, node.getRow() * pixelsPerNode,
+						pixelsPerNode, pixelsPerNode);
+			}
+			if (result.getPath() != null)
+			{
+				for (Node node : result.getPath())
+				{
+					g.fillRect(node.getColumn() * pixelsPerNode, node.getRow() * pixelsPerNode,
+							pixelsPerNode, pixelsPerNode);
+				}
+			}
+			g.setComposite(AlphaComposite.SrcOver);
+		}
 	}
 	
 	/**
 	 * Draw the searched set followed by the path.
-	 * @param g The graphics context.
+	 * @param g The search layer's graphics context.
+	 * @param result The search result, or null.
 	 */
-	private void drawSearchResult(Graphics g)
+	private void drawSearchResult(Graphics g, SearchResult result)
 	{
 		// Ensure that a searchResult has been returned by the A* algorithm.
-		if (searchResult != null)
+		if (result != null)
 		{
 			// Draw the set of searched nodes.
-			for (Node node : searchResult.getSearchedNodes())
+			for (Node node : result.getSearchedNodes())
 			{
-				node.draw(g, FIRST_NODE_X, FIRST_NODE_Y, PIXELS_PER_NODE);
+				node.draw(g, 0, 0, pixelsPerNode);
 			}
 			
 			// Ensure that a valid path was found by the A* algorithm.
-			if (searchResult.getPath() != null)
+			if (result.getPath() != null)
 			{
 				// Draw the path.
-				for (Node node : searchResult.getPath())
+				for (Node node : result.getPath())
 				{
-					node.draw(g, FIRST_NODE_X, FIRST_NODE_Y, PIXELS_PER_NODE);
+					node.draw(g, 0, 0, pixelsPerNode);
 				}
 			}
 		}
@@ -224,17 +362,17 @@ public class MazeApp extends JFrame
 	
 	/**
 	 * Draw the start and exit node.
-	 * @param g The graphics context.
+	 * @param g The maze layer's graphics context.
 	 */
 	private void drawStartAndExit(Graphics g)
 	{
-		if (start != null) start.draw(g, FIRST_NODE_X, FIRST_NODE_Y, PIXELS_PER_NODE);
-		if (exit != null) exit.draw(g, FIRST_NODE_X, FIRST_NODE_Y, PIXELS_PER_NODE);
+		if (start != null) start.draw(g, 0, 0, pixelsPerNode);
+		if (exit != null) exit.draw(g, 0, 0, pixelsPerNode);
 	}
 	
 	/**
 	 * Draw all nodes in the maze.
-	 * @param g The graphics context.
+	 * @param g The maze layer's graphics context.
 	 */
 	private void drawMaze(Graphics g)
 	{
@@ -243,8 +381,100 @@ public class MazeApp extends JFrame
 		{
 			for (Node node : m)
 			{
-				node.draw(g, FIRST_NODE_X, FIRST_NODE_Y, PIXELS_PER_NODE);
+				node.draw(g, 0, 0, pixelsPerNode);
+			}
+		}
+	}
+	
+	/**
+	 * Redraws one node's square in the maze layer. The square's outline is shared with
+	 * its neighbors, so the neighbors are redrawn too, clipped to the square, in the
+	 * same order as drawMaze.
+	 * @param g The maze layer's graphics context.
+	 * @param node The node to redraw.
+	 */
+	private void redrawNode(Graphics2D g, Node node)
+	{
+		final int row = node.getRow();
+		final int column = node.getColumn();
+		if (row < 0 || row >= maze.length || column < 0 || column >= maze[row].length)
+		{
+			return;
+		}
+		
+		g.setClip(column * pixelsPerNode, row * pixelsPerNode, pixelsPerNode + 1, pixelsPerNode + 1);
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(column * pixelsPerNode, row * pixelsPerNode, pixelsPerNode + 1, pixelsPerNode + 1);
+		g.setComposite(AlphaComposite.SrcOver);
+		
+		drawStartAndExit(g);
+		for (int r = Math.max(0, row - 1); r <= Math.min(maze.length - 1, row + 1); ++r)
+		{
+			for (int c = Math.max(0, column - 1); c <= Math.min(maze[r].length - 1, column + 1); ++c)
+			{
+				maze[r][c].draw(g, 0, 0, pixelsPerNode);
 			}
 		}
+		g.setClip(null);
+	}
+	
+	/**
+	 * Returns the window area of a node's square, including its outline.
+	 * @param node The node.
+	 * @return The node's bounds, in window pixels.
+	 */
+	private Rectangle nodeBounds(Node node)
+	{
+		return new Rectangle(FIRST_NODE_X + node.getColumn() * pixelsPerNode,
+				FIRST_NODE_Y + node.getRow() * pixelsPerNode, pixelsPerNode + 1, pixelsPerNode + 1);
+	}
+	
+	/**
+	 * Returns the window area that holds a search result's searched nodes and path.
+	 * @param result The search result, or null.
+	 * @return The bounds, in window pixels, or null if the result has no nodes.
+	 */
+	private Rectangle searchBounds(SearchResult result)
+	{
+		if (result == null)
+		{
+			return null;
+		}
+		List<Node> nodes = new ArrayList<Node>(result.getSearchedNodes());
+		if (result.getPath() != null)
+		{
+			nodes.addAll(result.getPath());
+		}
+		if (nodes.isEmpty())
+		{
+			return null;
+		}
+		
+		int minRow = Integer.MAX_VALUE, minColumn = Integer.MAX_VALUE;
+		int maxRow = Integer.MIN_VALUE, maxColumn = Integer.MIN_VALUE;
+		for (Node node : nodes)
+		{
+			minRow = Math.min(minRow, node.getRow());
+			maxRow = Math.max(maxRow, node.getRow());
+			minColumn = Math.min(minColumn, node.getColumn());
+			maxColumn = Math.max(maxColumn, node.getColumn());
+		}
+		return new Rectangle(FIRST_NODE_X + minColumn * pixelsPerNode, FIRST_NODE_Y + minRow * pixelsPerNode,
+				(maxColumn - minColumn + 1) * pixelsPerNode + 1, (maxRow - minRow + 1) * pixelsPerNode + 1);
+	}
+	
+	/**
+	 * Returns the union of two areas, either of which may be null.
+	 * @param a An area, or null.
+	 * @param b An area, or null.
+	 * @return The union, or null if both areas are null.
+	 */
+	private static Rectangle union(Rectangle a, Rectangle b)
+	{
+		if (a == null)
+		{
+			return b;
+		}
+		return (b == null) ? a : a.union(b);
 	}
 }
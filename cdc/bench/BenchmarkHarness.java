@@ -0,0 +1,193 @@
+package cdc.bench;
+
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A small benchmark harness. Each benchmark is warmed up, then run for a number of
+ * timed iterations, and the average time per operation is reported together with
+ * the bytes allocated per operation and the garbage collections that occurred,
+ * so that results can be compared before and after a change.
+ * <p>
+ * The harness is configured with system properties:
+ * <ul>
+ * <li>bench.warmup: the number of warmup iterations (default 3).</li>
+ * <li>bench.iterations: the number of measured iterations (default 5).</li>
+ * <li>bench.time: the length of each iteration in milliseconds (default 1000).</li>
+ * <li>bench.filter: only run benchmarks whose name contains this text.</li>
+ * </ul>
+ * @author Christopher D. Canfield
+ */
+public class BenchmarkHarness
+{
+	/**
+	 * A benchmarked operation.
+	 */
+	public interface Operation
+	{
+		/**
+		 * Runs the operation once.
+		 * @return A value derived from the operation's result, which is consumed by
+		 * the harness so that the JIT compiler cannot remove the operation.
+		 */
+		public long run();
+	}
+	
+	private final int warmupIterations = Integer.getInteger("bench.warmup", 3);
+	private final int iterations = Integer.getInteger("bench.iterations", 5);
+	private final long iterationNanos = Long.getLong("bench.time", 1000) * 1000000L;
+	private final String filter = System.getProperty("bench.filter", "");
+	
+	// Receives the results, as a table.
+	private final PrintWriter out;
+	// Receives the results as CSV, or null.
+	private final PrintWriter csv;
+	
+	// Consumes the operations' results.
+	private long sink;
+	
+	/**
+	 * Instantiates a harness.
+	 * @param out The writer that receives the results table.
+	 * @param csv The writer that receives the results as CSV, or null.
+	 */
+	public BenchmarkHarness(PrintWriter out, PrintWriter csv)
+	{
+		this.out = out;
+		this.csv = csv;
+		
+		out.println(String.format("%-50s %14s %10s %14s %6s %8s", 
+				"Benchmark", "ns/op", "error", "alloc B/op", "gcs", "gc ms"));
+		if (csv != null)
+		{
+			csv.println("benchmark,ns_per_op,error_ns,alloc_bytes_per_op,gc_count,gc_ms");
+		}
+	}
+	
+	/**
+	 * Runs a benchmark, and reports its results.
+	 * @param name The benchmark name.
+	 * @param operation The operation to measure.
+	 */
+	public void run(String name, Operation operation)
+	{
+		if (!name.contains(filter))
+		{
+			return;
+		}
+		
+		for (int i = 0; i < warmupIterations; ++i)
+		{
+			iterate(operation);
+		}
+		
+		com.sun.management.ThreadMXBean threads = threadBean();
+		final long threadId = Thread.currentThread().getId();
+		final long gcCountBefore = gcCount();
+		final long gcTimeBefore = gcTime();
+		final long allocatedBefore = (threads != null) ? threads.getThreadAllocatedBytes(threadId) : 0;
+		
+		double[] nanosPerOp = new double[iterations];
+		long totalOps = 0;
+		for (int i = 0; i < iterations; ++i)
+		{
+			long[] result = iterate(operation);
+			totalOps += result[0];
+			nanosPerOp[i] = (double)result[1] / result[0];
+		}
+		
+		final long allocated = (threads != null) ? threads.getThreadAllocatedBytes(threadId) - allocatedBefore : -1;
+		final long gcs = gcCount() - gcCountBefore;
+		final long gcMillis = gcTime() - gcTimeBefore;
+		
+		double mean = 0;
+		for (double value : nanosPerOp)
+		{
+			mean += value;
+		}
+		mean /= iterations;
+		double variance = 0;
+		for (double value : nanosPerOp)
+		{
+			variance += (value - mean) * (value - mean);
+		}
+		double error = (iterations > 1) ? Math.sqrt(variance / (iterations - 1)) : 0;
+		double allocPerOp = (allocated < 0) ? Double.NaN : (double)allocated / totalOps;
+		
+		out.println(String.format("%-50s %14.1f %10.1f %14.1f %6d %8d", 
+				name, mean, error, allocPerOp, gcs, gcMillis));
+		out.flush();
+		if (csv != null)
+		{
+			csv.println(name + "," + mean + "," + error + "," + allocPerOp + "," + gcs + "," + gcMillis);
+			csv.flush();
+		}
+	}
+	
+	/**
+	 * Returns the value that the operations' results were folded into.
+	 * @return The consumed value.
+	 */
+	public long getSink()
+	{
+		return sink;
+	}
+	
+	/**
+	 * Runs the operation repeatedly for one iteration.
+	 * @param operation The operation.
+	 * @return The number of operations, and the elapsed nanoseconds.
+	 */
+	private long[] iterate(Operation operation)
+	{
+		long ops = 0;
+		long value = 0;
+		final long start = System.nanoTime();
+		long elapsed;
+		do
+		{
+			value += operation.run();
+			++ops;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < iterationNanos);
+		sink += value;
+		return new long[] { ops, elapsed };
+	}
+	
+	private static com.sun.management.ThreadMXBean threadBean()
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+		{
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+			if (threads.isThreadAllocatedMemorySupported())
+			{
+				threads.setThreadAllocatedMemoryEnabled(true);
+				return threads;
+			}
+		}
+		return null;
+	}
+	
+	private static long gcCount()
+	{
+		long count = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+	
+	private static long gcTime()
+	{
+		long time = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			time += Math.max(0, bean.getCollectionTime());
+		}
+		return time;
+	}
+}
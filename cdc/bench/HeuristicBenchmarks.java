@@ -0,0 +1,106 @@
+package cdc.bench;
+
+import java.util.Random;
+
+import cdc.maze.MazeGrid;
+import cdc.maze.Node;
+import cdc.search.GridHeuristic;
+import cdc.search.Heuristic;
+import cdc.search.ManhattanHeuristic;
+
+/**
+ * Benchmarks the cost of calling Heuristic.calculateCost and GridHeuristic.calculateCost,
+ * from call sites that see one heuristic class and call sites that see several.
+ * Each operation makes BATCH calls.
+ * @author Christopher D. Canfield
+ */
+public class HeuristicBenchmarks
+{
+	// The number of heuristic calls per operation.
+	private static final int BATCH = 1024;
+	
+	/**
+	 * Runs the benchmarks.
+	 * @param harness The benchmark harness.
+	 */
+	public static void run(BenchmarkHarness harness)
+	{
+		final MazeGrid maze = new MazeGrid(1000, 1000);
+		final int[] cells = new int[BATCH + 1];
+		final Node[] nodes = new Node[BATCH + 1];
+		Random random = new Random(664);
+		for (int i = 0; i < cells.length; ++i)
+		{
+			cells[i] = random.nextInt(maze.getCellCount());
+			nodes[i] = maze.getNode(cells[i]);
+		}
+		
+		final Heuristic nodeHeuristic = new ManhattanHeuristic();
+		harness.run("heuristic.node.manhattan", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				long sum = 0;
+				for (int i = 0; i < BATCH; ++i)
+				{
+					sum += nodeHeuristic.calculateCost(nodes[i], nodes[i + 1]);
+				}
+				return sum;
+			}
+		});
+		
+		final GridHeuristic gridHeuristic = new ManhattanHeuristic();
+		harness.run("heuristic.grid.manhattan", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				long sum = 0;
+				for (int i = 0; i < BATCH; ++i)
+				{
+					sum += gridHeuristic.calculateCost(maze, cells[i], cells[i + 1]);
+				}
+				return sum;
+			}
+		});
+		
+		// Three heuristic classes at one call site, so the call cannot be inlined
+		// as a single monomorphic target.
+		final GridHeuristic[] heuristics = { new ManhattanHeuristic(), new ZeroHeuristic(), new ChebyshevHeuristic() };
+		harness.run("heuristic.grid.megamorphic", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				long sum = 0;
+				for (int i = 0; i < BATCH; ++i)
+				{
+					sum += heuristics[i % 3].calculateCost(maze, cells[i], cells[i + 1]);
+				}
+				return sum;
+			}
+		});
+	}
+	
+	
+	private static class ZeroHeuristic implements GridHeuristic
+	{
+		@Override
+		public int calculateCost(MazeGrid maze, int start, int end)
+		{
+			return 0;
+		}
+	}
+	
+	private static class ChebyshevHeuristic implements GridHeuristic
+	{
+		@Override
+		public int calculateCost(MazeGrid maze, int start, int end)
+		{
+			int rowDiff = Math.abs(maze.rowOf(start) - maze.rowOf(end));
+			int colDiff = Math.abs(maze.columnOf(start) - maze.columnOf(end));
+			return Math.max(rowDiff, colDiff);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package cdc.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import cdc.maze.BinaryMazeReader;
+import cdc.maze.MappedMazeLoader;
+import cdc.maze.MazeCatalog;
+import cdc.maze.MazeCreator;
+import cdc.maze.MazeFileConverter;
+import cdc.maze.MazeGrid;
+
+/**
+ * Benchmarks maze loading. The "cold" benchmarks scan the maze file before loading,
+ * as happens the first time a file is used; the "warm" benchmarks use the cached
+ * catalog. The benchmark files are written to the temporary directory.
+ * @author Christopher D. Canfield
+ */
+public class LoadBenchmarks
+{
+	// The number of small mazes in the benchmark file.
+	private static final int SMALL_MAZES = 1000;
+	// The size of the small mazes.
+	private static final int SMALL_SIZE = 10;
+	// The size of the large maze, which is the last maze in the file.
+	private static final int LARGE_SIZE = 1000;
+	
+	/**
+	 * Runs the benchmarks.
+	 * @param harness The benchmark harness.
+	 * @throws IOException If the benchmark files cannot be written.
+	 */
+	public static void run(BenchmarkHarness harness) throws IOException
+	{
+		final File textFile = File.createTempFile("mazes-bench", ".txt");
+		final File binaryFile = new File(textFile.getPath().replaceAll("\\.txt$", ".cmz"));
+		textFile.deleteOnExit();
+		binaryFile.deleteOnExit();
+		new File(textFile.getPath() + MazeCatalog.INDEX_SUFFIX).deleteOnExit();
+		
+		writeMazes(textFile);
+		MazeFileConverter.convert(textFile, binaryFile);
+		final String fileName = textFile.getPath();
+		final int large = SMALL_MAZES + 1;
+		
+		harness.run("load.text.cold first", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				return load(textFile, 1, true);
+			}
+		});
+		harness.run("load.text.cold last", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				return load(textFile, SMALL_MAZES, true);
+			}
+		});
+		harness.run("load.text.warm first", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				return MazeCreator.loadGrid(fileName, 1).getCellCount();
+			}
+		});
+		harness.run("load.text.warm last", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				return MazeCreator.loadGrid(fileName, SMALL_MAZES).getCellCount();
+			}
+		});
+		harness.run("load.text.warm last nodes", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				return MazeCreator.loadGrid(fileName, SMALL_MAZES).toNodes().length;
+			}
+		});
+		harness.run("load.text.warm large", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				return MazeCreator.loadGrid(fileName, large).getCellCount();
+			}
+		});
+		harness.run("load.mapped large", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				try
+				{
+					return MappedMazeLoader.load(fileName, large).getCellCount();
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		harness.run("load.binary large", new BenchmarkHarness.Operation()
+		{
+			@Override
+			public long run()
+			{
+				try
+				{
+					return BinaryMazeReader.read(binaryFile, large).getCellCount();
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Loads a maze, optionally scanning the maze file first.
+	 * @param file The maze file.
+	 * @param mazeNumber The maze number.
+	 * @param scan Whether to scan the file, rather than use the cached catalog.
+	 * @return The number of cells in the maze.
+	 */
+	private static long load(File file, int mazeNumber, boolean scan)
+	{
+		try
+		{
+			MazeCatalog catalog = scan ? MazeCatalog.scan(file) : MazeCatalog.forFile(file.getPath());
+			return catalog.loadGrid(mazeNumber).getCellCount();
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Writes the benchmark maze file: SMALL_MAZES small mazes followed by one large maze.
+	 * @param file The file to write.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private static void writeMazes(File file) throws IOException
+	{
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file))))
+		{
+			out.println("Benchmark mazes");
+			for (int i = 0; i < SMALL_MAZES; ++i)
+			{
+				writeMaze(out, SearchBenchmarks.randomMaze(SMALL_SIZE, SMALL_SIZE, 0.3, i));
+				out.println();
+			}
+			writeMaze(out, SearchBenchmarks.randomMaze(LARGE_SIZE, LARGE_SIZE, 0.3, SMALL_MAZES));
+		}
+	}
+	
+	private static void writeMaze(PrintWriter out, MazeGrid maze)
+	{
+		StringBuilder row = new StringBuilder(maze.getColumns());
+		for (int r = 0; r < maze.getRows(); ++r)
+		{
+			row.setLength(0);
+			for (int c = 0; c < maze.getColumns(); ++c)
+			{
+				row.append(maze.getCellType(maze.indexOf(r, c)).getSymbol());
+			}
+			out.println(row);
+		}
+	}
+}
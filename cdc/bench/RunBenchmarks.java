@@ -0,0 +1,46 @@
+package cdc.bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Runs the benchmark suites, and prints a table of results. With the -csv option,
+ * the results are also written to a CSV file, so that runs from before and after a
+ * change can be compared.
+ * <p>
+ * Usage: java [-Dbench.filter=text] cdc.bench.RunBenchmarks [-csv file]
+ * <br>
+ * See BenchmarkHarness for the other configuration properties.
+ * @author Christopher D. Canfield
+ */
+public class RunBenchmarks
+{
+	public static void main(String[] args) throws IOException
+	{
+		PrintWriter csv = null;
+		if (args.length == 2 && args[0].equals("-csv"))
+		{
+			csv = new PrintWriter(new FileWriter(args[1]));
+		}
+		
+		try
+		{
+			BenchmarkHarness harness = new BenchmarkHarness(new PrintWriter(new OutputStreamWriter(System.out)), csv);
+			SearchBenchmarks.run(harness);
+			LoadBenchmarks.run(harness);
+			HeuristicBenchmarks.run(harness);
+			
+			// Print the consumed value, so that no benchmark's work can be eliminated.
+			System.out.println("(sink " + harness.getSink() + ")");
+		}
+		finally
+		{
+			if (csv != null)
+			{
+				csv.close();
+			}
+		}
+	}
+}
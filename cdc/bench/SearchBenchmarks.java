@@ -0,0 +1,188 @@
+package cdc.bench;
+
+import java.util.Random;
+
+import cdc.maze.MazeGrid;
+import cdc.maze.Node;
+import cdc.search.BidirectionalContext;
+import cdc.search.BidirectionalSearch;
+import cdc.search.FlowField;
+import cdc.search.GridSearch;
+import cdc.search.JumpPointSearch;
+import cdc.search.LandmarkHeuristic;
+import cdc.search.ManhattanHeuristic;
+import cdc.search.Movement;
+import cdc.search.OpenListType;
+import cdc.search.ParallelSearch;
+import cdc.search.Search;
+import cdc.search.SearchContext;
+import cdc.search.SearchOptions;
+import cdc.search.SearchResult;
+
+/**
+ * Benchmarks the search engines across maze sizes and wall densities.
+ * @author Christopher D. Canfield
+ */
+public class SearchBenchmarks
+{
+	// The maze sizes (rows and columns) to benchmark.
+	private static final int[] SIZES = { 10, 100, 500 };
+	// The fractions of cells that are walls.
+	private static final double[] WALL_DENSITIES = { 0.0, 0.2, 0.3 };
+	// The seed for the random mazes, so every run uses the same mazes.
+	private static final long SEED = 664;
+	
+	/**
+	 * Runs the benchmarks.
+	 * @param harness The benchmark harness.
+	 */
+	public static void run(BenchmarkHarness harness)
+	{
+		final ManhattanHeuristic heuristic = new ManhattanHeuristic();
+		
+		for (int size : SIZES)
+		{
+			for (double density : WALL_DENSITIES)
+			{
+				final MazeGrid maze = randomMaze(size, size, density, SEED);
+				final String suffix = " size=" + size + " walls=" + density;
+				
+				final Node[][] nodes = maze.toNodes();
+				final Node start = nodes[0][0];
+				final Node exit = nodes[size - 1][size - 1];
+				harness.run("search.aStar.nodes" + suffix, new BenchmarkHarness.Operation()
+				{
+					@Override
+					public long run()
+					{
+						return pathLength(Search.aStar(start, exit, heuristic));
+					}
+				});
+				
+				for (final OpenListType openListType : OpenListType.values())
+				{
+					final SearchOptions options = SearchOptions.pathOnly().setOpenListType(openListType);
+					harness.run("search.aStar.nodes." + openListType + suffix, new BenchmarkHarness.Operation()
+					{
+						@Override
+						public long run()
+						{
+							return pathLength(Search.aStar(start, exit, heuristic, options));
+						}
+					});
+				}
+				
+				harness.run("search.aStar.grid" + suffix, new BenchmarkHarness.Operation()
+				{
+					@Override
+					public long run()
+					{
+						return pathLength(Search.aStar(maze, heuristic));
+					}
+				});
+				
+				final SearchContext context = new SearchContext(maze);
+				harness.run("search.GridSearch.reusedContext" + suffix, new BenchmarkHarness.Operation()
+				{
+					@Override
+					public long run()
+					{
+						GridSearch.aStar(context, maze.getEntrance(), maze.getExit(), heuristic);
+						return context.getExpandedCount();
+					}
+				});
+				
+				final LandmarkHeuristic landmarks = LandmarkHeuristic.build(maze);
+				harness.run("search.GridSearch.landmarks" + suffix, new BenchmarkHarness.Operation()
+				{
+					@Override
+					public long run()
+					{
+						GridSearch.aStar(context, maze.getEntrance(), maze.getExit(), landmarks);
+						return context.getExpandedCount();
+					}
+				});
+				
+				final BidirectionalContext bidirectionalContext = new BidirectionalContext(maze);
+				harness.run("search.BidirectionalSearch.reusedContext" + suffix, new BenchmarkHarness.Operation()
+				{
+					@Override
+					public long run()
+					{
+						BidirectionalSearch.aStar(bidirectionalContext, maze.getEntrance(), maze.getExit(), heuristic);
+						return bidirectionalContext.getExpandedCount();
+					}
+				});
+				
+				final ParallelSearch parallelSearch = new ParallelSearch(maze, Runtime.getRuntime().availableProcessors());
+				try
+				{
+					harness.run("search.ParallelSearch" + suffix, new BenchmarkHarness.Operation()
+					{
+						@Override
+						public long run()
+						{
+							parallelSearch.search(maze.getEntrance(), maze.getExit(), heuristic);
+							return parallelSearch.getPathLength();
+						}
+					});
+				}
+				finally
+				{
+					parallelSearch.close();
+				}
+				
+				final FlowField flowField = new FlowField(maze, maze.getExit());
+				harness.run("search.FlowField.findPath" + suffix, new BenchmarkHarness.Operation()
+				{
+					@Override
+					public long run()
+					{
+						int[] path = flowField.findPath(maze.getEntrance());
+						return (path == null) ? 0 : path.length;
+					}
+				});
+				
+				for (final Movement movement : Movement.values())
+				{
+					harness.run("search.JumpPointSearch." + movement + suffix, new BenchmarkHarness.Operation()
+					{
+						@Override
+						public long run()
+						{
+							JumpPointSearch.search(context, maze.getEntrance(), maze.getExit(), movement);
+							return context.getExpandedCount();
+						}
+					});
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Creates a maze with randomly placed walls, an entrance in the top left 
+	 * corner and an exit in the bottom right corner.
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param density The fraction of cells that are walls.
+	 * @param seed The random seed.
+	 * @return The maze.
+	 */
+	static MazeGrid randomMaze(int rows, int columns, double density, long seed)
+	{
+		Random random = new Random(seed);
+		MazeGrid maze = new MazeGrid(rows, columns);
+		for (int index = 0; index < maze.getCellCount(); ++index)
+		{
+			maze.setOpen(index, random.nextDouble() >= density);
+		}
+		maze.setEntrance(0);
+		maze.setExit(maze.getCellCount() - 1);
+		return maze;
+	}
+	
+	private static long pathLength(SearchResult result)
+	{
+		return (result == null) ? -1 : result.getPath().size();
+	}
+}
@@ -0,0 +1,129 @@
+package cdc.generator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import cdc.maze.BinaryMazeWriter;
+import cdc.maze.MazeSink;
+import cdc.maze.MazeTextWriter;
+
+/**
+ * Writes a file of generated mazes, for load testing. Maze n is generated with
+ * the seed (seed + n - 1), so any maze in the file can be regenerated on its own.
+ * <p>
+ * Usage: java cdc.generator.GenerateMazes [-type t] [-rows n] [-columns n] [-count n]
+ * [-seed n] [-density d] [-format text|binary] -out file
+ * <ul>
+ * <li>-type: backtracker, prim, kruskal, density or rooms. Defaults to backtracker.</li>
+ * <li>-rows, -columns: the maze dimensions. Default to 101.</li>
+ * <li>-count: the number of mazes. Defaults to 1.</li>
+ * <li>-seed: the seed of the first maze. Defaults to 0.</li>
+ * <li>-density: the wall density of the density generator. Defaults to 0.3.</li>
+ * <li>-format: the file format. Defaults to binary if the file name ends in ".cmz",
+ * and text otherwise.</li>
+ * </ul>
+ * @author Christopher D. Canfield
+ */
+public class GenerateMazes
+{
+	private static final String USAGE = "Usage: java cdc.generator.GenerateMazes " +
+			"[-type backtracker|prim|kruskal|density|rooms] [-rows n] [-columns n] [-count n] " +
+			"[-seed n] [-density d] [-format text|binary] -out file";
+	
+	public static void main(String[] args)
+	{
+		String type = "backtracker";
+		int rows = 101;
+		int columns = 101;
+		int count = 1;
+		long seed = 0;
+		double density = 0.3;
+		String format = null;
+		String outFile = null;
+		MazeGenerator generator = null;
+		
+		try
+		{
+			for (int i = 0; i < args.length; ++i)
+			{
+				if (args[i].equals("-type")) type = args[++i];
+				else if (args[i].equals("-rows")) rows = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-columns")) columns = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-count")) count = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-seed")) seed = Long.parseLong(args[++i]);
+				else if (args[i].equals("-density")) density = Double.parseDouble(args[++i]);
+				else if (args[i].equals("-format")) format = args[++i];
+				else if (args[i].equals("-out")) outFile = args[++i];
+				else throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+			if (outFile == null || count < 1)
+			{
+				throw new IllegalArgumentException();
+			}
+			if (format == null)
+			{
+				format = outFile.endsWith(".cmz") ? "binary" : "text";
+			}
+			if (!format.equals("text") && !format.equals("binary"))
+			{
+				throw new IllegalArgumentException("Unknown format: " + format);
+			}
+			generator = forName(type, density);
+		}
+		catch (RuntimeException e)
+		{
+			if (e.getMessage() != null)
+			{
+				System.err.println(e.getMessage());
+			}
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		
+		final long start = System.nanoTime();
+		File file = new File(outFile);
+		try (Closeable writer = format.equals("binary") ? new BinaryMazeWriter(file) :
+				new MazeTextWriter(file, count + " " + type + " mazes, " + rows + "x" + columns + ", seed " + seed))
+		{
+			MazeSink sink = (MazeSink)writer;
+			for (int n = 0; n < count; ++n)
+			{
+				generator.generate(rows, columns, seed + n, sink);
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			System.err.println("Unable to generate " + outFile + ": " + e.getMessage());
+			System.exit(1);
+		}
+		System.out.println("Wrote " + count + " " + rows + "x" + columns + " " + type + " mazes to " +
+				outFile + " in " + String.format("%.3f", (System.nanoTime() - start) / 1e9) + " s");
+	}
+	
+	/**
+	 * Returns the generator with the specified name.
+	 * @param type backtracker, prim, kruskal, density or rooms.
+	 * @param density The wall density, used by the density generator.
+	 * @return The generator.
+	 * @throws IllegalArgumentException If the type is not known.
+	 */
+	public static MazeGenerator forName(String type, double density)
+	{
+		switch (type)
+		{
+		case "backtracker":
+			return new RecursiveBacktrackerGenerator();
+		case "prim":
+			return new PrimGenerator();
+		case "kruskal":
+			return new KruskalGenerator();
+		case "density":
+			return new RandomDensityGenerator(density);
+		case "rooms":
+			return new RoomsAndCorridorsGenerator();
+		default:
+			throw new IllegalArgumentException("Unknown maze type: " + type);
+		}
+	}
+}
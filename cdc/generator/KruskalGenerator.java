@@ -0,0 +1,82 @@
+package cdc.generator;
+
+import java.util.Random;
+
+/**
+ * Generates perfect mazes with randomized Kruskal's algorithm: the walls between
+ * rooms are visited in random order, and a wall is opened if the rooms on either
+ * side are not yet connected. Connectivity is tracked with a union-find structure
+ * over the room numbers. Uses about 12 bytes per room.
+ * @author Christopher D. Canfield
+ */
+public class KruskalGenerator extends PerfectMazeGenerator
+{
+	@Override
+	void carve(Lattice lattice, Random random)
+	{
+		final int roomCount = lattice.getRoomCount();
+		final int roomColumns = lattice.roomColumns;
+		
+		// Each room has a wall to its right and a wall below it. Wall w belongs to
+		// room w / 2, and is the right wall if w is even and the lower wall if w is odd.
+		int[] walls = new int[roomCount * 2];
+		int wallCount = 0;
+		for (int room = 0; room < roomCount; ++room)
+		{
+			if (room % roomColumns < roomColumns - 1)
+			{
+				walls[wallCount++] = room * 2;
+			}
+			if (room + roomColumns < roomCount)
+			{
+				walls[wallCount++] = room * 2 + 1;
+			}
+		}
+		
+		// Shuffle the walls (Fisher-Yates).
+		for (int i = wallCount - 1; i > 0; --i)
+		{
+			int j = random.nextInt(i + 1);
+			int wall = walls[i];
+			walls[i] = walls[j];
+			walls[j] = wall;
+		}
+		
+		int[] parent = new int[roomCount];
+		for (int room = 0; room < roomCount; ++room)
+		{
+			parent[room] = room;
+		}
+		
+		int joins = 0;
+		for (int i = 0; i < wallCount && joins < roomCount - 1; ++i)
+		{
+			final int room = walls[i] / 2;
+			final int neighbour = (walls[i] % 2 == 0) ? room + 1 : room + roomColumns;
+			final int a = find(parent, room);
+			final int b = find(parent, neighbour);
+			if (a != b)
+			{
+				parent[a] = b;
+				lattice.join(room, neighbour);
+				++joins;
+			}
+		}
+	}
+	
+	/**
+	 * Finds the representative of a room's set, halving the path as it goes.
+	 * @param parent The union-find parent array.
+	 * @param room The room number.
+	 * @return The representative room.
+	 */
+	private static int find(int[] parent, int room)
+	{
+		while (parent[room] != room)
+		{
+			parent[room] = parent[parent[room]];
+			room = parent[room];
+		}
+		return room;
+	}
+}
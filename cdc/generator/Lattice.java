@@ -0,0 +1,118 @@
+package cdc.generator;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * The rooms of a perfect maze. Rooms are the cells at odd rows and columns of the
+ * grid; the cells between them start as walls, and are opened to join rooms.
+ * Rooms are numbered in row order, starting with 0.
+ * @author Christopher D. Canfield
+ */
+class Lattice
+{
+	// The maze that contains the rooms.
+	final MazeGrid maze;
+	// The number of rows and columns of rooms.
+	final int roomRows;
+	final int roomColumns;
+	
+	/**
+	 * Instantiates the rooms of a maze, and opens each room.
+	 * @param maze The maze, in which every cell is a wall.
+	 * @throws IllegalArgumentException If the maze has fewer than 3 rows or columns, or
+	 * room for fewer than two rooms, which would leave no room for the exit.
+	 */
+	Lattice(MazeGrid maze)
+	{
+		if (maze.getRows() < 3 || maze.getColumns() < 3)
+		{
+			throw new IllegalArgumentException("A perfect maze must have at least 3 rows and columns.");
+		}
+		this.maze = maze;
+		this.roomRows = (maze.getRows() - 1) / 2;
+		this.roomColumns = (maze.getColumns() - 1) / 2;
+		if (getRoomCount() < 2)
+		{
+			throw new IllegalArgumentException("A perfect maze must have at least 5 rows or 5 columns, " +
+					"so that it has two rooms: " + maze.getRows() + "x" + maze.getColumns());
+		}
+		
+		for (int room = 0; room < getRoomCount(); ++room)
+		{
+			maze.setOpen(cellOf(room), true);
+		}
+	}
+	
+	/**
+	 * Returns the number of rooms.
+	 * @return The number of rooms.
+	 */
+	int getRoomCount()
+	{
+		return roomRows * roomColumns;
+	}
+	
+	/**
+	 * Returns the cell index of a room.
+	 * @param room The room number.
+	 * @return The room's cell index in the maze.
+	 */
+	int cellOf(int room)
+	{
+		return maze.indexOf(2 * (room / roomColumns) + 1, 2 * (room % roomColumns) + 1);
+	}
+	
+	/**
+	 * Writes the neighbouring rooms of a room into the supplied array, in the order
+	 * up, down, left, right.
+	 * @param room The room number.
+	 * @param neighbours Receives the neighbouring room numbers. Must have room for four entries.
+	 * @return The number of neighbouring rooms.
+	 */
+	int getNeighbours(int room, int[] neighbours)
+	{
+		final int row = room / roomColumns;
+		final int column = room % roomColumns;
+		int count = 0;
+		if (row > 0)
+		{
+			neighbours[count++] = room - roomColumns;
+		}
+		if (row < roomRows - 1)
+		{
+			neighbours[count++] = room + roomColumns;
+		}
+		if (column > 0)
+		{
+			neighbours[count++] = room - 1;
+		}
+		if (column < roomColumns - 1)
+		{
+			neighbours[count++] = room + 1;
+		}
+		return count;
+	}
+	
+	/**
+	 * Opens the wall between two neighbouring rooms.
+	 * @param room The first room.
+	 * @param neighbour The second room.
+	 */
+	void join(int room, int neighbour)
+	{
+		// The wall is the cell half way between the two room cells.
+		final int a = cellOf(room);
+		final int b = cellOf(neighbour);
+		maze.setOpen(a + (b - a) / 2, true);
+	}
+	
+	/**
+	 * Sets the entrance to the first room and the exit to the last room, which are
+	 * in opposite corners of the maze.
+	 */
+	void setEntranceAndExit()
+	{
+		maze.setEntrance(cellOf(0));
+		maze.setExit(cellOf(getRoomCount() - 1));
+	}
+}
@@ -0,0 +1,39 @@
+package cdc.generator;
+
+import java.io.IOException;
+
+import cdc.maze.MazeGrid;
+import cdc.maze.MazeSink;
+
+/**
+ * Base class for seeded maze generators. A generator produces the same maze
+ * every time it is given the same dimensions and seed.
+ * @author Christopher D. Canfield
+ */
+public abstract class MazeGenerator
+{
+	/**
+	 * Generates a maze, with an entrance and an exit.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @param seed The random seed.
+	 * @return The generated maze.
+	 */
+	public abstract MazeGrid generate(int rows, int columns, long seed);
+	
+	/**
+	 * Generates a maze and streams it to a sink, such as a MazeTextWriter or a
+	 * BinaryMazeWriter. By default, the maze is generated into a MazeGrid, which 
+	 * uses one bit per cell, and then written; generators that do not need to 
+	 * remember earlier cells override this to write each cell as it is generated.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @param seed The random seed.
+	 * @param sink Receives the maze.
+	 * @throws IOException If there is a problem writing the maze.
+	 */
+	public void generate(int rows, int columns, long seed, MazeSink sink) throws IOException
+	{
+		sink.write(generate(rows, columns, seed));
+	}
+}
@@ -0,0 +1,33 @@
+package cdc.generator;
+
+import java.util.Random;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * Base class for generators of perfect mazes: mazes in which there is exactly one
+ * path between any two rooms. The entrance is in the top left room and the exit
+ * is in the bottom right room. Mazes must have at least 3 rows and columns, and at
+ * least 5 of one of them so that there are two rooms; if a dimension is even, the
+ * last row or column is left as a wall.
+ * @author Christopher D. Canfield
+ */
+public abstract class PerfectMazeGenerator extends MazeGenerator
+{
+	@Override
+	public MazeGrid generate(int rows, int columns, long seed)
+	{
+		MazeGrid maze = new MazeGrid(rows, columns);
+		Lattice lattice = new Lattice(maze);
+		carve(lattice, new Random(seed));
+		lattice.setEntranceAndExit();
+		return maze;
+	}
+	
+	/**
+	 * Joins the rooms into a spanning tree.
+	 * @param lattice The rooms of the maze.
+	 * @param random The random number generator.
+	 */
+	abstract void carve(Lattice lattice, Random random);
+}
@@ -0,0 +1,64 @@
+package cdc.generator;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Generates perfect mazes with randomized Prim's algorithm, which grows the maze
+ * outward from a random room and produces many short dead ends.
+ * @author Christopher D. Canfield
+ */
+public class PrimGenerator extends PerfectMazeGenerator
+{
+	@Override
+	void carve(Lattice lattice, Random random)
+	{
+		final int roomCount = lattice.getRoomCount();
+		final BitSet visited = new BitSet(roomCount);
+		final BitSet inFrontier = new BitSet(roomCount);
+		final int[] frontier = new int[roomCount];
+		final int[] neighbours = new int[4];
+		final int[] joined = new int[4];
+		int frontierSize = 0;
+		
+		int room = random.nextInt(roomCount);
+		while (true)
+		{
+			visited.set(room);
+			
+			// Add the room's unvisited neighbours to the frontier.
+			final int neighbourCount = lattice.getNeighbours(room, neighbours);
+			for (int i = 0; i < neighbourCount; ++i)
+			{
+				final int neighbour = neighbours[i];
+				if (!visited.get(neighbour) && !inFrontier.get(neighbour))
+				{
+					inFrontier.set(neighbour);
+					frontier[frontierSize++] = neighbour;
+				}
+			}
+			
+			if (frontierSize == 0)
+			{
+				break;
+			}
+			
+			// Remove a random room from the frontier, and join it to a random
+			// room that is already in the maze.
+			final int pick = random.nextInt(frontierSize);
+			room = frontier[pick];
+			frontier[pick] = frontier[--frontierSize];
+			
+			int count = 0;
+			final int count4 = lattice.getNeighbours(room, neighbours);
+			for (int i = 0; i < count4; ++i)
+			{
+				if (visited.get(neighbours[i]))
+				{
+					joined[count++] = neighbours[i];
+				}
+			}
+			lattice.join(room, joined[random.nextInt(count)]);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package cdc.generator;
+
+import java.io.IOException;
+import java.util.Random;
+
+import cdc.maze.CellType;
+import cdc.maze.MazeGrid;
+import cdc.maze.MazeSink;
+
+/**
+ * Generates mazes in which each cell is independently a wall with a fixed
+ * probability. The entrance is the top left cell and the exit is the bottom right
+ * cell; there is not necessarily a path between them. Because no cell depends on
+ * any other, mazes are streamed to a sink one cell at a time, so mazes of any size
+ * can be written in constant memory.
+ * @author Christopher D. Canfield
+ */
+public class RandomDensityGenerator extends MazeGenerator
+{
+	// The probability that a cell is a wall.
+	private final double density;
+	
+	/**
+	 * Instantiates a random density generator.
+	 * @param density The probability that a cell is a wall, from 0 to 1.
+	 */
+	public RandomDensityGenerator(double density)
+	{
+		if (!(density >= 0.0 && density <= 1.0))
+		{
+			throw new IllegalArgumentException("density must be between 0 and 1: " + density);
+		}
+		this.density = density;
+	}
+	
+	/**
+	 * Returns the probability that a cell is a wall.
+	 * @return The wall density.
+	 */
+	public double getDensity()
+	{
+		return density;
+	}
+	
+	@Override
+	public MazeGrid generate(int rows, int columns, long seed)
+	{
+		MazeGrid maze = new MazeGrid(rows, columns);
+		checkCellCount(maze.getCellCount());
+		
+		Random random = new Random(seed);
+		for (int index = 0; index < maze.getCellCount(); ++index)
+		{
+			maze.setOpen(index, random.nextDouble() >= density);
+		}
+		maze.setEntrance(0);
+		maze.setExit(maze.getCellCount() - 1);
+		return maze;
+	}
+	
+	/**
+	 * Generates a maze and streams it to a sink. The maze is identical to the one
+	 * returned by generate(rows, columns, seed).
+	 */
+	@Override
+	public void generate(int rows, int columns, long seed, MazeSink sink) throws IOException
+	{
+		sink.beginMaze(rows, columns);
+		final int cellCount = rows * columns;
+		checkCellCount(cellCount);
+		
+		Random random = new Random(seed);
+		for (int index = 0; index < cellCount; ++index)
+		{
+			// Always draw a number, so that the cells match generate(rows, columns, seed).
+			final boolean open = random.nextDouble() >= density;
+			if (index == 0)
+			{
+				sink.writeCell(CellType.ENTRANCE);
+			}
+			else if (index == cellCount - 1)
+			{
+				sink.writeCell(CellType.EXIT);
+			}
+			else
+			{
+				sink.writeCell(open ? CellType.OPEN : CellType.WALL);
+			}
+		}
+		sink.endMaze();
+	}
+	
+	private static void checkCellCount(int cellCount)
+	{
+		if (cellCount < 2)
+		{
+			throw new IllegalArgumentException("The maze must have room for an entrance and an exit.");
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package cdc.generator;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Generates perfect mazes with the recursive backtracker (randomized depth-first
+ * search) algorithm, which produces long, winding corridors with few branches.
+ * The recursion is replaced by an explicit stack of room numbers, so the size of
+ * the maze is not limited by the thread's stack size.
+ * @author Christopher D. Canfield
+ */
+public class RecursiveBacktrackerGenerator extends PerfectMazeGenerator
+{
+	@Override
+	void carve(Lattice lattice, Random random)
+	{
+		final int roomCount = lattice.getRoomCount();
+		final BitSet visited = new BitSet(roomCount);
+		final int[] stack = new int[roomCount];
+		final int[] neighbours = new int[4];
+		final int[] unvisited = new int[4];
+		
+		int top = 0;
+		stack[top++] = 0;
+		visited.set(0);
+		while (top > 0)
+		{
+			final int room = stack[top - 1];
+			
+			int count = 0;
+			final int neighbourCount = lattice.getNeighbours(room, neighbours);
+			for (int i = 0; i < neighbourCount; ++i)
+			{
+				if (!visited.get(neighbours[i]))
+				{
+					unvisited[count++] = neighbours[i];
+				}
+			}
+			
+			if (count == 0)
+			{
+				// Dead end: backtrack.
+				--top;
+			}
+			else
+			{
+				final int next = unvisited[random.nextInt(count)];
+				lattice.join(room, next);
+				visited.set(next);
+				stack[top++] = next;
+			}
+		}
+	}
+}
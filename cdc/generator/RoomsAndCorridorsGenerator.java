@@ -0,0 +1,167 @@
+package cdc.generator;
+
+import java.util.Random;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * Generates dungeon-style maps: rectangular rooms placed at random without
+ * overlapping, each joined to the previous room by an L-shaped corridor, so every
+ * room is reachable. The entrance is at the centre of the first room and the exit
+ * is at the centre of the last room.
+ * @author Christopher D. Canfield
+ */
+public class RoomsAndCorridorsGenerator extends MazeGenerator
+{
+	// The number of random placements to try per room before giving up on the room.
+	private static final int ATTEMPTS_PER_ROOM = 20;
+	
+	// The smallest and largest room sides, in cells.
+	private final int minRoomSize;
+	private final int maxRoomSize;
+	// The number of rooms per 10,000 cells that the generator tries to place.
+	private final double roomsPer10000Cells;
+	
+	/**
+	 * Instantiates a generator with rooms from 3 to 12 cells on a side, and about
+	 * 25 rooms per 10,000 cells.
+	 */
+	public RoomsAndCorridorsGenerator()
+	{
+		this(3, 12, 25.0);
+	}
+	
+	/**
+	 * Instantiates a rooms and corridors generator.
+	 * @param minRoomSize The smallest room side, in cells.
+	 * @param maxRoomSize The largest room side, in cells.
+	 * @param roomsPer10000Cells The number of rooms per 10,000 cells that the generator 
+	 * tries to place. Fewer rooms are placed if there is not enough space.
+	 */
+	public RoomsAndCorridorsGenerator(int minRoomSize, int maxRoomSize, double roomsPer10000Cells)
+	{
+		if (minRoomSize < 1 || maxRoomSize < minRoomSize)
+		{
+			throw new IllegalArgumentException("Invalid room sizes: " + minRoomSize + " to " + maxRoomSize);
+		}
+		if (!(roomsPer10000Cells > 0.0))
+		{
+			throw new IllegalArgumentException("roomsPer10000Cells must be positive: " + roomsPer10000Cells);
+		}
+		this.minRoomSize = minRoomSize;
+		this.maxRoomSize = maxRoomSize;
+		this.roomsPer10000Cells = roomsPer10000Cells;
+	}
+	
+	@Override
+	public MazeGrid generate(int rows, int columns, long seed)
+	{
+		// Rooms are surrounded by at least one wall cell.
+		if (rows < minRoomSize + 2 || columns < minRoomSize + 2)
+		{
+			throw new IllegalArgumentException("The maze is too small for a " + minRoomSize +
+					"x" + minRoomSize + " room: " + rows + "x" + columns);
+		}
+		
+		MazeGrid maze = new MazeGrid(rows, columns);
+		Random random = new Random(seed);
+		
+		final int targetRooms = Math.max(2, (int)((long)rows * columns * roomsPer10000Cells / 10000.0));
+		// The centre of each room that has been placed, as a cell index.
+		int[] centres = new int[targetRooms];
+		int roomCount = 0;
+		
+		for (int attempt = 0; attempt < targetRooms * ATTEMPTS_PER_ROOM && roomCount < targetRooms; ++attempt)
+		{
+			final int height = Math.min(rows - 2, minRoomSize + random.nextInt(maxRoomSize - minRoomSize + 1));
+			final int width = Math.min(columns - 2, minRoomSize + random.nextInt(maxRoomSize - minRoomSize + 1));
+			final int top = 1 + random.nextInt(rows - height - 1);
+			final int left = 1 + random.nextInt(columns - width - 1);
+			
+			if (isWall(maze, top - 1, left - 1, height + 2, width + 2))
+			{
+				for (int row = top; row < top + height; ++row)
+				{
+					for (int column = left; column < left + width; ++column)
+					{
+						maze.setOpen(maze.indexOf(row, column), true);
+					}
+				}
+				final int centre = maze.indexOf(top + height / 2, left + width / 2);
+				if (roomCount > 0)
+				{
+					carveCorridor(maze, centres[roomCount - 1], centre, random.nextBoolean());
+				}
+				centres[roomCount++] = centre;
+			}
+		}
+		
+		if (roomCount < 2)
+		{
+			throw new IllegalArgumentException("Unable to place two rooms in a " + rows + "x" + columns + " maze.");
+		}
+		maze.setEntrance(centres[0]);
+		maze.setExit(centres[roomCount - 1]);
+		return maze;
+	}
+	
+	/**
+	 * Whether every cell in a rectangle is a wall.
+	 */
+	private static boolean isWall(MazeGrid maze, int top, int left, int height, int width)
+	{
+		for (int row = top; row < top + height; ++row)
+		{
+			for (int column = left; column < left + width; ++column)
+			{
+				if (maze.isOpen(row, column))
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Opens an L-shaped corridor between two cells.
+	 * @param maze The maze.
+	 * @param from The first cell.
+	 * @param to The second cell.
+	 * @param horizontalFirst Whether the corridor leaves the first cell horizontally.
+	 */
+	private static void carveCorridor(MazeGrid maze, int from, int to, boolean horizontalFirst)
+	{
+		final int fromRow = maze.rowOf(from);
+		final int fromColumn = maze.columnOf(from);
+		final int toRow = maze.rowOf(to);
+		final int toColumn = maze.columnOf(to);
+		
+		if (horizontalFirst)
+		{
+			carveRow(maze, fromRow, fromColumn, toColumn);
+			carveColumn(maze, toColumn, fromRow, toRow);
+		}
+		else
+		{
+			carveColumn(maze, fromColumn, fromRow, toRow);
+			carveRow(maze, toRow, fromColumn, toColumn);
+		}
+	}
+	
+	private static void carveRow(MazeGrid maze, int row, int fromColumn, int toColumn)
+	{
+		for (int column = Math.min(fromColumn, toColumn); column <= Math.max(fromColumn, toColumn); ++column)
+		{
+			maze.setOpen(maze.indexOf(row, column), true);
+		}
+	}
+	
+	private static void carveColumn(MazeGrid maze, int column, int fromRow, int toRow)
+	{
+		for (int row = Math.min(fromRow, toRow); row <= Math.max(fromRow, toRow); ++row)
+		{
+			maze.setOpen(maze.indexOf(row, column), true);
+		}
+	}
+}
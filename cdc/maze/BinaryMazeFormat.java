@@ -0,0 +1,70 @@
+package cdc.maze;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The layout of the binary maze format. A binary maze file contains one or more
+ * maze records. Each record is a fixed-size header followed by the maze's cells,
+ * packed four cells per byte in row order, using the 2-bit CellType codes. The
+ * first cell of each byte is stored in its lowest two bits.
+ * <pre>
+ * int magic      "CMZB"
+ * int version    1
+ * int rows
+ * int columns
+ * int entrance   cell index, or -1
+ * int exit       cell index, or -1
+ * int checksum   CRC-32 of the packed cells
+ * byte[(rows * columns + 3) / 4] cells
+ * </pre>
+ * All values are big-endian.
+ * @author Christopher D. Canfield
+ */
+final class BinaryMazeFormat
+{
+	/** The suffix of binary maze files. **/
+	static final String FILE_SUFFIX = ".cmz";
+	
+	/** Identifies a binary maze record ("CMZB"). **/
+	static final int MAGIC = 0x434D5A42;
+	/** The version of the binary maze format. **/
+	static final int VERSION = 1;
+	/** The size of a record header in bytes. **/
+	static final int HEADER_SIZE = 28;
+	
+	private BinaryMazeFormat()
+	{
+	}
+	
+	/**
+	 * Returns the number of bytes used by the packed cells of a maze.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @return The size of the cell data in bytes.
+	 */
+	static long dataSize(int rows, int columns)
+	{
+		return ((long)rows * columns + 3) >>> 2;
+	}
+	
+	/**
+	 * Writes a record header.
+	 * @param buffer The buffer to write to.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @param entrance The index of the entrance cell, or -1.
+	 * @param exit The index of the exit cell, or -1.
+	 * @param checksum The CRC-32 of the packed cells.
+	 */
+	static void writeHeader(ByteBuffer buffer, int rows, int columns, int entrance, 
+			int exit, int checksum)
+	{
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(rows);
+		buffer.putInt(columns);
+		buffer.putInt(entrance);
+		buffer.putInt(exit);
+		buffer.putInt(checksum);
+	}
+}
@@ -0,0 +1,228 @@
+package cdc.maze;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Reads mazes in the binary maze format (see BinaryMazeFormat). When the file is
+ * opened, the record headers are read to find the position of each maze, so any
+ * maze can then be read directly. The packed cells are decoded four at a time
+ * into the grid's bit storage, and checked against the header's checksum.
+ * @author Christopher D. Canfield
+ */
+public class BinaryMazeReader implements Closeable
+{
+	// The size of the input buffer.
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// The open bits of the four cells packed into each possible byte value.
+	private static final long[] OPEN_BITS = new long[256];
+	static
+	{
+		for (int b = 0; b < 256; ++b)
+		{
+			for (int cell = 0; cell < 4; ++cell)
+			{
+				if (((b >>> (cell << 1)) & 3) != CellType.WALL.getCode())
+				{
+					OPEN_BITS[b] |= 1L << cell;
+				}
+			}
+		}
+	}
+
+	// The binary maze file.
+	private final FileChannel channel;
+
+	// The file position of each maze's header.
+	private long[] positions = new long[16];
+	// The number of mazes in the file.
+	private int mazeCount;
+
+	/**
+	 * Opens a binary maze file, and finds the mazes in it.
+	 * @param file The binary maze file.
+	 * @throws IOException If the file cannot be read, or is not a binary maze file.
+	 */
+	public BinaryMazeReader(File file) throws IOException
+	{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			final long size = channel.size();
+			long position = 0;
+			while (position < size)
+			{
+				Header header = readHeader(position);
+				if (mazeCount == positions.length)
+				{
+					positions = Arrays.copyOf(positions, mazeCount * 2);
+				}
+				positions[mazeCount++] = position;
+				position += BinaryMazeFormat.HEADER_SIZE +
+						BinaryMazeFormat.dataSize(header.rows, header.columns);
+			}
+			if (position != size)
+			{
+				throw new IOException("The last maze in " + file + " is incomplete.");
+			}
+		}
+		catch (IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads a maze from a binary maze file.
+	 * @param file The binary maze file.
+	 * @param mazeNumber The maze number in the file, starting with 1.
+	 * @return The instantiated maze grid.
+	 * @throws IOException If the maze does not exist or is corrupt, or there is a
+	 * problem reading the file.
+	 */
+	public static MazeGrid read(File file, int mazeNumber) throws IOException
+	{
+		try (BinaryMazeReader reader = new BinaryMazeReader(file))
+		{
+			return reader.readGrid(mazeNumber);
+		}
+	}
+
+	/**
+	 * Returns the number of mazes in the file.
+	 * @return The number of mazes.
+	 */
+	public int getMazeCount()
+	{
+		return mazeCount;
+	}
+
+	/**
+	 * Reads a maze.
+	 * @param mazeNumber The maze number in the file, starting with 1.
+	 * @return The instantiated maze grid.
+	 * @throws IOException If the maze does not exist or is corrupt, or there is a
+	 * problem reading the file.
+	 */
+	public MazeGrid readGrid(int mazeNumber) throws IOException
+	{
+		if (mazeNumber < 1 || mazeNumber > mazeCount)
+		{
+			throw new IOException("Maze " + mazeNumber + " was not found in the maze file.");
+		}
+
+		final long headerPosition = positions[mazeNumber - 1];
+		final Header header = readHeader(headerPosition);
+		final long dataSize = BinaryMazeFormat.dataSize(header.rows, header.columns);
+		final long[] open = new long[(int)(((long)header.rows * header.columns + 63) >>> 6)];
+		final CRC32 checksum = new CRC32();
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		final byte[] bytes = buffer.array();
+
+		long position = headerPosition + BinaryMazeFormat.HEADER_SIZE;
+		long byteIndex = 0;
+		while (byteIndex < dataSize)
+		{
+			buffer.clear();
+			buffer.limit((int)Math.min(BUFFER_SIZE, dataSize - byteIndex));
+			while (buffer.hasRemaining())
+			{
+				if (channel.read(buffer, position + buffer.position()) < 0)
+				{
+					throw new IOException("Maze " + mazeNumber + " is incomplete.");
+				}
+			}
+			final int length = buffer.limit();
+			checksum.update(bytes, 0, length);
+			position += length;
+
+			// Each byte holds four cells, so each word of the grid holds sixteen bytes.
+			for (int i = 0; i < length; ++i, ++byteIndex)
+			{
+				open[(int)(byteIndex >>> 4)] |= OPEN_BITS[bytes[i] & 0xFF] << ((byteIndex & 15) << 2);
+			}
+		}
+
+		if ((int)checksum.getValue() != header.checksum)
+		{
+			throw new IOException("Maze " + mazeNumber + " is corrupt: its checksum does not match.");
+		}
+		return new MazeGrid(header.rows, header.columns, open, header.entrance, header.exit);
+	}
+
+	/**
+	 * Closes the file.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/**
+	 * Reads and checks a record header.
+	 * @param position The file position of the header.
+	 * @return The header.
+	 * @throws IOException If the header is not valid.
+	 */
+	private Header readHeader(long position) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(BinaryMazeFormat.HEADER_SIZE);
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new IOException("The maze header at position " + position + " is incomplete.");
+			}
+		}
+		buffer.flip();
+
+		if (buffer.getInt() != BinaryMazeFormat.MAGIC)
+		{
+			throw new IOException("There is no binary maze at position " + position + ".");
+		}
+		final int version = buffer.getInt();
+		if (version != BinaryMazeFormat.VERSION)
+		{
+			throw new IOException("Unsupported binary maze version: " + version);
+		}
+
+		Header header = new Header();
+		header.rows = buffer.getInt();
+		header.columns = buffer.getInt();
+		header.entrance = buffer.getInt();
+		header.exit = buffer.getInt();
+		header.checksum = buffer.getInt();
+
+		final long cellCount = (long)header.rows * header.columns;
+		if (header.rows <= 0 || header.columns <= 0 || cellCount > Integer.MAX_VALUE ||
+				header.entrance < MazeGrid.NO_CELL || header.entrance >= cellCount ||
+				header.exit < MazeGrid.NO_CELL || header.exit >= cellCount ||
+				(header.entrance != MazeGrid.NO_CELL && header.entrance == header.exit))
+		{
+			throw new IOException("The maze header at position " + position + " is corrupt.");
+		}
+		return header;
+	}
+
+
+	/**
+	 * The values in a record header.
+	 */
+	private static class Header
+	{
+		int rows;
+		int columns;
+		int entrance;
+		int exit;
+		int checksum;
+	}
+}
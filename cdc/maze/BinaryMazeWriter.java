@@ -0,0 +1,214 @@
+package cdc.maze;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes mazes in the binary maze format (see BinaryMazeFormat). Cells are streamed
+ * to the file one at a time, so a maze can be written without holding all of it in
+ * memory. The header of each maze is completed when the maze is ended.
+ * @author Christopher D. Canfield
+ */
+public class BinaryMazeWriter implements MazeSink, Closeable
+{
+	// The size of the output buffer.
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// The binary maze file.
+	private final FileChannel channel;
+	// Buffers the packed cells before they are written to the file.
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	// The checksum of the current maze's packed cells.
+	private final CRC32 checksum = new CRC32();
+
+	// The file position of the current maze's header, or -1 if no maze has been begun.
+	private long headerPosition = -1;
+	// The dimensions of the current maze.
+	private int rows;
+	private int columns;
+	// The entrance and exit of the current maze.
+	private int entrance;
+	private int exit;
+	// The number of cells written to the current maze.
+	private long cellCount;
+	// The byte of packed cells that is being filled.
+	private int packed;
+
+	/**
+	 * Creates a binary maze file. If the file exists, it is replaced.
+	 * @param file The binary maze file.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public BinaryMazeWriter(File file) throws IOException
+	{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Writes a whole maze.
+	 * @param maze The maze to write.
+	 * @throws IOException If there is a problem writing the file.
+	 */
+	@Override
+	public void write(MazeGrid maze) throws IOException
+	{
+		beginMaze(maze.getRows(), maze.getColumns());
+		for (int index = 0; index < maze.getCellCount(); ++index)
+		{
+			writeCell(maze.getCellType(index));
+		}
+		endMaze();
+	}
+
+	/**
+	 * Begins a new maze. The maze's cells must then be written in row order with
+	 * writeCell, followed by a call to endMaze.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @throws IOException If there is a problem writing the file.
+	 */
+	@Override
+	public void beginMaze(int rows, int columns) throws IOException
+	{
+		if (headerPosition >= 0)
+		{
+			throw new IllegalStateException("The previous maze has not been ended.");
+		}
+		if (rows <= 0 || columns <= 0 || (long)rows * columns > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid maze dimensions: " + rows + "x" + columns);
+		}
+
+		flush();
+		this.headerPosition = channel.position();
+		this.rows = rows;
+		this.columns = columns;
+		this.entrance = MazeGrid.NO_CELL;
+		this.exit = MazeGrid.NO_CELL;
+		this.cellCount = 0;
+		this.packed = 0;
+		checksum.reset();
+
+		// Reserve space for the header, which is written when the maze is ended.
+		channel.position(headerPosition + BinaryMazeFormat.HEADER_SIZE);
+	}
+
+	/**
+	 * Writes the next cell of the current maze.
+	 * @param type The cell type.
+	 * @throws IOException If there is a problem writing the file.
+	 */
+	@Override
+	public void writeCell(CellType type) throws IOException
+	{
+		if (cellCount == (long)rows * columns)
+		{
+			throw new IllegalStateException("All of the maze's cells have been written.");
+		}
+		if (type == CellType.ENTRANCE)
+		{
+			entrance = (int)cellCount;
+		}
+		else if (type == CellType.EXIT)
+		{
+			exit = (int)cellCount;
+		}
+
+		final int shift = (int)(cellCount & 3) << 1;
+		packed |= type.getCode() << shift;
+		if (shift == 6)
+		{
+			putPacked();
+		}
+		++cellCount;
+	}
+
+	/**
+	 * Ends the current maze, and writes its header.
+	 * @throws IOException If there is a problem writing the file.
+	 */
+	@Override
+	public void endMaze() throws IOException
+	{
+		if (headerPosition < 0)
+		{
+			throw new IllegalStateException("No maze has been begun.");
+		}
+		if (cellCount != (long)rows * columns)
+		{
+			throw new IllegalStateException("Only " + cellCount + " of the maze's " +
+					((long)rows * columns) + " cells have been written.");
+		}
+		if ((cellCount & 3) != 0)
+		{
+			putPacked();
+		}
+		flush();
+
+		ByteBuffer header = ByteBuffer.allocate(BinaryMazeFormat.HEADER_SIZE);
+		BinaryMazeFormat.writeHeader(header, rows, columns, entrance, exit, (int)checksum.getValue());
+		header.flip();
+		long position = headerPosition;
+		while (header.hasRemaining())
+		{
+			position += channel.write(header, position);
+		}
+		headerPosition = -1;
+	}
+
+	/**
+	 * Closes the file.
+	 * @throws IOException If a maze has been begun but not ended, or there is a
+	 * problem closing the file.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			if (headerPosition >= 0)
+			{
+				throw new IOException("The last maze was not ended, so the file is incomplete.");
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Adds the current byte of packed cells to the buffer.
+	 * @throws IOException If there is a problem writing the file.
+	 */
+	private void putPacked() throws IOException
+	{
+		if (!buffer.hasRemaining())
+		{
+			flush();
+		}
+		buffer.put((byte)packed);
+		packed = 0;
+	}
+
+	/**
+	 * Writes the buffered bytes to the file, and adds them to the checksum.
+	 * @throws IOException If there is a problem writing the file.
+	 */
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		checksum.update(buffer.array(), 0, buffer.limit());
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,71 @@
+package cdc.maze;
+
+/**
+ * The types of square in a maze, with the character that represents each type in
+ * the maze text file and the 2-bit code that represents it in the binary maze format.
+ * @author Christopher D. Canfield
+ */
+public enum CellType
+{
+	WALL('W'), OPEN('O'), ENTRANCE('E'), EXIT('X');
+	
+	// The cell types, indexed by code.
+	private static final CellType[] types = values();
+	
+	// The character that represents the cell type in a maze text file.
+	private final char symbol;
+	
+	private CellType(char symbol)
+	{
+		this.symbol = symbol;
+	}
+	
+	/**
+	 * Returns the character that represents the cell type in a maze text file.
+	 * @return The cell type's character.
+	 */
+	public char getSymbol()
+	{
+		return symbol;
+	}
+	
+	/**
+	 * Returns the 2-bit code that represents the cell type in the binary maze format.
+	 * @return The cell type's code, from 0 to 3.
+	 */
+	public int getCode()
+	{
+		return ordinal();
+	}
+	
+	/**
+	 * Returns the cell type that is represented by a 2-bit code.
+	 * @param code The code, from 0 to 3.
+	 * @return The cell type.
+	 */
+	public static CellType fromCode(int code)
+	{
+		return types[code & 3];
+	}
+	
+	/**
+	 * Returns the cell type that is represented by a character in a maze text file.
+	 * Characters other than W, E and X are open squares.
+	 * @param symbol The character.
+	 * @return The cell type.
+	 */
+	public static CellType fromSymbol(int symbol)
+	{
+		switch (symbol)
+		{
+		case 'W':
+			return WALL;
+		case 'E':
+			return ENTRANCE;
+		case 'X':
+			return EXIT;
+		default:
+			return OPEN;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package cdc.maze;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A thin Node view onto a cell of a MazeGrid. The view does not copy the cell's
+ * state; it is read from the grid, and the edges are computed from the cell index
+ * the first time they are requested.
+ * @author Christopher D. Canfield
+ */
+class GridNode extends Node
+{
+	// The grid that contains the cell.
+	private final MazeGrid grid;
+	// The cell's index in the grid.
+	private final int index;
+
+	// The node's edges, created when first requested.
+	private List<Node> edges;
+
+	/**
+	 * Instantiates a view onto a grid cell.
+	 * @param grid The grid that contains the cell.
+	 * @param index The cell's index in the grid.
+	 */
+	GridNode(MazeGrid grid, int index)
+	{
+		super(new MazeLocation(grid.rowOf(index), grid.columnOf(index)), false,
+				false, false, Collections.<Node>emptyList());
+		this.grid = grid;
+		this.index = index;
+	}
+
+	/**
+	 * Returns the grid that contains this node's cell.
+	 * @return The grid.
+	 */
+	MazeGrid getGrid()
+	{
+		return grid;
+	}
+
+	/**
+	 * Returns the index of this node's cell in the grid.
+	 * @return The cell index.
+	 */
+	int getIndex()
+	{
+		return index;
+	}
+
+	@Override
+	public boolean isOpen()
+	{
+		return grid.isOpen(index);
+	}
+
+	@Override
+	public boolean isEntrance()
+	{
+		return grid.isEntrance(index);
+	}
+
+	@Override
+	public boolean isExit()
+	{
+		return grid.isExit(index);
+	}
+
+	/**
+	 * Opens or closes the grid cell.
+	 */
+	@Override
+	public void setOpen(boolean isOpen)
+	{
+		grid.setOpen(index, isOpen);
+	}
+
+	/**
+	 * Moves the grid's entrance to this cell, or removes it from this cell.
+	 */
+	@Override
+	public void setEntrance(boolean isEntrance)
+	{
+		if (isEntrance)
+		{
+			grid.setEntrance(index);
+		}
+		else if (grid.isEntrance(index))
+		{
+			grid.clearEntrance();
+		}
+	}
+
+	/**
+	 * Moves the grid's exit to this cell, or removes it from this cell.
+	 */
+	@Override
+	public void setExit(boolean isExit)
+	{
+		if (isExit)
+		{
+			grid.setExit(index);
+		}
+		else if (grid.isExit(index))
+		{
+			grid.clearExit();
+		}
+	}
+
+	/**
+	 * Returns the neighbouring nodes, including walls, in the order up, down,
+	 * left, right.
+	 */
+	@Override
+	public List<Node> getEdges()
+	{
+		if (edges == null)
+		{
+			final int columns = grid.getColumns();
+			final int column = index % columns;
+			List<Node> neighbours = new ArrayList<Node>(4);
+			if (index >= columns)
+			{
+				neighbours.add(grid.getNode(index - columns));
+			}
+			if (index < grid.getCellCount() - columns)
+			{
+				neighbours.add(grid.getNode(index + columns));
+			}
+			if (column > 0)
+			{
+				neighbours.add(grid.getNode(index - 1));
+			}
+			if (column < columns - 1)
+			{
+				neighbours.add(grid.getNode(index + 1));
+			}
+			edges = neighbours;
+		}
+		return edges;
+	}
+
+	/**
+	 * Not supported: the edges of a grid node are defined by the grid.
+	 * @throws UnsupportedOperationException Always.
+	 */
+	@Override
+	public Node addEdge(Node edge)
+	{
+		throw new UnsupportedOperationException("The edges of a grid node are defined by its grid.");
+	}
+
+	/**
+	 * Not supported: the edges of a grid node are defined by the grid. Close the
+	 * cell with setOpen instead.
+	 * @throws UnsupportedOperationException Always.
+	 */
+	@Override
+	public boolean removeEdge(Node edge)
+	{
+		throw new UnsupportedOperationException("The edges of a grid node are defined by its grid.");
+	}
+}
@@ -0,0 +1,316 @@
+package cdc.maze;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads very large mazes from a maze file. The maze's rows are memory-mapped and
+ * split across several threads, and the W/O/E/X bytes are decoded straight into
+ * the grid's bit storage, without creating a String per line. The entrance and
+ * exit are found while decoding.
+ * <p>
+ * Every row of the maze must have the same length, including its line terminator
+ * ("\n" or "\r\n"), so that the position of each row can be calculated. Rows with
+ * trailing whitespace should be loaded with MazeCatalog.loadGrid instead.
+ * @author Christopher D. Canfield
+ */
+public class MappedMazeLoader
+{
+	// The minimum number of cells decoded by each task. Must be a multiple of 64,
+	// so that no two tasks write to the same word of the grid's storage.
+	private static final int MIN_CELLS_PER_TASK = 1 << 16;
+	// The maximum number of cells decoded by each task. Keeps each task's mapped
+	// region well under the 2GB limit of a MappedByteBuffer.
+	private static final int MAX_CELLS_PER_TASK = 1 << 26;
+	// The number of tasks to create per thread, so that uneven tasks are balanced.
+	private static final int TASKS_PER_THREAD = 4;
+
+	/**
+	 * Loads a maze from the specified maze file, using one thread per processor.
+	 * @param fileName The path to the maze file.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @return The instantiated maze grid.
+	 * @throws IOException If the maze does not exist or is malformed, or there is a
+	 * problem reading the maze file.
+	 */
+	public static MazeGrid load(String fileName, int mazeNumber) throws IOException
+	{
+		return load(fileName, mazeNumber, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Loads a maze from the specified maze file.
+	 * @param fileName The path to the maze file.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @param threads The number of threads to decode the maze with.
+	 * @return The instantiated maze grid.
+	 * @throws IOException If the maze does not exist or is malformed, or there is a
+	 * problem reading the maze file.
+	 */
+	public static MazeGrid load(String fileName, int mazeNumber, int threads) throws IOException
+	{
+		MazeCatalog catalog = MazeCatalog.forFile(fileName);
+		if (mazeNumber < 1 || mazeNumber > catalog.getMazeCount())
+		{
+			throw new IOException("Maze " + mazeNumber + " was not found in the maze file.");
+		}
+		if (catalog.getRows(mazeNumber) < 0)
+		{
+			throw new IOException("Maze " + mazeNumber + " is malformed.");
+		}
+		return load(catalog.getFile(), catalog.getOffset(mazeNumber),
+				catalog.getRows(mazeNumber), catalog.getColumns(mazeNumber), threads);
+	}
+
+	/**
+	 * Loads the maze that starts at the specified position in a maze file.
+	 * @param file The maze file.
+	 * @param offset The byte offset of the maze's first row.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @param threads The number of threads to decode the maze with.
+	 * @return The instantiated maze grid.
+	 * @throws IOException If the rows are not all the same length, or there is a
+	 * problem reading the maze file.
+	 */
+	public static MazeGrid load(File file, long offset, int rows, int columns, int threads)
+			throws IOException
+	{
+		if (rows <= 0 || columns <= 0 || (long)rows * columns > Integer.MAX_VALUE)
+		{
+			throw new IOException("Invalid maze dimensions: " + rows + "x" + columns);
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			final int cellCount = rows * columns;
+			final int stride = rowStride(channel, offset, rows, columns);
+			final long[] open = new long[(cellCount + 63) >>> 6];
+
+			// Split the cells into tasks that start on a word boundary.
+			long cellsPerTask = (long)cellCount / (Math.max(threads, 1) * TASKS_PER_THREAD);
+			cellsPerTask = Math.max(MIN_CELLS_PER_TASK, Math.min(MAX_CELLS_PER_TASK, cellsPerTask));
+			cellsPerTask = (cellsPerTask + 63) & ~63L;
+
+			List<DecodeTask> tasks = new ArrayList<DecodeTask>();
+			for (long from = 0; from < cellCount; from += cellsPerTask)
+			{
+				int to = (int)Math.min(cellCount, from + cellsPerTask);
+				tasks.add(new DecodeTask(channel, offset, stride, columns, (int)from, to, open));
+			}
+
+			int entrance = MazeGrid.NO_CELL;
+			int exit = MazeGrid.NO_CELL;
+			for (int[] found : decode(tasks, threads))
+			{
+				// Like the text loader, the last entrance or exit in the file wins.
+				entrance = Math.max(entrance, found[0]);
+				exit = Math.max(exit, found[1]);
+			}
+			if (entrance != MazeGrid.NO_CELL && entrance == exit)
+			{
+				throw new IOException("A cell cannot be both an entrance and an exit");
+			}
+			return new MazeGrid(rows, columns, open, entrance, exit);
+		}
+	}
+
+	/**
+	 * Runs the decode tasks, on the calling thread if there is only one.
+	 * @param tasks The decode tasks.
+	 * @param threads The maximum number of threads.
+	 * @return The entrance and exit found by each task.
+	 * @throws IOException If a task failed.
+	 */
+	private static List<int[]> decode(List<DecodeTask> tasks, int threads) throws IOException
+	{
+		List<int[]> results = new ArrayList<int[]>(tasks.size());
+		if (tasks.size() == 1 || threads <= 1)
+		{
+			for (DecodeTask task : tasks)
+			{
+				results.add(task.call());
+			}
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+		try
+		{
+			for (Future<int[]> future : executor.invokeAll(tasks))
+			{
+				results.add(future.get());
+			}
+			return results;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading the maze.", e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException)e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Determines the number of bytes per row, including the line terminator.
+	 * @param channel The maze file.
+	 * @param offset The byte offset of the maze's first row.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @return The length of each row in bytes.
+	 * @throws IOException If the first row is not followed by a line terminator.
+	 */
+	private static int rowStride(FileChannel channel, long offset, int rows, int columns)
+			throws IOException
+	{
+		ByteBuffer terminator = ByteBuffer.allocate(2);
+		channel.read(terminator, offset + columns);
+		terminator.flip();
+
+		if (terminator.remaining() == 0 && rows == 1)
+		{
+			// A single row at the end of the file, without a line terminator.
+			return columns + 1;
+		}
+		if (terminator.remaining() >= 1 && terminator.get(0) == '\n')
+		{
+			return columns + 1;
+		}
+		if (terminator.remaining() == 2 && terminator.get(0) == '\r' && terminator.get(1) == '\n')
+		{
+			return columns + 2;
+		}
+		throw new IOException("The maze rows are not followed by a line terminator; " +
+				"use MazeCatalog.loadGrid for mazes with trailing whitespace.");
+	}
+
+
+	/**
+	 * Decodes a range of cells into the grid's bit storage.
+	 */
+	private static class DecodeTask implements Callable<int[]>
+	{
+		private final FileChannel channel;
+		private final long offset;
+		private final int stride;
+		private final int columns;
+		// The first cell, and one past the last cell, to decode.
+		private final int from;
+		private final int to;
+		private final long[] open;
+
+		DecodeTask(FileChannel channel, long offset, int stride, int columns,
+				int from, int to, long[] open)
+		{
+			this.channel = channel;
+			this.offset = offset;
+			this.stride = stride;
+			this.columns = columns;
+			this.from = from;
+			this.to = to;
+			this.open = open;
+		}
+
+		/**
+		 * Decodes the cells.
+		 * @return The last entrance and exit found in the range, or NO_CELL.
+		 */
+		@Override
+		public int[] call() throws IOException
+		{
+			final int firstRow = from / columns;
+			final int lastRow = (to - 1) / columns;
+			final long regionStart = offset + (long)firstRow * stride;
+			final long regionEnd = Math.min(channel.size(), offset + (long)(lastRow + 1) * stride);
+			if (regionEnd < offset + (long)lastRow * stride + columns)
+			{
+				throw new IOException("The maze file ends in the middle of row " + (lastRow + 1) + ".");
+			}
+			final MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+					regionStart, regionEnd - regionStart);
+			final int limit = bytes.limit();
+
+			int entrance = MazeGrid.NO_CELL;
+			int exit = MazeGrid.NO_CELL;
+			int column = from % columns;
+			int rowStart = 0;
+			long word = 0;
+
+			for (int cell = from; cell < to; ++cell)
+			{
+				final byte b = bytes.get(rowStart + column);
+				if (b != 'W')
+				{
+					word |= (1L << cell);
+					if (b == 'E')
+					{
+						entrance = cell;
+					}
+					else if (b == 'X')
+					{
+						exit = cell;
+					}
+				}
+
+				if ((cell & 63) == 63 || cell == to - 1)
+				{
+					open[cell >>> 6] = word;
+					word = 0;
+				}
+
+				if (++column == columns)
+				{
+					// Check that the row ends where the row stride says it should.
+					final int end = rowStart + columns;
+					if (end < limit && !isTerminator(bytes, end, limit))
+					{
+						throw new IOException("Row " + (cell / columns + 1) + " of the maze is not " +
+								columns + " cells wide.");
+					}
+					column = 0;
+					rowStart += stride;
+				}
+			}
+			return new int[] { entrance, exit };
+		}
+
+		/**
+		 * Whether the line terminator of a row starts at the specified position.
+		 * @param bytes The mapped region.
+		 * @param position The position just after the row's last cell.
+		 * @param limit The end of the mapped region.
+		 * @return true if the row's line terminator is at the position.
+		 */
+		private boolean isTerminator(MappedByteBuffer bytes, int position, int limit)
+		{
+			if (stride - columns == 1)
+			{
+				return bytes.get(position) == '\n';
+			}
+			return bytes.get(position) == '\r' &&
+					(position + 1 == limit || bytes.get(position + 1) == '\n');
+		}
+	}
+}
@@ -0,0 +1,463 @@
+package cdc.maze;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An index of the mazes in a maze file. The file is scanned once, and the byte
+ * offset of the first row and the dimensions of each maze are recorded, so that
+ * any maze can then be loaded with a single seek and read.
+ * <p>
+ * The index is saved next to the maze file, in a sidecar file with the ".idx"
+ * suffix, and is reused for as long as the maze file's length and modification
+ * time are unchanged.
+ * @author Christopher D. Canfield
+ */
+public class MazeCatalog
+{
+	/** The suffix that is added to the maze file name to name the index file. **/
+	public static final String INDEX_SUFFIX = ".idx";
+
+	// Identifies an index file ("CMCX").
+	private static final int INDEX_MAGIC = 0x434D4358;
+	// The version of the index file format.
+	private static final int INDEX_VERSION = 1;
+
+	// The number of rows recorded for a maze definition that is malformed.
+	private static final int MALFORMED = -1;
+	// The longest line that is checked for a dimension header.
+	private static final int MAX_HEADER_LENGTH = 32;
+
+	// The catalogs that have been opened, by canonical file path.
+	private static final Map<String, MazeCatalog> catalogs = new HashMap<String, MazeCatalog>();
+
+	// The maze file.
+	private final File file;
+	// The length and modification time of the maze file when it was indexed.
+	private final long fileLength;
+	private final long fileLastModified;
+
+	// The byte offset of the first row, and the dimensions, of each maze.
+	private final long[] offsets;
+	private final int[] rows;
+	private final int[] columns;
+
+	private MazeCatalog(File file, long fileLength, long fileLastModified,
+			long[] offsets, int[] rows, int[] columns)
+	{
+		this.file = file;
+		this.fileLength = fileLength;
+		this.fileLastModified = fileLastModified;
+		this.offsets = offsets;
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * Returns the catalog for a maze file. The catalog is read from the sidecar index
+	 * file if it is up to date; otherwise the maze file is scanned and the index file
+	 * is rewritten. Catalogs are cached, so later calls for the same, unchanged file
+	 * do not read the index again.
+	 * @param fileName The path to the maze file.
+	 * @return The maze catalog.
+	 * @throws IOException If the maze file cannot be read.
+	 */
+	public static synchronized MazeCatalog forFile(String fileName) throws IOException
+	{
+		File file = new File(fileName).getCanonicalFile();
+		MazeCatalog catalog = catalogs.get(file.getPath());
+		if (catalog != null && catalog.isCurrent())
+		{
+			return catalog;
+		}
+
+		File indexFile = new File(file.getPath() + INDEX_SUFFIX);
+		catalog = readIndex(file, indexFile);
+		if (catalog == null)
+		{
+			catalog = scan(file);
+			try
+			{
+				catalog.writeIndex(indexFile);
+			}
+			catch (IOException e)
+			{
+				// The index is an optimization, so carry on without it if it
+				// can't be written (for example, if the directory is read-only).
+				indexFile.delete();
+			}
+		}
+		catalogs.put(file.getPath(), catalog);
+		return catalog;
+	}
+
+	/**
+	 * Scans a maze file and records the location and dimensions of each maze. The
+	 * file is read once, byte by byte, without creating a String per line. See
+	 * MazeCreator.loadMaze for the format of the file.
+	 * @param file The maze file.
+	 * @return The maze catalog.
+	 * @throws IOException If the maze file cannot be read.
+	 */
+	public static MazeCatalog scan(File file) throws IOException
+	{
+		final long length = file.length();
+		final long lastModified = file.lastModified();
+		Scanner scanner = new Scanner();
+
+		try (InputStream in = new FileInputStream(file))
+		{
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+			{
+				scanner.scan(buffer, read);
+			}
+		}
+		scanner.finish();
+
+		return new MazeCatalog(file, length, lastModified,
+				Arrays.copyOf(scanner.offsets, scanner.count),
+				Arrays.copyOf(scanner.rows, scanner.count),
+				Arrays.copyOf(scanner.columns, scanner.count));
+	}
+
+	/**
+	 * Whether the maze file is unchanged since it was indexed.
+	 * @return true if the catalog is up to date.
+	 */
+	public boolean isCurrent()
+	{
+		return file.length() == fileLength && file.lastModified() == fileLastModified;
+	}
+
+	/**
+	 * Returns the maze file.
+	 * @return The maze file.
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Returns the number of mazes in the file.
+	 * @return The number of maze definitions.
+	 */
+	public int getMazeCount()
+	{
+		return offsets.length;
+	}
+
+	/**
+	 * Returns the number of rows in a maze.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @return The number of rows, or -1 if the maze definition is malformed.
+	 */
+	public int getRows(int mazeNumber)
+	{
+		return rows[checkMazeNumber(mazeNumber)];
+	}
+
+	/**
+	 * Returns the number of columns in a maze.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @return The number of columns.
+	 */
+	public int getColumns(int mazeNumber)
+	{
+		return columns[checkMazeNumber(mazeNumber)];
+	}
+
+	/**
+	 * Returns the byte offset of the first row of a maze.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @return The byte offset in the maze file.
+	 */
+	public long getOffset(int mazeNumber)
+	{
+		return offsets[checkMazeNumber(mazeNumber)];
+	}
+
+	/**
+	 * Loads a maze, by seeking directly to its first row.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @return The instantiated maze grid.
+	 * @throws IOException If the maze does not exist or is malformed, the maze file
+	 * has changed since it was indexed, or there is a problem reading the file.
+	 */
+	public MazeGrid loadGrid(int mazeNumber) throws IOException
+	{
+		if (mazeNumber < 1 || mazeNumber > offsets.length)
+		{
+			throw new IOException("Maze " + mazeNumber + " was not found in the maze file.");
+		}
+		final int i = mazeNumber - 1;
+		if (rows[i] == MALFORMED)
+		{
+			throw new IOException("Maze " + mazeNumber + " is malformed: its rows are not all " +
+					"the same width, or do not match its dimension header.");
+		}
+		if (!isCurrent())
+		{
+			throw new IOException("The maze file " + file + " has changed since it was indexed.");
+		}
+
+		try (RandomAccessFile in = new RandomAccessFile(file, "r"))
+		{
+			in.seek(offsets[i]);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					Channels.newInputStream(in.getChannel()), StandardCharsets.ISO_8859_1));
+			return MazeCreator.readRows(reader, rows[i], columns[i], mazeNumber);
+		}
+	}
+
+	/**
+	 * Returns the array index of a maze.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @return The array index.
+	 * @throws IndexOutOfBoundsException If the maze does not exist.
+	 */
+	private int checkMazeNumber(int mazeNumber)
+	{
+		if (mazeNumber < 1 || mazeNumber > offsets.length)
+		{
+			throw new IndexOutOfBoundsException("Maze number: " + mazeNumber +
+					", maze count: " + offsets.length);
+		}
+		return mazeNumber - 1;
+	}
+
+	/**
+	 * Reads the index file, if it exists and is up to date.
+	 * @param file The maze file.
+	 * @param indexFile The index file.
+	 * @return The catalog, or null if the index is missing, stale or unreadable.
+	 */
+	private static MazeCatalog readIndex(File file, File indexFile)
+	{
+		if (!indexFile.isFile())
+		{
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(indexFile))))
+		{
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+			{
+				return null;
+			}
+			final long length = in.readLong();
+			final long lastModified = in.readLong();
+			if (length != file.length() || lastModified != file.lastModified())
+			{
+				return null;
+			}
+
+			final int count = in.readInt();
+			long[] offsets = new long[count];
+			int[] rows = new int[count];
+			int[] columns = new int[count];
+			for (int i = 0; i < count; ++i)
+			{
+				offsets[i] = in.readLong();
+				rows[i] = in.readInt();
+				columns[i] = in.readInt();
+			}
+			return new MazeCatalog(file, length, lastModified, offsets, rows, columns);
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the catalog to an index file.
+	 * @param indexFile The index file.
+	 * @throws IOException If the index file cannot be written.
+	 */
+	private void writeIndex(File indexFile) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(indexFile))))
+		{
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			out.writeLong(fileLength);
+			out.writeLong(fileLastModified);
+			out.writeInt(offsets.length);
+			for (int i = 0; i < offsets.length; ++i)
+			{
+				out.writeLong(offsets[i]);
+				out.writeInt(rows[i]);
+				out.writeInt(columns[i]);
+			}
+		}
+	}
+
+
+	/**
+	 * Finds the maze definitions in a maze file, one buffer at a time. The first
+	 * line in the file is ignored, and maze definitions are separated by blank lines.
+	 */
+	private static class Scanner
+	{
+		// The maze entries that have been found.
+		long[] offsets = new long[16];
+		int[] rows = new int[16];
+		int[] columns = new int[16];
+		int count;
+
+		// The byte offset of the next byte to be scanned.
+		private long position;
+		// The byte offset of the start of the current line.
+		private long lineStart;
+		// The length of the current line so far, and its length without trailing whitespace.
+		private int lineLength;
+		private int lineWidth;
+		// The start of the current line, used to check for a dimension header.
+		private final byte[] lineHead = new byte[MAX_HEADER_LENGTH];
+		// The number of lines that have been completed.
+		private long lineCount;
+
+		// The current maze definition, if a definition is being scanned.
+		private boolean inMaze;
+		private long mazeOffset;
+		private int mazeColumns;
+		private int mazeRows;
+		private int headerRows;
+		private boolean malformed;
+
+		void scan(byte[] buffer, int length)
+		{
+			for (int i = 0; i < length; ++i)
+			{
+				final byte b = buffer[i];
+				++position;
+				if (b == '\n')
+				{
+					endLine();
+				}
+				else
+				{
+					if (lineLength < MAX_HEADER_LENGTH)
+					{
+						lineHead[lineLength] = b;
+					}
+					++lineLength;
+					if (b > ' ')
+					{
+						lineWidth = lineLength;
+					}
+				}
+			}
+		}
+
+		void finish()
+		{
+			if (lineLength > 0)
+			{
+				endLine();
+			}
+			endMaze();
+		}
+
+		private void endLine()
+		{
+			if (lineCount++ > 0)
+			{
+				if (lineWidth == 0)
+				{
+					endMaze();
+				}
+				else if (!inMaze)
+				{
+					beginMaze();
+				}
+				else
+				{
+					malformed |= (lineWidth != mazeColumns);
+					++mazeRows;
+				}
+			}
+
+			lineStart = position;
+			lineLength = 0;
+			lineWidth = 0;
+		}
+
+		private void beginMaze()
+		{
+			inMaze = true;
+			malformed = false;
+			int[] dimensions = null;
+			if (lineWidth <= MAX_HEADER_LENGTH && lineHead[0] >= '0' && lineHead[0] <= '9')
+			{
+				dimensions = MazeCreator.parseDimensions(
+						new String(lineHead, 0, lineWidth, StandardCharsets.ISO_8859_1));
+			}
+
+			if (dimensions != null)
+			{
+				// The maze starts on the line after the header.
+				headerRows = dimensions[0];
+				mazeColumns = dimensions[1];
+				mazeRows = 0;
+				mazeOffset = position;
+			}
+			else
+			{
+				headerRows = -1;
+				mazeColumns = lineWidth;
+				mazeRows = 1;
+				mazeOffset = lineStart;
+			}
+		}
+
+		private void endMaze()
+		{
+			if (!inMaze)
+			{
+				return;
+			}
+			inMaze = false;
+
+			if (headerRows >= 0 && headerRows != mazeRows)
+			{
+				malformed = true;
+			}
+			if (mazeRows == 0 || (long)mazeRows * mazeColumns > Integer.MAX_VALUE)
+			{
+				malformed = true;
+			}
+
+			if (count == offsets.length)
+			{
+				offsets = Arrays.copyOf(offsets, count * 2);
+				rows = Arrays.copyOf(rows, count * 2);
+				columns = Arrays.copyOf(columns, count * 2);
+			}
+			offsets[count] = mazeOffset;
+			rows[count] = malformed ? MALFORMED : mazeRows;
+			columns[count] = mazeColumns;
+			++count;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package cdc.maze;
+
+import java.util.Arrays;
+import java.util.EventObject;
+
+/**
+ * Describes a batch of changes to a MazeGrid: the cells that were opened or closed,
+ * and the cells that became or stopped being the entrance or exit.
+ * @author Christopher D. Canfield
+ */
+public class MazeChangeEvent extends EventObject
+{
+	private static final long serialVersionUID = 3296385240157946151L;
+	
+	// The changed cells.
+	private final int[] cells;
+	// The maze's version after the changes.
+	private final long version;
+	
+	/**
+	 * Instantiates a maze change event.
+	 * @param maze The maze that changed.
+	 * @param cells The changed cells. The array is not copied.
+	 * @param version The maze's version after the changes.
+	 */
+	MazeChangeEvent(MazeGrid maze, int[] cells, long version)
+	{
+		super(maze);
+		this.cells = cells;
+		this.version = version;
+	}
+	
+	/**
+	 * Returns the maze that changed.
+	 * @return The maze grid.
+	 */
+	public MazeGrid getMaze()
+	{
+		return (MazeGrid)getSource();
+	}
+	
+	/**
+	 * Returns the number of changed cells.
+	 * @return The number of changed cells.
+	 */
+	public int getCellCount()
+	{
+		return cells.length;
+	}
+	
+	/**
+	 * Returns a changed cell. A cell that changed more than once in the batch may
+	 * be listed more than once.
+	 * @param i The position in the list of changed cells, starting with 0.
+	 * @return The cell index.
+	 */
+	public int getCell(int i)
+	{
+		return cells[i];
+	}
+	
+	/**
+	 * Returns the changed cells.
+	 * @return A copy of the changed cell indices.
+	 */
+	public int[] getCells()
+	{
+		return Arrays.copyOf(cells, cells.length);
+	}
+	
+	/**
+	 * Returns the maze's version after the changes.
+	 * @return The maze version.
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+}
@@ -0,0 +1,16 @@
+package cdc.maze;
+
+import java.util.EventListener;
+
+/**
+ * Receives notifications when the cells of a MazeGrid change.
+ * @author Christopher D. Canfield
+ */
+public interface MazeChangeListener extends EventListener
+{
+	/**
+	 * Called after a change, or a batch of changes, to a maze.
+	 * @param event Describes the changed cells.
+	 */
+	public void mazeChanged(MazeChangeEvent event);
+}
@@ -1,7 +1,6 @@
 package cdc.maze;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 
 /**
@@ -12,28 +11,59 @@ public class MazeCreator
 {
 	private enum SearchFor { ENTRANCE, EXIT };
 	
-	/** The number of rows in the maze. **/
+	/** The number of rows in the test mazes. **/
 	public static final int MAZE_ROWS = 10;
-	/** The number of columns in the maze. **/
+	/** The number of columns in the test mazes. **/
 	public static final int MAZE_COLUMNS = 10;
 	
+	/** The name of the default maze file. **/
+	public static final String MAZE_FILE = "mazes.txt";
+	
 	/**
 	 * Load the maze file. The file should be named "mazes.txt", and be located
-	 * in this application's current directory. Each maze should be 10x10 characters,
-	 * and contain the following characters per row: W (wall), O (open), E (entrance),
-	 * X (exit). Mazes should have exactly one entrance and one exit. Each maze 
-	 * definition in the file should be separated by a line. The first line in the
+	 * in this application's current directory. Each maze can be any size, and 
+	 * contains the following characters per row: W (wall), O (open), E (entrance),
+	 * X (exit). Every row in a maze must have the same number of characters. 
+	 * Mazes should have exactly one entrance and one exit. Each maze definition 
+	 * in the file should be separated by a blank line. The first line in the
 	 * file is ignored.
+	 * <p>
+	 * A maze definition may optionally start with a header line that contains the
+	 * number of rows and columns, such as "1000 2000" or "1000x2000". If there is no
+	 * header, the number of columns is taken from the first row, and the number of
+	 * rows is the number of lines before the next blank line.
 	 * @param mazeNumber The maze number in the maze file, starting with 1.
-	 * @return The instantiated maze.
+	 * @return The instantiated maze, as an array of Node views onto a MazeGrid.
 	 */
 	public static Node[][] loadMaze(int mazeNumber)
 	{
-		try (FileReader reader = new FileReader("mazes.txt"))
+		return loadGrid(mazeNumber).toNodes();
+	}
+	
+	/**
+	 * Load the maze file into a compact MazeGrid. See loadMaze for the
+	 * format of the file.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @return The instantiated maze grid.
+	 */
+	public static MazeGrid loadGrid(int mazeNumber)
+	{
+		return loadGrid(MAZE_FILE, mazeNumber);
+	}
+	
+	/**
+	 * Load a maze from the specified maze file into a compact MazeGrid. See 
+	 * loadMaze for the format of the file. The file is indexed by a MazeCatalog
+	 * the first time it is used, so that each maze can be read directly.
+	 * @param fileName The path to the maze file.
+	 * @param mazeNumber The maze number in the maze file, starting with 1.
+	 * @return The instantiated maze grid.
+	 */
+	public static MazeGrid loadGrid(String fileName, int mazeNumber)
+	{
+		try
 		{
-			Node[][] maze = readMaze(reader, mazeNumber);
-			processEdges(maze);
-			return maze;
+			return MazeCatalog.forFile(fileName).loadGrid(mazeNumber);
 		}
 		catch (IOException e)
 		{
@@ -43,95 +73,86 @@ public class MazeCreator
 	}
 	
 	/**
-	 * Reads the maze from the FileReader object, processes the characters,
-	 * and loads Nodes based on the characters into the maze array.
-	 * @param fileReader A FileReader object that points to the mazes.txt file.
+	 * Reads the rows of a maze definition from the reader, processes the characters,
+	 * and sets the cells of the maze grid based on the characters.
+	 * @param reader A BufferedReader that points to the first row of the maze.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
 	 * @param mazeNumber The number of the maze definition in the file, starting
-	 * with 1.
-	 * @return The instantiated maze array.
-	 * @throws IOException If there is a problem processing the maze array.
+	 * with 1. Used in error messages.
+	 * @return The instantiated maze grid.
+	 * @throws IOException If there is a problem processing the maze definition.
 	 */
-	private static Node[][] readMaze(FileReader fileReader, int mazeNumber) throws IOException
+	static MazeGrid readRows(BufferedReader reader, int rows, int columns, int mazeNumber) throws IOException
 	{
-		Node[][] maze = new Node[MAZE_ROWS][MAZE_COLUMNS];
-		BufferedReader reader = new BufferedReader(fileReader);
-		skipLines(reader, mazeNumber);
-		
-		for (int row = 0; row < maze[0].length; ++row)
+		MazeGrid maze = new MazeGrid(rows, columns);
+		for (int row = 0; row < rows; ++row)
 		{
 			final String line = reader.readLine();
-			for (int column = 0; column < maze.length; ++column)
+			if (line == null || rowWidth(line) != columns)
+			{
+				throw new IOException("Row " + (row + 1) + " of maze " + mazeNumber + 
+						" does not have " + columns + " columns.");
+			}
+			
+			for (int column = 0; column < columns; ++column)
 			{
-				boolean open = true;
-				boolean entrance = false;
-				boolean exit = false;
-				
+				final int index = maze.indexOf(row, column);
 				final char character = line.charAt(column);
-				if (character == 'W')
+				if (character == 'E')
 				{
-					open = false;
+					maze.setEntrance(index);
 				}
-				else if (character == 'E')
+				else if (character == 'X')
 				{
-					entrance = true;
+					maze.setExit(index);
 				}
-				else if (character == 'X')
+				else if (character != 'W')
 				{
-					exit = true;
+					maze.setOpen(index, true);
 				}
-				
-				MazeLocation location = new MazeLocation(row, column);
-				maze[row][column] = new Node(location, open, entrance, exit);
 			}
 		}
 		return maze;
 	}
 	
 	/**
-	 * Skips the specified number of lines in a file.
-	 * @param reader A BufferedReader pointing to the mazes.txt file.
-	 * @param mazeNumber The number of the maze definition in the file, starting
-	 * with 1.
-	 * @throws IOException If there is a problem processing the maze array.
+	 * Parses a maze dimension header, such as "1000 2000" or "1000x2000".
+	 * @param line The line to parse.
+	 * @return The number of rows and columns, or null if the line is not a header.
 	 */
-	private static void skipLines(BufferedReader reader, int mazeNumber) throws IOException
+	static int[] parseDimensions(String line)
 	{
-		for (int i = 0; i < (mazeNumber - 1) * MAZE_ROWS + (1 * mazeNumber); ++i)
+		String[] parts = line.trim().split("\\s*[xX,\\s]\\s*");
+		if (parts.length != 2)
+		{
+			return null;
+		}
+		try
 		{
-			reader.readLine();
+			int rows = Integer.parseInt(parts[0]);
+			int columns = Integer.parseInt(parts[1]);
+			return (rows > 0 && columns > 0) ? new int[] { rows, columns } : null;
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
 		}
 	}
 	
 	/**
-	 * Connects nodes to each other.
-	 * @param maze Reference to the maze array.
+	 * Returns the width of a maze row, ignoring trailing whitespace.
+	 * @param line The row.
+	 * @return The number of cells in the row.
 	 */
-	private static void processEdges(Node[][] maze)
+	private static int rowWidth(String line)
 	{
-		// Iterate through all nodes in the maze, and add connections
-		// where applicable.
-		for (int row = 0; row < maze[0].length; ++row)
+		int width = line.length();
+		while (width > 0 && Character.isWhitespace(line.charAt(width - 1)))
 		{
-			for (int col = 0; col < maze.length; ++col)
-			{
-				if (row > 0)
-				{
-					maze[row][col].addEdge(maze[row-1][col]);
-				}
-				if (row < maze.length - 1)
-				{
-					maze[row][col].addEdge(maze[row+1][col]);
-				}
-				if (col > 0)
-				{
-					maze[row][col].addEdge(maze[row][col-1]);
-				}
-				if (col < maze[0].length - 1)
-				{
-					maze[row][col].addEdge(maze[row][col+1]);
-				}
-			}
+			--width;
 		}
+		return width;
 	}
 	
 	/**
@@ -190,19 +211,15 @@ public class MazeCreator
 	 */
 	public static Node[][] generateAllOpen(MazeLocation entrance, MazeLocation exit)
 	{
-		Node[][] maze = new Node[MAZE_ROWS][MAZE_COLUMNS];
-		for (int row = 0; row < maze[0].length; ++row)
+		MazeGrid maze = new MazeGrid(MAZE_ROWS, MAZE_COLUMNS);
+		for (int index = 0; index < maze.getCellCount(); ++index)
 		{
-			for (int col = 0; col < maze.length; ++col)
-			{
-				maze[row][col] = new Node(new MazeLocation(row, col), true, false, false);
-			}
+			maze.setOpen(index, true);
 		}
-		maze[entrance.getRow()][entrance.getColumn()] = new Node(entrance, true, true, false);
-		maze[exit.getRow()][exit.getRow()] = new Node(exit, true, false, true);
-		processEdges(maze);
+		maze.setEntrance(maze.indexOf(entrance.getRow(), entrance.getColumn()));
+		maze.setExit(maze.indexOf(exit.getRow(), exit.getColumn()));
 		
-		return maze;
+		return maze.toNodes();
 	}
 	
 	/**
@@ -211,15 +228,6 @@ public class MazeCreator
 	 */
 	public static Node[][] generateAllClosed()
 	{
-		Node[][] maze = new Node[MAZE_ROWS][MAZE_COLUMNS];
-		for (int row = 0; row < maze[0].length; ++row)
-		{
-			for (int col = 0; col < maze.length; ++col)
-			{
-				maze[row][col] = new Node(new MazeLocation(row, col), false, false, false);
-			}
-		}
-			
-		return maze;
+		return new MazeGrid(MAZE_ROWS, MAZE_COLUMNS).toNodes();
 	}
 }
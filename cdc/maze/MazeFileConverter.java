@@ -0,0 +1,74 @@
+package cdc.maze;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts a maze text file, in the mazes.txt layout, to the binary maze format.
+ * The mazes keep their numbers, so maze n in the text file is maze n in the
+ * binary file.
+ * <p>
+ * Usage: java cdc.maze.MazeFileConverter [text file] [binary file]
+ * <br>
+ * The text file defaults to mazes.txt, and the binary file defaults to the text
+ * file's name with a ".cmz" suffix.
+ * @author Christopher D. Canfield
+ */
+public class MazeFileConverter
+{
+	public static void main(String[] args)
+	{
+		String textFile = (args.length > 0) ? args[0] : MazeCreator.MAZE_FILE;
+		String binaryFile = (args.length > 1) ? args[1] : binaryFileName(textFile);
+		
+		try
+		{
+			long start = System.nanoTime();
+			int count = convert(new File(textFile), new File(binaryFile));
+			long elapsed = (System.nanoTime() - start) / 1000000;
+			
+			System.out.println("Converted " + count + " mazes from " + textFile + " to " + 
+					binaryFile + " in " + elapsed + " ms (" + new File(textFile).length() + 
+					" bytes to " + new File(binaryFile).length() + " bytes).");
+		}
+		catch (IOException e)
+		{
+			System.err.println("Unable to convert " + textFile + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Converts a maze text file to a binary maze file.
+	 * @param textFile The maze text file.
+	 * @param binaryFile The binary maze file. If the file exists, it is replaced.
+	 * @return The number of mazes that were converted.
+	 * @throws IOException If a maze is malformed, or there is a problem reading
+	 * or writing the files.
+	 */
+	public static int convert(File textFile, File binaryFile) throws IOException
+	{
+		MazeCatalog catalog = MazeCatalog.forFile(textFile.getPath());
+		try (BinaryMazeWriter writer = new BinaryMazeWriter(binaryFile))
+		{
+			for (int mazeNumber = 1; mazeNumber <= catalog.getMazeCount(); ++mazeNumber)
+			{
+				writer.write(catalog.loadGrid(mazeNumber));
+			}
+		}
+		return catalog.getMazeCount();
+	}
+	
+	/**
+	 * Returns the default binary file name for a text file.
+	 * @param textFile The name of the maze text file.
+	 * @return The name of the binary maze file.
+	 */
+	static String binaryFileName(String textFile)
+	{
+		int extension = textFile.lastIndexOf('.');
+		int separator = Math.max(textFile.lastIndexOf('/'), textFile.lastIndexOf(File.separatorChar));
+		String base = (extension > separator) ? textFile.substring(0, extension) : textFile;
+		return base + BinaryMazeFormat.FILE_SUFFIX;
+	}
+}
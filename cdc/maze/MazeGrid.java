@@ -0,0 +1,567 @@
+package cdc.maze;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact maze representation. Each cell is stored as a single bit (open or wall)
+ * in a long array, and cells are addressed by their index: row * columns + column.
+ * Neighbours are computed from the index rather than stored, so the grid needs
+ * roughly one bit per cell instead of several objects per cell.
+ * <p>
+ * Code that still wants Node objects, such as the Swing application, can use
+ * {@link #getNode(int)} or {@link #toNodes()}, which return thin views that read
+ * their state from the grid.
+ * <p>
+ * Changes can be grouped into batches with beginChanges and endChanges. Each batch
+ * increments the maze's version once, and is reported to the change listeners as
+ * a single event when it ends; a change made outside of a batch is a batch of its
+ * own. A MazeGrid is not thread safe.
+ * @author Christopher D. Canfield
+ */
+public class MazeGrid
+{
+	/** Returned by getEntrance and getExit when the cell has not been set. **/
+	public static final int NO_CELL = -1;
+
+	// The number of rows in the maze.
+	private final int rows;
+	// The number of columns in the maze.
+	private final int columns;
+
+	// One bit per cell; a set bit means that the cell is open & passable.
+	private final long[] open;
+
+	// The index of the entrance cell, or NO_CELL.
+	private int entrance = NO_CELL;
+	// The index of the exit cell, or NO_CELL.
+	private int exit = NO_CELL;
+
+	// Incremented by each batch of changes to the cells, entrance or exit.
+	private long version;
+
+	// The number of nested beginChanges calls that have not been ended.
+	private int batchDepth;
+	// Whether the current batch has changed the maze.
+	private boolean batchChanged;
+	// The cells changed by the current batch. Only recorded if there are listeners.
+	private int[] changedCells = new int[0];
+	private int changedCount;
+	// The listeners that are notified at the end of each batch.
+	private List<MazeChangeListener> listeners;
+
+	/**
+	 * Instantiates a maze grid in which every cell is a wall.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 */
+	public MazeGrid(int rows, int columns)
+	{
+		if (rows <= 0 || columns <= 0)
+		{
+			throw new IllegalArgumentException("A maze must have at least one row and column.");
+		}
+		if ((long)rows * columns > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("A maze cannot have more than " +
+					Integer.MAX_VALUE + " cells.");
+		}
+
+		this.rows = rows;
+		this.columns = columns;
+		this.open = new long[(int)(((long)rows * columns + 63) >>> 6)];
+	}
+
+	/**
+	 * Instantiates a maze grid from existing cell storage. Used by the maze loaders.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @param open One bit per cell, set if the cell is open. May be longer than needed.
+	 * @param entrance The index of the entrance cell, or NO_CELL.
+	 * @param exit The index of the exit cell, or NO_CELL.
+	 */
+	MazeGrid(int rows, int columns, long[] open, int entrance, int exit)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		int length = (int)(((long)rows * columns + 63) >>> 6);
+		this.open = (open.length == length) ? open : Arrays.copyOf(open, length);
+		this.entrance = entrance;
+		this.exit = exit;
+		
+		// Clear any bits past the last cell.
+		int remainder = (rows * columns) & 63;
+		if (remainder != 0)
+		{
+			this.open[length - 1] &= (1L << remainder) - 1;
+		}
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * @return The number of rows in the maze.
+	 */
+	public int getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns.
+	 * @return The number of columns in the maze.
+	 */
+	public int getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * Returns the number of cells.
+	 * @return The number of cells in the maze (rows * columns).
+	 */
+	public int getCellCount()
+	{
+		return rows * columns;
+	}
+
+	/**
+	 * Returns the index of the cell at the specified location.
+	 * @param row The row number.
+	 * @param column The column number.
+	 * @return The cell index.
+	 */
+	public int indexOf(int row, int column)
+	{
+		return row * columns + column;
+	}
+
+	/**
+	 * Returns the row of the specified cell.
+	 * @param index The cell index.
+	 * @return The row number.
+	 */
+	public int rowOf(int index)
+	{
+		return index / columns;
+	}
+
+	/**
+	 * Returns the column of the specified cell.
+	 * @param index The cell index.
+	 * @return The column number.
+	 */
+	public int columnOf(int index)
+	{
+		return index % columns;
+	}
+
+	/**
+	 * Whether the cell is open and passable.
+	 * @param index The cell index.
+	 * @return true if the cell is passable, or false if it is a wall.
+	 */
+	public boolean isOpen(int index)
+	{
+		return (open[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Whether the cell at the specified location is open and passable.
+	 * @param row The row number.
+	 * @param column The column number.
+	 * @return true if the cell is passable, or false if it is a wall.
+	 */
+	public boolean isOpen(int row, int column)
+	{
+		return isOpen(indexOf(row, column));
+	}
+
+	/**
+	 * Opens or closes a cell.
+	 * @param index The cell index.
+	 * @param isOpen Whether the cell is open (passable) or a wall.
+	 */
+	public void setOpen(int index, boolean isOpen)
+	{
+		final long word = open[index >>> 6];
+		final long changed = isOpen ? (word | (1L << index)) : (word & ~(1L << index));
+		if (changed != word)
+		{
+			open[index >>> 6] = changed;
+			cellChanged(index);
+		}
+	}
+
+	/**
+	 * Opens or closes the cell at the specified location.
+	 * @param row The row number.
+	 * @param column The column number.
+	 * @param isOpen Whether the cell is open (passable) or a wall.
+	 */
+	public void setOpen(int row, int column, boolean isOpen)
+	{
+		setOpen(indexOf(row, column), isOpen);
+	}
+
+	/**
+	 * Returns the maze's version, which is incremented by each batch of changes that
+	 * opens or closes a cell, or moves the entrance or exit. Results computed for one version of
+	 * the maze, such as cached paths, are stale once the version changes.
+	 * @return The maze version.
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Returns the entrance cell.
+	 * @return The index of the entrance cell, or NO_CELL if there is no entrance.
+	 */
+	public int getEntrance()
+	{
+		return entrance;
+	}
+
+	/**
+	 * Sets the entrance cell. The cell is also opened.
+	 * @param index The index of the entrance cell.
+	 */
+	public void setEntrance(int index)
+	{
+		if (index == exit)
+		{
+			throw new IllegalArgumentException(
+					"A cell cannot be both an entrance and an exit");
+		}
+		beginChanges();
+		try
+		{
+			setOpen(index, true);
+			if (entrance != index)
+			{
+				if (entrance != NO_CELL)
+				{
+					cellChanged(entrance);
+				}
+				entrance = index;
+				cellChanged(index);
+			}
+		}
+		finally
+		{
+			endChanges();
+		}
+	}
+
+	/**
+	 * Returns the exit cell.
+	 * @return The index of the exit cell, or NO_CELL if there is no exit.
+	 */
+	public int getExit()
+	{
+		return exit;
+	}
+
+	/**
+	 * Sets the exit cell. The cell is also opened.
+	 * @param index The index of the exit cell.
+	 */
+	public void setExit(int index)
+	{
+		if (index == entrance)
+		{
+			throw new IllegalArgumentException(
+					"A cell cannot be both an entrance and an exit");
+		}
+		beginChanges();
+		try
+		{
+			setOpen(index, true);
+			if (exit != index)
+			{
+				if (exit != NO_CELL)
+				{
+					cellChanged(exit);
+				}
+				exit = index;
+				cellChanged(index);
+			}
+		}
+		finally
+		{
+			endChanges();
+		}
+	}
+
+	/**
+	 * Removes the entrance marker. The cell stays open.
+	 */
+	public void clearEntrance()
+	{
+		if (entrance != NO_CELL)
+		{
+			final int cell = entrance;
+			entrance = NO_CELL;
+			cellChanged(cell);
+		}
+	}
+
+	/**
+	 * Removes the exit marker. The cell stays open.
+	 */
+	public void clearExit()
+	{
+		if (exit != NO_CELL)
+		{
+			final int cell = exit;
+			exit = NO_CELL;
+			cellChanged(cell);
+		}
+	}
+
+	/**
+	 * Begins a batch of changes. The batch ends when endChanges has been called
+	 * once for each call to beginChanges.
+	 */
+	public void beginChanges()
+	{
+		++batchDepth;
+	}
+
+	/**
+	 * Ends a batch of changes. When the outermost batch ends, the change listeners
+	 * are notified of the cells that changed, if any.
+	 * @throws IllegalStateException If no batch has been begun.
+	 */
+	public void endChanges()
+	{
+		if (batchDepth == 0)
+		{
+			throw new IllegalStateException("No batch of changes has been begun.");
+		}
+		if (--batchDepth > 0 || !batchChanged)
+		{
+			return;
+		}
+
+		batchChanged = false;
+		if (changedCount > 0)
+		{
+			final int[] cells = Arrays.copyOf(changedCells, changedCount);
+			changedCount = 0;
+			fireMazeChanged(cells);
+		}
+	}
+
+	/**
+	 * Adds a listener that is notified after each batch of changes. A listener that
+	 * is added part way through a batch is only notified of the later changes.
+	 * @param listener The listener.
+	 */
+	public void addChangeListener(MazeChangeListener listener)
+	{
+		if (listeners == null)
+		{
+			listeners = new ArrayList<MazeChangeListener>(2);
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a change listener.
+	 * @param listener The listener.
+	 */
+	public void removeChangeListener(MazeChangeListener listener)
+	{
+		if (listeners != null)
+		{
+			listeners.remove(listener);
+		}
+	}
+
+	/**
+	 * Records a changed cell. The version is incremented by the first change of
+	 * each batch, so that results computed part way through a batch are stale too.
+	 * The cells are only recorded if there are listeners, so that building a maze
+	 * cell by cell does not allocate.
+	 * @param index The cell index.
+	 */
+	private void cellChanged(int index)
+	{
+		final boolean hasListeners = (listeners != null && !listeners.isEmpty());
+		if (batchDepth == 0)
+		{
+			// A change outside of a batch is a batch of its own.
+			++version;
+			if (hasListeners)
+			{
+				fireMazeChanged(new int[] { index });
+			}
+			return;
+		}
+
+		if (!batchChanged)
+		{
+			batchChanged = true;
+			++version;
+		}
+		if (hasListeners)
+		{
+			if (changedCount == changedCells.length)
+			{
+				changedCells = Arrays.copyOf(changedCells, Math.max(8, changedCount * 2));
+			}
+			changedCells[changedCount++] = index;
+		}
+	}
+
+	/**
+	 * Notifies the listeners of a batch of changes.
+	 * @param cells The changed cells.
+	 */
+	private void fireMazeChanged(int[] cells)
+	{
+		if (listeners == null || listeners.isEmpty())
+		{
+			return;
+		}
+		MazeChangeEvent event = new MazeChangeEvent(this, cells, version);
+		// Copy the listeners, so that a listener can remove itself.
+		for (MazeChangeListener listener : new ArrayList<MazeChangeListener>(listeners))
+		{
+			listener.mazeChanged(event);
+		}
+	}
+
+	/**
+	 * Whether the cell is the maze's entrance.
+	 * @param index The cell index.
+	 * @return true if the cell is the entrance.
+	 */
+	public boolean isEntrance(int index)
+	{
+		return index == entrance;
+	}
+
+	/**
+	 * Whether the cell is the maze's exit.
+	 * @param index The cell index.
+	 * @return true if the cell is the exit.
+	 */
+	public boolean isExit(int index)
+	{
+		return index == exit;
+	}
+
+	/**
+	 * Returns the type of a cell.
+	 * @param index The cell index.
+	 * @return The cell type.
+	 */
+	public CellType getCellType(int index)
+	{
+		return (index == entrance) ? CellType.ENTRANCE :
+				(index == exit) ? CellType.EXIT :
+				isOpen(index) ? CellType.OPEN : CellType.WALL;
+	}
+
+	/**
+	 * Writes the open neighbours of a cell into the supplied array, in the order
+	 * up, down, left, right.
+	 * @param index The cell index.
+	 * @param neighbours Array that receives the neighbouring cell indices. Must have
+	 * room for at least four entries.
+	 * @return The number of open neighbours written to the array.
+	 */
+	public int getNeighbours(int index, int[] neighbours)
+	{
+		final int column = index % columns;
+		int count = 0;
+
+		if (index >= columns && isOpen(index - columns))
+		{
+			neighbours[count++] = index - columns;
+		}
+		if (index < getCellCount() - columns && isOpen(index + columns))
+		{
+			neighbours[count++] = index + columns;
+		}
+		if (column > 0 && isOpen(index - 1))
+		{
+			neighbours[count++] = index - 1;
+		}
+		if (column < columns - 1 && isOpen(index + 1))
+		{
+			neighbours[count++] = index + 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns a Node view of a cell. The view reads its state from this grid.
+	 * @param index The cell index.
+	 * @return A Node that represents the cell.
+	 */
+	public Node getNode(int index)
+	{
+		return new GridNode(this, index);
+	}
+
+	/**
+	 * Returns a Node view of the cell at the specified location.
+	 * @param row The row number.
+	 * @param column The column number.
+	 * @return A Node that represents the cell.
+	 */
+	public Node getNode(int row, int column)
+	{
+		return getNode(indexOf(row, column));
+	}
+
+	/**
+	 * Creates a Node array of views onto this grid, for code that works
+	 * with Node[][] mazes.
+	 * @return The maze, as an array of nodes.
+	 */
+	public Node[][] toNodes()
+	{
+		Node[][] maze = new Node[rows][columns];
+		for (int row = 0; row < rows; ++row)
+		{
+			for (int column = 0; column < columns; ++column)
+			{
+				maze[row][column] = getNode(row, column);
+			}
+		}
+		return maze;
+	}
+
+	/**
+	 * Creates a grid from a Node array.
+	 * @param maze Reference to the maze array.
+	 * @return The maze grid.
+	 */
+	public static MazeGrid fromNodes(Node[][] maze)
+	{
+		MazeGrid grid = new MazeGrid(maze.length, maze[0].length);
+		for (Node[] m : maze)
+		{
+			for (Node node : m)
+			{
+				int index = grid.indexOf(node.getRow(), node.getColumn());
+				grid.setOpen(index, node.isOpen());
+				if (node.isEntrance())
+				{
+					grid.setEntrance(index);
+				}
+				else if (node.isExit())
+				{
+					grid.setExit(index);
+				}
+			}
+		}
+		return grid;
+	}
+}
@@ -0,0 +1,40 @@
+package cdc.maze;
+
+import java.io.IOException;
+
+/**
+ * Receives mazes one cell at a time, in row order, so that mazes can be written
+ * without first being held in memory.
+ * @author Christopher D. Canfield
+ */
+public interface MazeSink
+{
+	/**
+	 * Begins a new maze. The maze's cells must then be written in row order with
+	 * writeCell, followed by a call to endMaze.
+	 * @param rows The number of rows in the maze.
+	 * @param columns The number of columns in the maze.
+	 * @throws IOException If there is a problem writing the maze.
+	 */
+	public void beginMaze(int rows, int columns) throws IOException;
+	
+	/**
+	 * Writes the next cell of the current maze.
+	 * @param type The cell type.
+	 * @throws IOException If there is a problem writing the maze.
+	 */
+	public void writeCell(CellType type) throws IOException;
+	
+	/**
+	 * Ends the current maze.
+	 * @throws IOException If there is a problem writing the maze.
+	 */
+	public void endMaze() throws IOException;
+	
+	/**
+	 * Writes a whole maze.
+	 * @param maze The maze to write.
+	 * @throws IOException If there is a problem writing the maze.
+	 */
+	public void write(MazeGrid maze) throws IOException;
+}
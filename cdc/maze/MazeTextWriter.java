@@ -0,0 +1,139 @@
+package cdc.maze;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes mazes in the mazes.txt layout (see MazeCreator.loadMaze). Cells are streamed
+ * to the file one at a time, so a maze can be written without holding all of it in
+ * memory.
+ * @author Christopher D. Canfield
+ */
+public class MazeTextWriter implements MazeSink, Closeable
+{
+	// The maze text file.
+	private final Writer writer;
+
+	// The dimensions of the current maze, or 0 if no maze has been begun.
+	private int rows;
+	private int columns;
+	// The number of cells written to the current maze.
+	private long cellCount;
+	// The number of mazes that have been written.
+	private int mazeCount;
+
+	/**
+	 * Creates a maze text file. If the file exists, it is replaced.
+	 * @param file The maze text file.
+	 * @param title The first line of the file, which is ignored by the maze loaders.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public MazeTextWriter(File file, String title) throws IOException
+	{
+		this(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.ISO_8859_1), title);
+	}
+
+	/**
+	 * Writes mazes to a Writer.
+	 * @param writer The writer. It is closed when this MazeTextWriter is closed.
+	 * @param title The first line of the file, which is ignored by the maze loaders.
+	 * @throws IOException If there is a problem writing the title.
+	 */
+	public MazeTextWriter(Writer writer, String title) throws IOException
+	{
+		this.writer = new BufferedWriter(writer, 1 << 16);
+		this.writer.write(title);
+		this.writer.write('\n');
+	}
+
+	@Override
+	public void write(MazeGrid maze) throws IOException
+	{
+		beginMaze(maze.getRows(), maze.getColumns());
+		for (int index = 0; index < maze.getCellCount(); ++index)
+		{
+			writeCell(maze.getCellType(index));
+		}
+		endMaze();
+	}
+
+	@Override
+	public void beginMaze(int rows, int columns) throws IOException
+	{
+		if (this.rows != 0)
+		{
+			throw new IllegalStateException("The previous maze has not been ended.");
+		}
+		if (rows <= 0 || columns <= 0 || (long)rows * columns > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid maze dimensions: " + rows + "x" + columns);
+		}
+
+		// Maze definitions are separated by a blank line.
+		if (mazeCount > 0)
+		{
+			writer.write('\n');
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.cellCount = 0;
+	}
+
+	@Override
+	public void writeCell(CellType type) throws IOException
+	{
+		if (cellCount == (long)rows * columns)
+		{
+			throw new IllegalStateException("All of the maze's cells have been written.");
+		}
+		writer.write(type.getSymbol());
+		if (++cellCount % columns == 0)
+		{
+			writer.write('\n');
+		}
+	}
+
+	@Override
+	public void endMaze() throws IOException
+	{
+		if (rows == 0)
+		{
+			throw new IllegalStateException("No maze has been begun.");
+		}
+		if (cellCount != (long)rows * columns)
+		{
+			throw new IllegalStateException("Only " + cellCount + " of the maze's " +
+					((long)rows * columns) + " cells have been written.");
+		}
+		rows = 0;
+		columns = 0;
+		++mazeCount;
+	}
+
+	/**
+	 * Closes the file.
+	 * @throws IOException If a maze has been begun but not ended, or there is a
+	 * problem closing the file.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			if (rows != 0)
+			{
+				throw new IOException("The last maze was not ended, so the file is incomplete.");
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+}
@@ -13,6 +13,13 @@ import cdc.app.Drawable;
  */
 public class Node implements Drawable
 {
+	// The fill colors of the entrance and exit squares.
+	private static final Color ENTRANCE_COLOR = new Color(196, 255, 170);
+	private static final Color EXIT_COLOR = new Color(38, 127, 0);
+	// The smallest square, in pixels, that is drawn with an outline. Outlines on
+	// smaller squares would cover the squares themselves.
+	private static final int MIN_OUTLINE_PIXELS = 4;
+	
 	// The node's (row, column) location in the maze.
 	private MazeLocation location;
 	
@@ -110,6 +117,52 @@ public class Node implements Drawable
 		return exit;
 	}
 	
+	/**
+	 * Opens or closes this maze node. The node's edges are not changed: a closed
+	 * node keeps its edges, and is skipped by the search because it is not open.
+	 * @param isOpen Whether the node is open (passable) or a wall.
+	 */
+	public void setOpen(boolean isOpen)
+	{
+		this.open = isOpen;
+	}
+	
+	/**
+	 * Adds or removes the entrance marker. A node that becomes the entrance is opened.
+	 * @param isEntrance Whether this node is the maze's entrance.
+	 */
+	public void setEntrance(boolean isEntrance)
+	{
+		if (isEntrance && exit)
+		{
+			throw new IllegalArgumentException(
+					"A Node cannot be both an entrance and and exit");
+		}
+		this.entrance = isEntrance;
+		if (isEntrance)
+		{
+			this.open = true;
+		}
+	}
+	
+	/**
+	 * Adds or removes the exit marker. A node that becomes the exit is opened.
+	 * @param isExit Whether this node is the maze's exit.
+	 */
+	public void setExit(boolean isExit)
+	{
+		if (isExit && entrance)
+		{
+			throw new IllegalArgumentException(
+					"A Node cannot be both an entrance and and exit");
+		}
+		this.exit = isExit;
+		if (isExit)
+		{
+			this.open = true;
+		}
+	}
+	
 	/**
 	 * Returns the list of edges.
 	 * @return The list of edges.
@@ -129,6 +182,16 @@ public class Node implements Drawable
 		edges.add(edge);
 		return this;
 	}
+	
+	/**
+	 * Removes a connection to another node.
+	 * @param edge The edge to remove.
+	 * @return true if the edge was removed, or false if there was no such edge.
+	 */
+	public boolean removeEdge(Node edge)
+	{
+		return edges.remove(edge);
+	}
 
 	@Override
 	public void draw(Graphics g, int startX, int startY, int pixelsPerNode)
@@ -139,21 +202,24 @@ public class Node implements Drawable
 		
 		// If the square is not open, fill it with black. If it is the entrance,
 		// fill it with light green. If it is the exit, fill it with dark green.
-		if (!open || isEntrance() || isExit())
+		if (!isOpen() || isEntrance() || isExit())
 		{
-			Color fillColor = isEntrance() ? new Color(196, 255, 170) : 
-					isExit() ? new Color(38, 127, 0) : Color.BLACK;
+			Color fillColor = isEntrance() ? ENTRANCE_COLOR : 
+					isExit() ? EXIT_COLOR : Color.BLACK;
 			g.setColor(fillColor);
 			g.fillRect(pixelX, pixelY, pixelsPerNode, pixelsPerNode);
 		}
 		
-		// Set the outline color to white if the square is  open, 
-		// or black if it is open.
-		Color color = !open ? Color.WHITE : Color.BLACK;
-		g.setColor(color);
-		
-		// Draw an outline around the node's square.
-		g.drawRect(pixelX, pixelY, pixelsPerNode, pixelsPerNode);
+		if (pixelsPerNode >= MIN_OUTLINE_PIXELS)
+		{
+			// Set the outline color to white if the square is  open, 
+			// or black if it is open.
+			Color color = !isOpen() ? Color.WHITE : Color.BLACK;
+			g.setColor(color);
+			
+			// Draw an outline around the node's square.
+			g.drawRect(pixelX, pixelY, pixelsPerNode, pixelsPerNode);
+		}
 	}
 	
 	
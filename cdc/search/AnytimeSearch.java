@@ -0,0 +1,478 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * An anytime path search, based on Anytime Repairing A* (ARA*). The first iteration
+ * is a weighted A* search with a large heuristic weight (epsilon), which finds a path
+ * quickly. Each later iteration lowers epsilon and improves the path, reusing the
+ * costs found by the earlier iterations, until epsilon reaches 1 and the path is
+ * optimal, or the deadline passes.
+ * <p>
+ * Within an iteration, a cell is expanded at most once. Cells whose cost falls after
+ * they have been expanded are set aside as inconsistent, and are returned to the
+ * frontier by the next iteration. After each iteration, the bound that the path
+ * actually achieves is calculated from the frontier and the inconsistent cells; it is
+ * often much lower than epsilon.
+ * <p>
+ * Usage: call start to find the first path, then improve, as often as time allows.
+ * A search that is interrupted by its deadline continues where it stopped on the next
+ * call to improve. Each call to start or improve is reported to the search listeners
+ * (see Search.addSearchListener) as a search named "anytimeSearch". An AnytimeSearch
+ * is not thread safe.
+ * @author Christopher D. Canfield
+ */
+public class AnytimeSearch
+{
+	// The cost of an unreached cell.
+	private static final int INFINITY = Integer.MAX_VALUE / 4;
+	// The number of expansions between checks of the deadline.
+	private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+	// The maze and heuristic.
+	private final MazeGrid maze;
+	private final GridHeuristic heuristic;
+
+	// The cost from the start to each cell.
+	private final int[] g;
+	// The parent of each cell.
+	private final int[] parent;
+	// The iteration in which each cell was last expanded.
+	private final int[] closedIteration;
+	// The iteration in which each cell was last set aside as inconsistent.
+	private final int[] inconsistentIteration;
+	// The frontier, ordered by g + epsilon * h.
+	private final IndexedHeap frontier;
+	// Scratch buffer for MazeGrid.getNeighbours.
+	private final int[] neighbours = new int[4];
+
+	// The cells that were expanded and then reached at a lower cost in this iteration.
+	private int[] inconsistent = new int[64];
+	private int inconsistentCount;
+
+	// The start and end of the current search.
+	private int start = MazeGrid.NO_CELL;
+	private int end = MazeGrid.NO_CELL;
+	// The heuristic weight of the current iteration, and the amount it is lowered by.
+	private double epsilon;
+	private double epsilonStep;
+	// The current iteration, starting with 1.
+	private int iteration;
+	// Whether the current iteration has finished.
+	private boolean iterationFinished;
+	// The number of finished iterations, and the epsilon of the last one.
+	private int finishedIterations;
+	private double finishedEpsilon;
+
+	// The best path found so far, from start to end.
+	private int[] path;
+	// The suboptimality bound of the best path.
+	private double bound;
+	// The number of cells expanded since start was called.
+	private long expandedCount;
+
+	// The work done by the last call to start or improve.
+	private long callStartExpandedCount;
+	private long generatedCount;
+	private long reopenedCount;
+	private int peakFrontierSize;
+	private long heuristicCallCount;
+	private long callStartNanos;
+	private long elapsedNanos;
+
+	/**
+	 * Instantiates an anytime search for a maze.
+	 * @param maze The maze.
+	 * @param heuristic The heuristic function to use when calculating the "h" value.
+	 * It must be consistent.
+	 */
+	public AnytimeSearch(MazeGrid maze, GridHeuristic heuristic)
+	{
+		this.maze = maze;
+		this.heuristic = heuristic;
+		this.g = new int[maze.getCellCount()];
+		this.parent = new int[maze.getCellCount()];
+		this.closedIteration = new int[maze.getCellCount()];
+		this.inconsistentIteration = new int[maze.getCellCount()];
+		this.frontier = new IndexedHeap(maze.getCellCount());
+	}
+
+	/**
+	 * Finds a path quickly, with the first, most heavily weighted iteration, and
+	 * prepares for the path to be improved. The first iteration always runs to the end.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @param initialEpsilon The heuristic weight of the first iteration; at least 1.
+	 * @param epsilonStep The amount that the weight is lowered by in each later
+	 * iteration; greater than 0.
+	 * @return true if a path was found.
+	 */
+	public boolean start(int start, int end, double initialEpsilon, double epsilonStep)
+	{
+		if (!(initialEpsilon >= 1.0) || Double.isInfinite(initialEpsilon))
+		{
+			throw new IllegalArgumentException("epsilon must be at least 1: " + initialEpsilon);
+		}
+		if (!(epsilonStep > 0.0))
+		{
+			throw new IllegalArgumentException("The epsilon step must be greater than 0: " + epsilonStep);
+		}
+
+		Arrays.fill(g, INFINITY);
+		Arrays.fill(closedIteration, 0);
+		Arrays.fill(inconsistentIteration, 0);
+		frontier.clear();
+		inconsistentCount = 0;
+		this.start = start;
+		this.end = end;
+		this.epsilon = initialEpsilon;
+		this.epsilonStep = epsilonStep;
+		this.iteration = 1;
+		this.finishedIterations = 0;
+		this.path = null;
+		this.bound = Double.POSITIVE_INFINITY;
+		this.expandedCount = 0;
+		beginCall();
+
+		g[start] = 0;
+		++generatedCount;
+		parent[start] = SearchContext.NO_PARENT;
+		if (maze.isOpen(start))
+		{
+			insert(start);
+		}
+		iterationFinished = improvePath(Long.MAX_VALUE);
+		finishIteration();
+		finishCall();
+		return path != null;
+	}
+
+	/**
+	 * Improves the path until it is optimal or the deadline passes. An iteration
+	 * that is interrupted by the deadline continues on the next call.
+	 * @param deadline The deadline, in System.nanoTime units.
+	 * @return true if the path is optimal, or there is no path.
+	 */
+	public boolean improve(long deadline)
+	{
+		if (start == MazeGrid.NO_CELL)
+		{
+			throw new IllegalStateException("The search has not been started.");
+		}
+
+		beginCall();
+		while (!isFinished())
+		{
+			if (iterationFinished)
+			{
+				beginIteration();
+			}
+			iterationFinished = improvePath(deadline);
+			if (!iterationFinished)
+			{
+				break;
+			}
+			finishIteration();
+		}
+		finishCall();
+		return isFinished();
+	}
+
+	/**
+	 * Finds a path, and improves it until it is optimal or the time limit passes.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @param initialEpsilon The heuristic weight of the first iteration; at least 1.
+	 * @param epsilonStep The amount that the weight is lowered by in each later iteration.
+	 * @param timeLimitNanos The time allowed for improving the first path, in nanoseconds.
+	 * @return true if a path was found.
+	 */
+	public boolean search(int start, int end, double initialEpsilon, double epsilonStep, long timeLimitNanos)
+	{
+		final long deadline = System.nanoTime() + timeLimitNanos;
+		if (start(start, end, initialEpsilon, epsilonStep))
+		{
+			improve(deadline);
+		}
+		return path != null;
+	}
+
+	/**
+	 * Whether the search has finished: the path is optimal, or there is no path.
+	 * @return true if the path cannot be improved.
+	 */
+	public boolean isFinished()
+	{
+		return path == null || bound <= 1.0;
+	}
+
+	/**
+	 * Returns the heuristic weight of the last finished iteration.
+	 * @return The epsilon value.
+	 */
+	public double getEpsilon()
+	{
+		return finishedEpsilon;
+	}
+
+	/**
+	 * Returns the factor by which the cost of the best path may exceed the optimal cost.
+	 * @return The suboptimality bound, from 1 to the epsilon of the last finished
+	 * iteration, or infinity if no path has been found.
+	 */
+	public double getBound()
+	{
+		return bound;
+	}
+
+	/**
+	 * Returns the number of iterations that have finished.
+	 * @return The iteration count.
+	 */
+	public int getIterationCount()
+	{
+		return finishedIterations;
+	}
+
+	/**
+	 * Returns the number of cells expanded since the search was started.
+	 * @return The number of expanded cells.
+	 */
+	public long getExpandedCount()
+	{
+		return expandedCount;
+	}
+
+	/**
+	 * Returns the metrics of the last call to start or improve. Unlike
+	 * getExpandedCount, which counts from the start of the search, the metrics only
+	 * cover that call. The generated count is the number of cells reached for the
+	 * first time, and the reopened count is the number of times that a cell expanded
+	 * in any iteration was reached at a lower cost.
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		return new SearchMetrics(expandedCount - callStartExpandedCount, generatedCount, reopenedCount,
+				peakFrontierSize, heuristicCallCount, elapsedNanos);
+	}
+
+	/**
+	 * Returns the number of cells in the best path.
+	 * @return The path length, or zero if no path has been found.
+	 */
+	public int getPathLength()
+	{
+		return (path == null) ? 0 : path.length;
+	}
+
+	/**
+	 * Returns a cell in the best path.
+	 * @param i The position in the path, starting with 0 for the start cell.
+	 * @return The cell index.
+	 */
+	public int getPathCell(int i)
+	{
+		if (i < 0 || i >= getPathLength())
+		{
+			throw new IndexOutOfBoundsException("Path index: " + i + ", length: " + getPathLength());
+		}
+		return path[i];
+	}
+
+	/**
+	 * Copies the best path into a new array.
+	 * @return The cells in the path, from start to end, or null if no path has been found.
+	 */
+	public int[] copyPath()
+	{
+		return (path == null) ? null : path.clone();
+	}
+
+	/**
+	 * Returns the cost of the best path.
+	 * @return The path cost, or -1 if no path has been found.
+	 */
+	public int getPathCost()
+	{
+		return (path == null) ? -1 : path.length - 1;
+	}
+
+	/**
+	 * Expands cells until the end cell's cost is no higher than the lowest priority
+	 * in the frontier, or the deadline passes.
+	 * @param deadline The deadline, in System.nanoTime units.
+	 * @return true if the iteration finished, or false if the deadline passed.
+	 */
+	private boolean improvePath(long deadline)
+	{
+		int untilCheck = DEADLINE_CHECK_INTERVAL;
+		while (!frontier.isEmpty() && g[end] > frontier.peekPrimary())
+		{
+			if (--untilCheck == 0)
+			{
+				if (System.nanoTime() - deadline >= 0)
+				{
+					return false;
+				}
+				untilCheck = DEADLINE_CHECK_INTERVAL;
+			}
+
+			final int current = frontier.pop();
+			closedIteration[current] = iteration;
+			++expandedCount;
+
+			final int cost = g[current] + 1;
+			final int count = maze.getNeighbours(current, neighbours);
+			for (int i = 0; i < count; ++i)
+			{
+				final int edge = neighbours[i];
+				if (g[edge] <= cost)
+				{
+					continue;
+				}
+				if (g[edge] >= INFINITY)
+				{
+					++generatedCount;
+				}
+				else if (closedIteration[edge] != 0)
+				{
+					++reopenedCount;
+				}
+				g[edge] = cost;
+				parent[edge] = current;
+				if (closedIteration[edge] != iteration)
+				{
+					insert(edge);
+				}
+				else if (inconsistentIteration[edge] != iteration)
+				{
+					// The cell has already been expanded in this iteration, so set it
+					// aside for the next one.
+					inconsistentIteration[edge] = iteration;
+					if (inconsistentCount == inconsistent.length)
+					{
+						inconsistent = Arrays.copyOf(inconsistent, inconsistent.length * 2);
+					}
+					inconsistent[inconsistentCount++] = edge;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stores the path found by the iteration that has just finished, and calculates
+	 * its bound.
+	 */
+	private void finishIteration()
+	{
+		++finishedIterations;
+		finishedEpsilon = epsilon;
+		if (g[end] >= INFINITY)
+		{
+			return;
+		}
+
+		// A parent's cost may have fallen since it became the parent, so the path
+		// can be shorter than g[end], and even shorter than the path of a later
+		// iteration. The shorter path is kept.
+		int length = 0;
+		for (int cell = end; cell != SearchContext.NO_PARENT; cell = parent[cell])
+		{
+			++length;
+		}
+		if (path == null || length < path.length)
+		{
+			path = new int[length];
+			int index = length;
+			for (int cell = end; cell != SearchContext.NO_PARENT; cell = parent[cell])
+			{
+				path[--index] = cell;
+			}
+		}
+
+		// Every optimal path has an optimally reached cell in the frontier or among
+		// the inconsistent cells, so the lowest unweighted g + h of those cells is a
+		// lower bound on the optimal cost.
+		final int pathCost = path.length - 1;
+		int lowerBound = pathCost;
+		heuristicCallCount += frontier.size() + inconsistentCount;
+		for (int slot = 0; slot < frontier.size(); ++slot)
+		{
+			final int open = frontier.cellAt(slot);
+			lowerBound = Math.min(lowerBound, g[open] + heuristic.calculateCost(maze, open, end));
+		}
+		for (int i = 0; i < inconsistentCount; ++i)
+		{
+			final int open = inconsistent[i];
+			lowerBound = Math.min(lowerBound, g[open] + heuristic.calculateCost(maze, open, end));
+		}
+		bound = (lowerBound <= 0) ? 1.0 : Math.min(epsilon, (double)pathCost / lowerBound);
+	}
+
+	/**
+	 * Resets the metrics at the start of a call to start or improve.
+	 */
+	private void beginCall()
+	{
+		callStartExpandedCount = expandedCount;
+		generatedCount = 0;
+		reopenedCount = 0;
+		heuristicCallCount = 0;
+		frontier.resetPeakSize();
+		peakFrontierSize = frontier.size();
+		callStartNanos = System.nanoTime();
+	}
+
+	/**
+	 * Records the end of a call to start or improve, and reports it to the search
+	 * listeners.
+	 */
+	private void finishCall()
+	{
+		peakFrontierSize = Math.max(peakFrontierSize, frontier.peakSize());
+		elapsedNanos = System.nanoTime() - callStartNanos;
+		Search.fireSearchFinished("anytimeSearch", path != null, getMetrics());
+	}
+
+	/**
+	 * Lowers epsilon, returns the inconsistent cells to the frontier, and reorders
+	 * the frontier for the new epsilon.
+	 */
+	private void beginIteration()
+	{
+		epsilon = Math.max(1.0, Math.min(epsilon - epsilonStep, bound));
+		++iteration;
+
+		// The cells are moved to the end of the inconsistent buffer, and then reinserted.
+		for (int slot = 0; slot < frontier.size(); ++slot)
+		{
+			if (inconsistentCount == inconsistent.length)
+			{
+				inconsistent = Arrays.copyOf(inconsistent, inconsistent.length * 2);
+			}
+			inconsistent[inconsistentCount++] = frontier.cellAt(slot);
+		}
+		peakFrontierSize = Math.max(peakFrontierSize, frontier.peakSize());
+		frontier.clear();
+		for (int i = 0; i < inconsistentCount; ++i)
+		{
+			insert(inconsistent[i]);
+		}
+		inconsistentCount = 0;
+	}
+
+	/**
+	 * Adds a cell to the frontier, or updates its priority.
+	 * @param cell The cell index.
+	 */
+	private void insert(int cell)
+	{
+		final int h = heuristic.calculateCost(maze, cell, end);
+		++heuristicCallCount;
+		frontier.insertOrUpdate(cell, GridSearch.weightedCost(g[cell], h, epsilon), h);
+	}
+}
@@ -0,0 +1,252 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * The reusable working state of a bidirectional search: a SearchContext for the
+ * forward search from the start cell, a SearchContext for the backward search from
+ * the end cell, and the path where they meet. Like a SearchContext, it is sized for
+ * one maze, and is not thread safe.
+ * @author Christopher D. Canfield
+ */
+public class BidirectionalContext
+{
+	// The forward and backward searches.
+	final SearchContext forward;
+	final SearchContext backward;
+	
+	// The cell where the best path found so far passes from the forward search to 
+	// the backward search, and the cost of that path.
+	int meetingCell;
+	int bestCost;
+	
+	// The largest combined size of the two frontiers during the last search.
+	int peakFrontierSize;
+	
+	// The path found by the last search, from start to end.
+	private int[] path = new int[0];
+	private int pathLength;
+	
+	/**
+	 * Instantiates a bidirectional search context for the specified maze.
+	 * @param maze The maze that will be searched.
+	 */
+	public BidirectionalContext(MazeGrid maze)
+	{
+		this.forward = new SearchContext(maze);
+		this.backward = new SearchContext(maze);
+	}
+	
+	/**
+	 * Returns the maze that this context searches.
+	 * @return The maze grid.
+	 */
+	public MazeGrid getMaze()
+	{
+		return forward.getMaze();
+	}
+	
+	/**
+	 * Returns the context of the forward search, from the start cell.
+	 * @return The forward search context.
+	 */
+	public SearchContext getForward()
+	{
+		return forward;
+	}
+	
+	/**
+	 * Returns the context of the backward search, from the end cell. Its costs are
+	 * the costs from the end cell.
+	 * @return The backward search context.
+	 */
+	public SearchContext getBackward()
+	{
+		return backward;
+	}
+	
+	/**
+	 * Resets the context for a new search.
+	 */
+	void begin()
+	{
+		forward.begin();
+		backward.begin();
+		meetingCell = MazeGrid.NO_CELL;
+		bestCost = Integer.MAX_VALUE;
+		peakFrontierSize = 0;
+		pathLength = 0;
+	}
+	
+	/**
+	 * Records the end of the current search. Both searches began together, so 
+	 * each records the duration of the whole search.
+	 */
+	void finish()
+	{
+		forward.finish();
+		backward.finish();
+	}
+	
+	/**
+	 * Stores the path through the meeting cell: the forward search's path from the
+	 * start cell to the meeting cell, followed by the backward search's path from 
+	 * the meeting cell to the end cell.
+	 */
+	void buildPath()
+	{
+		forward.buildPath(meetingCell);
+		backward.buildPath(meetingCell);
+		final int forwardLength = forward.getPathLength();
+		final int backwardLength = backward.getPathLength();
+		
+		pathLength = forwardLength + backwardLength - 1;
+		if (pathLength > path.length)
+		{
+			path = new int[Math.max(pathLength, Math.min(path.length * 2, getMaze().getCellCount()))];
+		}
+		for (int i = 0; i < forwardLength; ++i)
+		{
+			path[i] = forward.getPathCell(i);
+		}
+		// The backward path runs from the end cell to the meeting cell.
+		for (int i = 0; i < backwardLength - 1; ++i)
+		{
+			path[forwardLength + i] = backward.getPathCell(backwardLength - 2 - i);
+		}
+	}
+	
+	/**
+	 * Stores the best partial path of a search that was stopped by a limit. If the
+	 * searches have already met, this is the best complete path found so far, which
+	 * may not be the shortest; otherwise it is the forward search's path to the 
+	 * closest cell to the end cell that it expanded.
+	 */
+	void buildPartialPath()
+	{
+		if (meetingCell != MazeGrid.NO_CELL)
+		{
+			buildPath();
+			return;
+		}
+		
+		forward.buildPartialPath();
+		pathLength = forward.getPathLength();
+		if (pathLength > path.length)
+		{
+			path = new int[pathLength];
+		}
+		for (int i = 0; i < pathLength; ++i)
+		{
+			path[i] = forward.getPathCell(i);
+		}
+	}
+	
+	/**
+	 * Applies the visitor and the limits of a set of search options to the following
+	 * searches. The node budget counts the cells expanded by both searches.
+	 * @param options The search options.
+	 */
+	public void setOptions(SearchOptions options)
+	{
+		forward.setOptions(options);
+		backward.setVisitor(options.getVisitor());
+	}
+	
+	/**
+	 * Returns how the last search ended. If it was stopped by a limit, the path is
+	 * the best partial path.
+	 * @return The search status.
+	 */
+	public SearchStatus getStatus()
+	{
+		return forward.getStatus();
+	}
+	
+	/**
+	 * Returns the number of cells in the path found by the last search.
+	 * @return The path length, or zero if no path was found.
+	 */
+	public int getPathLength()
+	{
+		return pathLength;
+	}
+	
+	/**
+	 * Returns a cell in the path found by the last search.
+	 * @param i The position in the path, starting with 0 for the start cell.
+	 * @return The cell index.
+	 */
+	public int getPathCell(int i)
+	{
+		if (i < 0 || i >= pathLength)
+		{
+			throw new IndexOutOfBoundsException("Path index: " + i + ", length: " + pathLength);
+		}
+		return path[i];
+	}
+	
+	/**
+	 * Copies the path found by the last search into a new array.
+	 * @return The cells in the path, from start to end.
+	 */
+	public int[] copyPath()
+	{
+		return Arrays.copyOf(path, pathLength);
+	}
+	
+	/**
+	 * Returns the cost of the path found by the last search.
+	 * @return The path cost, or Integer.MAX_VALUE if no path was found.
+	 */
+	public int getPathCost()
+	{
+		return bestCost;
+	}
+	
+	/**
+	 * Returns the cell where the forward and backward searches met.
+	 * @return The meeting cell, or NO_CELL if no path was found.
+	 */
+	public int getMeetingCell()
+	{
+		return meetingCell;
+	}
+	
+	/**
+	 * Returns the number of cells expanded by both searches.
+	 * @return The number of expanded cells.
+	 */
+	public long getExpandedCount()
+	{
+		return forward.getExpandedCount() + backward.getExpandedCount();
+	}
+	
+	/**
+	 * Returns the largest combined number of cells in the two frontiers during the
+	 * last search.
+	 * @return The peak frontier size.
+	 */
+	public int getPeakFrontierSize()
+	{
+		return peakFrontierSize;
+	}
+	
+	/**
+	 * Returns the combined metrics of the forward and backward searches.
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		SearchMetrics forwardMetrics = forward.getMetrics();
+		SearchMetrics backwardMetrics = backward.getMetrics();
+		return new SearchMetrics(forwardMetrics.getExpandedCount() + backwardMetrics.getExpandedCount(),
+				forwardMetrics.getGeneratedCount() + backwardMetrics.getGeneratedCount(),
+				forwardMetrics.getReopenedCount() + backwardMetrics.getReopenedCount(),
+				peakFrontierSize,
+				forwardMetrics.getHeuristicCallCount() + backwardMetrics.getHeuristicCallCount(),
+				forwardMetrics.getElapsedNanos());
+	}
+}
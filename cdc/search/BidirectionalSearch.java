@@ -0,0 +1,151 @@
+package cdc.search;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * Contains a bidirectional A* search engine for MazeGrids. One A* search runs
+ * forward from the start cell towards the end cell, and another runs backward from
+ * the end cell towards the start cell. Each step expands the side with the smaller
+ * frontier, so neither frontier grows much larger than the other.
+ * <p>
+ * Whenever a cell is reached by one search that has already been reached by the
+ * other, the path through that cell is recorded if it is the cheapest so far. The
+ * search stops when the smallest f value in either frontier is at least the cost
+ * of the cheapest path: with a consistent heuristic, every frontier cell's f value
+ * is a lower bound on the cost of any path through it, so no cheaper path remains.
+ * The path cost is therefore the same as a unidirectional A* search's.
+ * @author Christopher D. Canfield
+ */
+public class BidirectionalSearch
+{
+	/**
+	 * Performs a bidirectional A* search between the start and end cell. The path
+	 * is stored in the context, which can be reused for the next search.
+	 * @param context The bidirectional search context for the maze.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be consistent and symmetric, like the Manhattan distance.
+	 * @return true if a path was found, or false if no path from the start to end
+	 * can be found, or if the search was stopped by a limit (see BidirectionalContext.getStatus).
+	 */
+	public static boolean aStar(BidirectionalContext context, int start, int end, GridHeuristic heuristic)
+	{
+		final MazeGrid maze = context.getMaze();
+		final SearchContext forward = context.forward;
+		final SearchContext backward = context.backward;
+		
+		context.begin();
+		
+		// Add the start cell to the forward frontier, and the end cell to the backward frontier.
+		final int startH = heuristic.calculateCost(maze, start, end);
+		++forward.heuristicCallCount;
+		forward.generate(start, SearchContext.NO_PARENT, 0);
+		forward.frontier.insertOrUpdate(start, startH, startH);
+		backward.generate(end, SearchContext.NO_PARENT, 0);
+		backward.frontier.insertOrUpdate(end, startH, startH);
+		if (start == end)
+		{
+			context.meetingCell = start;
+			context.bestCost = 0;
+		}
+		
+		while (!forward.frontier.isEmpty() && !backward.frontier.isEmpty())
+		{
+			if (forward.frontier.peekPrimary() >= context.bestCost ||
+					backward.frontier.peekPrimary() >= context.bestCost)
+			{
+				break;
+			}
+			if (forward.limitReached(forward.expandedCount + backward.expandedCount))
+			{
+				context.finish();
+				context.buildPartialPath();
+				return false;
+			}
+			
+			if (forward.frontier.size() <= backward.frontier.size())
+			{
+				expand(context, forward, backward, end, heuristic);
+			}
+			else
+			{
+				expand(context, backward, forward, start, heuristic);
+			}
+			
+			final int frontierSize = forward.frontier.size() + backward.frontier.size();
+			if (frontierSize > context.peakFrontierSize)
+			{
+				context.peakFrontierSize = frontierSize;
+			}
+		}
+		
+		context.finish();
+		if (context.meetingCell == MazeGrid.NO_CELL)
+		{
+			// No path can be found from the start cell to the end cell.
+			return false;
+		}
+		context.buildPath();
+		forward.status = SearchStatus.FOUND;
+		return true;
+	}
+	
+	/**
+	 * Expands the best cell in one search's frontier, and records any path found
+	 * through the cells it reaches.
+	 * @param context The bidirectional search context.
+	 * @param search The search to expand.
+	 * @param other The search in the opposite direction.
+	 * @param target The cell that the search is heading towards.
+	 * @param heuristic The heuristic function.
+	 */
+	private static void expand(BidirectionalContext context, SearchContext search, SearchContext other,
+			int target, GridHeuristic heuristic)
+	{
+		final MazeGrid maze = search.getMaze();
+		final int[] g = search.g;
+		final int[] neighbours = search.neighbours;
+		
+		final int currentH = search.frontier.peekSecondary();
+		final int current = search.frontier.pop();
+		search.close(current, currentH);
+		
+		// If the other search has already expanded the cell, every path through it 
+		// has been recorded, so it does not need to be expanded again ("nipping").
+		if (other.isClosed(current))
+		{
+			return;
+		}
+		
+		// Every move between neighbouring cells costs 1.
+		final int cost = g[current] + 1;
+		final int count = maze.getNeighbours(current, neighbours);
+		for (int i = 0; i < count; ++i)
+		{
+			final int edge = neighbours[i];
+			
+			// Skip the edge if it has already been reached at the same or lower cost.
+			if (search.isGenerated(edge) && g[edge] <= cost)
+			{
+				continue;
+			}
+			
+			search.generate(edge, current, cost);
+			if (other.isGenerated(edge) && cost + other.g[edge] < context.bestCost)
+			{
+				context.bestCost = cost + other.g[edge];
+				context.meetingCell = edge;
+			}
+			
+			// Only add the edge to the frontier if a path through it could be cheaper 
+			// than the best path found so far ("pruning").
+			final int h = heuristic.calculateCost(maze, edge, target);
+			++search.heuristicCallCount;
+			if (cost + h < context.bestCost)
+			{
+				search.frontier.insertOrUpdate(edge, cost + h, h);
+			}
+		}
+	}
+}
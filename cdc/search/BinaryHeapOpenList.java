@@ -0,0 +1,51 @@
+package cdc.search;
+
+import java.util.PriorityQueue;
+
+/**
+ * An open list backed by a binary heap (java.util.PriorityQueue).
+ * @author Christopher D. Canfield
+ */
+class BinaryHeapOpenList implements OpenList
+{
+	private final PriorityQueue<SearchNode> heap;
+
+	/**
+	 * Instantiates an empty open list.
+	 * @param tieBreaking How nodes with the same f value are ordered.
+	 */
+	BinaryHeapOpenList(TieBreaking tieBreaking)
+	{
+		this.heap = new PriorityQueue<SearchNode>(11, tieBreaking);
+	}
+
+	@Override
+	public void add(SearchNode node)
+	{
+		heap.add(node);
+	}
+
+	@Override
+	public SearchNode remove()
+	{
+		return heap.remove();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return heap.isEmpty();
+	}
+
+	@Override
+	public int size()
+	{
+		return heap.size();
+	}
+
+	@Override
+	public void clear()
+	{
+		heap.clear();
+	}
+}
@@ -0,0 +1,175 @@
+package cdc.search;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An open list backed by a bucket queue (Dial's algorithm). There is a bucket for
+ * each f value, and within it a stack of nodes for each h value, so adding a node is
+ * O(1). A cursor moves up through the f values, and one moves through the h values
+ * within the current bucket, so removing a node is amortized O(1) when the f values
+ * rise slowly, as they do with unit costs and a consistent heuristic. Nodes with the
+ * same f and h values are removed in last-in, first-out order.
+ * <p>
+ * Each bucket is released once the f cursor moves past it, so only the buckets
+ * between the lowest and highest f values in the list are held. The f and h values
+ * must not be negative.
+ * @author Christopher D. Canfield
+ */
+class BucketQueueOpenList implements OpenList
+{
+	// The initial number of f values that the bucket array can hold.
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final TieBreaking tieBreaking;
+
+	// The bucket for each f value, or null.
+	private Bucket[] buckets = new Bucket[INITIAL_CAPACITY];
+	// The lowest f value whose bucket may hold nodes.
+	private int minF;
+	private int size;
+
+	/**
+	 * Instantiates an empty open list.
+	 * @param tieBreaking How nodes with the same f value are ordered.
+	 */
+	BucketQueueOpenList(TieBreaking tieBreaking)
+	{
+		this.tieBreaking = tieBreaking;
+	}
+
+	@Override
+	public void add(SearchNode node)
+	{
+		final int f = node.getG() + node.getH();
+		if (node.getH() < 0 || f < 0)
+		{
+			throw new IllegalArgumentException("A bucket queue needs f and h values of at least 0: " +
+					"g=" + node.getG() + ", h=" + node.getH());
+		}
+
+		if (f >= buckets.length)
+		{
+			buckets = Arrays.copyOf(buckets, Math.max(f + 1, buckets.length * 2));
+		}
+		Bucket bucket = buckets[f];
+		if (bucket == null)
+		{
+			bucket = new Bucket();
+			buckets[f] = bucket;
+		}
+		bucket.push((tieBreaking == TieBreaking.NONE) ? 0 : node.getH(), node, tieBreaking);
+
+		if (size == 0 || f < minF)
+		{
+			minF = f;
+		}
+		++size;
+	}
+
+	@Override
+	public SearchNode remove()
+	{
+		if (size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		while (buckets[minF] == null || buckets[minF].count == 0)
+		{
+			// Release the empty bucket; with a consistent heuristic, no more nodes
+			// will be added to it.
+			buckets[minF] = null;
+			++minF;
+		}
+		--size;
+		return buckets[minF].pop(tieBreaking);
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(buckets, null);
+		minF = 0;
+		size = 0;
+	}
+
+	/**
+	 * The nodes with one f value: a stack of nodes for each h value (or one stack, if
+	 * ties are not broken), and a cursor at the next stack to remove from.
+	 */
+	private static class Bucket
+	{
+		// The stacks, by h value, and the number of nodes in each.
+		SearchNode[][] stacks = new SearchNode[8][];
+		int[] sizes = new int[8];
+		// The number of nodes in the bucket.
+		int count;
+		// The lowest (or, for HIGHEST_H, the highest) h value whose stack may hold nodes.
+		int cursor;
+
+		/**
+		 * Adds a node to the stack for an h value.
+		 * @param h The h value, or 0 if ties are not broken.
+		 * @param node The search node.
+		 * @param tieBreaking How nodes with the same f value are ordered.
+		 */
+		void push(int h, SearchNode node, TieBreaking tieBreaking)
+		{
+			if (h >= stacks.length)
+			{
+				final int length = Math.max(h + 1, stacks.length * 2);
+				stacks = Arrays.copyOf(stacks, length);
+				sizes = Arrays.copyOf(sizes, length);
+			}
+			SearchNode[] stack = stacks[h];
+			if (stack == null)
+			{
+				stack = new SearchNode[4];
+				stacks[h] = stack;
+			}
+			else if (sizes[h] == stack.length)
+			{
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				stacks[h] = stack;
+			}
+			stack[sizes[h]++] = node;
+
+			if (count == 0 || (tieBreaking == TieBreaking.HIGHEST_H ? h > cursor : h < cursor))
+			{
+				cursor = h;
+			}
+			++count;
+		}
+
+		/**
+		 * Removes the next node. The bucket must not be empty.
+		 * @param tieBreaking How nodes with the same f value are ordered.
+		 * @return The search node.
+		 */
+		SearchNode pop(TieBreaking tieBreaking)
+		{
+			final int step = (tieBreaking == TieBreaking.HIGHEST_H) ? -1 : 1;
+			while (sizes[cursor] == 0)
+			{
+				cursor += step;
+			}
+			final SearchNode[] stack = stacks[cursor];
+			final SearchNode node = stack[--sizes[cursor]];
+			stack[sizes[cursor]] = null;
+			--count;
+			return node;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package cdc.search;
+
+/**
+ * Lets one thread ask searches that are running on other threads to stop. The token
+ * is passed to the searches in their SearchOptions, and each search checks it every
+ * few hundred expansions. A token can be shared by many searches, and cannot be reset.
+ * @author Christopher D. Canfield
+ */
+public class CancellationToken
+{
+	private volatile boolean cancelled;
+
+	/**
+	 * Asks the searches that use this token to stop. They stop with the status
+	 * SearchStatus.CANCELLED and their best partial path.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * Whether cancel has been called.
+	 * @return true if the token has been cancelled.
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+}
@@ -0,0 +1,153 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * A breadth-first search that is confined to one rectangular cluster of a maze.
+ * Used by ClusterGraph to find the distances between the entry points of a cluster,
+ * and by HierarchicalSearch to connect queries to the cluster graph and to refine
+ * abstract paths into cells. The arrays are sized for one cluster and reused.
+ * @author Christopher D. Canfield
+ */
+class ClusterBfs
+{
+	// The maze.
+	private final MazeGrid maze;
+	
+	// The distance from the source to each cell in the cluster, or -1 if the cell
+	// has not been reached. Indexed by the cell's position within the cluster.
+	private final int[] distance;
+	// The next cell towards the source, as a maze cell index.
+	private final int[] parent;
+	// The BFS queue, as maze cell indices.
+	private final int[] queue;
+	// Scratch buffer for MazeGrid.getNeighbours.
+	private final int[] neighbours = new int[4];
+	
+	// The bounds of the cluster that was last searched.
+	private int top;
+	private int left;
+	private int height;
+	private int width;
+	// The number of cells reached by the last search, and the largest size of its queue.
+	private int reachedCount;
+	private int peakQueueSize;
+	
+	/**
+	 * Instantiates a cluster search.
+	 * @param maze The maze.
+	 * @param clusterSize The maximum number of rows and columns in a cluster.
+	 */
+	ClusterBfs(MazeGrid maze, int clusterSize)
+	{
+		this.maze = maze;
+		final int cells = clusterSize * clusterSize;
+		this.distance = new int[cells];
+		this.parent = new int[cells];
+		this.queue = new int[cells];
+	}
+	
+	/**
+	 * Searches outward from a source cell, without leaving the cluster.
+	 * @param top The first row of the cluster.
+	 * @param left The first column of the cluster.
+	 * @param height The number of rows in the cluster.
+	 * @param width The number of columns in the cluster.
+	 * @param source The source cell, which must be in the cluster.
+	 */
+	void run(int top, int left, int height, int width, int source)
+	{
+		this.top = top;
+		this.left = left;
+		this.height = height;
+		this.width = width;
+		Arrays.fill(distance, 0, height * width, -1);
+		
+		int head = 0;
+		int tail = 0;
+		distance[localIndex(source)] = 0;
+		queue[tail++] = source;
+		peakQueueSize = 1;
+		while (head < tail)
+		{
+			final int cell = queue[head++];
+			final int cost = distance[localIndex(cell)] + 1;
+			final int count = maze.getNeighbours(cell, neighbours);
+			for (int i = 0; i < count; ++i)
+			{
+				final int neighbour = neighbours[i];
+				if (contains(neighbour) && distance[localIndex(neighbour)] < 0)
+				{
+					distance[localIndex(neighbour)] = cost;
+					parent[localIndex(neighbour)] = cell;
+					queue[tail++] = neighbour;
+				}
+			}
+			if (tail - head > peakQueueSize)
+			{
+				peakQueueSize = tail - head;
+			}
+		}
+		reachedCount = tail;
+	}
+	
+	/**
+	 * Returns the number of cells reached, and so expanded, by the last search.
+	 * @return The number of reached cells, including the source.
+	 */
+	int reachedCount()
+	{
+		return reachedCount;
+	}
+	
+	/**
+	 * Returns the largest number of cells that were in the queue of the last search.
+	 * @return The peak queue size.
+	 */
+	int peakQueueSize()
+	{
+		return peakQueueSize;
+	}
+	
+	/**
+	 * Returns the distance from the source of the last search to a cell.
+	 * @param cell The cell index.
+	 * @return The distance, or -1 if the cell is outside the cluster or was not reached.
+	 */
+	int distanceTo(int cell)
+	{
+		return contains(cell) ? distance[localIndex(cell)] : -1;
+	}
+	
+	/**
+	 * Writes the path from a cell to the source of the last search, excluding the 
+	 * cell itself and including the source.
+	 * @param cell A reached cell.
+	 * @param path Receives the cells.
+	 * @param offset The position in the path to write the first cell to.
+	 * @return The position after the last cell written.
+	 */
+	int tracePath(int cell, int[] path, int offset)
+	{
+		while (distance[localIndex(cell)] > 0)
+		{
+			cell = parent[localIndex(cell)];
+			path[offset++] = cell;
+		}
+		return offset;
+	}
+	
+	private boolean contains(int cell)
+	{
+		final int row = maze.rowOf(cell) - top;
+		final int column = maze.columnOf(cell) - left;
+		return row >= 0 && row < height && column >= 0 && column < width;
+	}
+	
+	private int localIndex(int cell)
+	{
+		return (maze.rowOf(cell) - top) * width + (maze.columnOf(cell) - left);
+	}
+}
@@ -0,0 +1,561 @@
+package cdc.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * The abstract graph used by hierarchical pathfinding (HPA*). The maze is divided
+ * into square clusters. Wherever open cells on either side of a cluster border are
+ * adjacent, an entry point is placed on each side: one in the middle of each short 
+ * opening, or one at each end of a long opening. The entry points are the nodes of
+ * the graph. Each pair of entry points on either side of a border is joined by an
+ * edge of cost 1, and each pair of entry points in the same cluster is joined by
+ * an edge whose cost is their shortest distance within the cluster.
+ * <p>
+ * Building the graph is the expensive step, so it is done once per maze and can be
+ * saved to a file. The file records a fingerprint of the maze's walls, so a graph is
+ * not loaded for a maze that has changed.
+ * @author Christopher D. Canfield
+ */
+public class ClusterGraph
+{
+	/** The default number of rows and columns in a cluster. **/
+	public static final int DEFAULT_CLUSTER_SIZE = 16;
+	
+	// Identifies cluster graph files.
+	private static final int FILE_MAGIC = 0x434D4847;
+	// The version of the cluster graph file format.
+	private static final int FILE_VERSION = 1;
+	// Openings at least this long get an entry point at each end instead of one in the middle.
+	private static final int LONG_OPENING = 6;
+	
+	// The dimensions of the maze.
+	private final int rows;
+	private final int columns;
+	// The number of rows and columns in a cluster.
+	private final int clusterSize;
+	// The number of clusters down and across the maze.
+	private final int clusterRows;
+	private final int clusterColumns;
+	// The fingerprint of the maze's walls.
+	private final long fingerprint;
+	
+	// The cell of each node, in ascending order.
+	private final int[] nodeCells;
+	// The edges of node n are edgeTarget[edgeStart[n]] to edgeTarget[edgeStart[n + 1] - 1].
+	private final int[] edgeStart;
+	private final int[] edgeTarget;
+	private final int[] edgeCost;
+	// The nodes of cluster c are clusterNodes[clusterStart[c]] to clusterNodes[clusterStart[c + 1] - 1].
+	private final int[] clusterStart;
+	private final int[] clusterNodes;
+	
+	private ClusterGraph(int rows, int columns, int clusterSize, long fingerprint,
+			int[] nodeCells, int[] edgeStart, int[] edgeTarget, int[] edgeCost)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		this.clusterSize = clusterSize;
+		this.clusterRows = (rows + clusterSize - 1) / clusterSize;
+		this.clusterColumns = (columns + clusterSize - 1) / clusterSize;
+		this.fingerprint = fingerprint;
+		this.nodeCells = nodeCells;
+		this.edgeStart = edgeStart;
+		this.edgeTarget = edgeTarget;
+		this.edgeCost = edgeCost;
+		
+		// Group the nodes by cluster.
+		final int clusterCount = clusterRows * clusterColumns;
+		clusterStart = new int[clusterCount + 1];
+		for (int cell : nodeCells)
+		{
+			++clusterStart[clusterOf(cell) + 1];
+		}
+		for (int c = 0; c < clusterCount; ++c)
+		{
+			clusterStart[c + 1] += clusterStart[c];
+		}
+		clusterNodes = new int[nodeCells.length];
+		int[] next = Arrays.copyOf(clusterStart, clusterCount);
+		for (int node = 0; node < nodeCells.length; ++node)
+		{
+			clusterNodes[next[clusterOf(nodeCells[node])]++] = node;
+		}
+	}
+	
+	/**
+	 * Builds the cluster graph of a maze, using the default cluster size.
+	 * @param maze The maze.
+	 * @return The cluster graph.
+	 */
+	public static ClusterGraph build(MazeGrid maze)
+	{
+		return build(maze, DEFAULT_CLUSTER_SIZE);
+	}
+	
+	/**
+	 * Builds the cluster graph of a maze.
+	 * @param maze The maze.
+	 * @param clusterSize The number of rows and columns in a cluster. Larger clusters
+	 * give a smaller graph, but make each query's local searches slower.
+	 * @return The cluster graph.
+	 */
+	public static ClusterGraph build(MazeGrid maze, int clusterSize)
+	{
+		if (clusterSize < 2 || clusterSize > 1024)
+		{
+			throw new IllegalArgumentException("clusterSize must be between 2 and 1024: " + clusterSize);
+		}
+		final int rows = maze.getRows();
+		final int columns = maze.getColumns();
+		
+		// Find the entry points on each border. Each transition is a pair of
+		// adjacent cells in neighbouring clusters.
+		IntList transitions = new IntList();
+		for (int border = clusterSize; border < columns; border += clusterSize)
+		{
+			// The vertical border between columns (border - 1) and border.
+			for (int top = 0; top < rows; top += clusterSize)
+			{
+				addTransitions(maze, transitions, top, Math.min(rows, top + clusterSize), border, true);
+			}
+		}
+		for (int border = clusterSize; border < rows; border += clusterSize)
+		{
+			// The horizontal border between rows (border - 1) and border.
+			for (int left = 0; left < columns; left += clusterSize)
+			{
+				addTransitions(maze, transitions, left, Math.min(columns, left + clusterSize), border, false);
+			}
+		}
+		
+		// The nodes are the distinct cells of the transitions.
+		int[] nodeCells = transitions.toArray();
+		Arrays.sort(nodeCells);
+		int nodeCount = 0;
+		for (int i = 0; i < nodeCells.length; ++i)
+		{
+			if (nodeCount == 0 || nodeCells[nodeCount - 1] != nodeCells[i])
+			{
+				nodeCells[nodeCount++] = nodeCells[i];
+			}
+		}
+		nodeCells = Arrays.copyOf(nodeCells, nodeCount);
+		
+		// Collect the edges as (from, to, cost) triples.
+		IntList edges = new IntList();
+		for (int i = 0; i < transitions.size(); i += 2)
+		{
+			final int a = Arrays.binarySearch(nodeCells, transitions.get(i));
+			final int b = Arrays.binarySearch(nodeCells, transitions.get(i + 1));
+			edges.add(a, b, 1);
+			edges.add(b, a, 1);
+		}
+		
+		ClusterGraph unconnected = new ClusterGraph(rows, columns, clusterSize, fingerprint(maze),
+				nodeCells, new int[nodeCount + 1], new int[0], new int[0]);
+		ClusterBfs bfs = new ClusterBfs(maze, clusterSize);
+		for (int cluster = 0; cluster < unconnected.getClusterCount(); ++cluster)
+		{
+			final int from = unconnected.clusterStart[cluster];
+			final int to = unconnected.clusterStart[cluster + 1];
+			for (int i = from; i < to; ++i)
+			{
+				final int node = unconnected.clusterNodes[i];
+				unconnected.searchCluster(bfs, cluster, nodeCells[node]);
+				for (int j = from; j < to; ++j)
+				{
+					final int other = unconnected.clusterNodes[j];
+					final int distance = bfs.distanceTo(nodeCells[other]);
+					if (other != node && distance > 0)
+					{
+						edges.add(node, other, distance);
+					}
+				}
+			}
+		}
+		
+		// Store the edges in compressed rows, ordered by their from node.
+		final int edgeCount = edges.size() / 3;
+		int[] edgeStart = new int[nodeCount + 1];
+		for (int e = 0; e < edgeCount; ++e)
+		{
+			++edgeStart[edges.get(e * 3) + 1];
+		}
+		for (int n = 0; n < nodeCount; ++n)
+		{
+			edgeStart[n + 1] += edgeStart[n];
+		}
+		int[] edgeTarget = new int[edgeCount];
+		int[] edgeCost = new int[edgeCount];
+		int[] next = Arrays.copyOf(edgeStart, nodeCount);
+		for (int e = 0; e < edgeCount; ++e)
+		{
+			final int slot = next[edges.get(e * 3)]++;
+			edgeTarget[slot] = edges.get(e * 3 + 1);
+			edgeCost[slot] = edges.get(e * 3 + 2);
+		}
+		return new ClusterGraph(rows, columns, clusterSize, unconnected.fingerprint,
+				nodeCells, edgeStart, edgeTarget, edgeCost);
+	}
+	
+	/**
+	 * Finds the openings along one cluster's side of a border, and adds their transitions.
+	 * @param maze The maze.
+	 * @param transitions Receives the pairs of transition cells.
+	 * @param from The first row (or column) of the side.
+	 * @param to One past the last row (or column) of the side.
+	 * @param border The first column (or row) after the border.
+	 * @param vertical Whether the border is vertical, between two columns.
+	 */
+	private static void addTransitions(MazeGrid maze, IntList transitions, int from, int to,
+			int border, boolean vertical)
+	{
+		int openingStart = -1;
+		for (int i = from; i <= to; ++i)
+		{
+			final boolean open = i < to && (vertical ?
+					maze.isOpen(i, border - 1) && maze.isOpen(i, border) :
+					maze.isOpen(border - 1, i) && maze.isOpen(border, i));
+			if (open && openingStart < 0)
+			{
+				openingStart = i;
+			}
+			else if (!open && openingStart >= 0)
+			{
+				final int openingEnd = i - 1;
+				if (openingEnd - openingStart + 1 >= LONG_OPENING)
+				{
+					addTransition(maze, transitions, openingStart, border, vertical);
+					addTransition(maze, transitions, openingEnd, border, vertical);
+				}
+				else
+				{
+					addTransition(maze, transitions, (openingStart + openingEnd) / 2, border, vertical);
+				}
+				openingStart = -1;
+			}
+		}
+	}
+	
+	private static void addTransition(MazeGrid maze, IntList transitions, int i, int border, boolean vertical)
+	{
+		if (vertical)
+		{
+			transitions.add(maze.indexOf(i, border - 1), maze.indexOf(i, border));
+		}
+		else
+		{
+			transitions.add(maze.indexOf(border - 1, i), maze.indexOf(border, i));
+		}
+	}
+	
+	/**
+	 * Calculates a fingerprint of a maze's dimensions and walls. The entrance and
+	 * exit are not included, as they do not affect the graph.
+	 * @param maze The maze.
+	 * @return The fingerprint.
+	 */
+	public static long fingerprint(MazeGrid maze)
+	{
+		long hash = maze.getRows() * 31L + maze.getColumns();
+		long word = 0;
+		for (int index = 0; index < maze.getCellCount(); ++index)
+		{
+			if (maze.isOpen(index))
+			{
+				word |= 1L << (index & 63);
+			}
+			if ((index & 63) == 63 || index == maze.getCellCount() - 1)
+			{
+				hash = (hash ^ word) * 0x9E3779B97F4A7C15L;
+				hash ^= hash >>> 29;
+				word = 0;
+			}
+		}
+		return hash;
+	}
+	
+	/**
+	 * Saves the graph to a file.
+	 * @param file The file. If it exists, it is replaced.
+	 * @throws IOException If there is a problem writing the file.
+	 */
+	public void save(File file) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeInt(rows);
+			out.writeInt(columns);
+			out.writeInt(clusterSize);
+			out.writeLong(fingerprint);
+			out.writeInt(nodeCells.length);
+			for (int cell : nodeCells)
+			{
+				out.writeInt(cell);
+			}
+			out.writeInt(edgeTarget.length);
+			for (int n = 0; n <= nodeCells.length; ++n)
+			{
+				out.writeInt(edgeStart[n]);
+			}
+			for (int e = 0; e < edgeTarget.length; ++e)
+			{
+				out.writeInt(edgeTarget[e]);
+				out.writeInt(edgeCost[e]);
+			}
+		}
+	}
+	
+	/**
+	 * Loads a graph that was saved for a maze.
+	 * @param file The file.
+	 * @param maze The maze that the graph was built for.
+	 * @return The cluster graph.
+	 * @throws IOException If the file is not a valid cluster graph, or it was built 
+	 * for a different maze, or there is a problem reading the file.
+	 */
+	public static ClusterGraph load(File file, MazeGrid maze) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != FILE_MAGIC)
+			{
+				throw new IOException(file + " is not a cluster graph file.");
+			}
+			final int version = in.readInt();
+			if (version != FILE_VERSION)
+			{
+				throw new IOException("Unsupported cluster graph version: " + version);
+			}
+			final int rows = in.readInt();
+			final int columns = in.readInt();
+			final int clusterSize = in.readInt();
+			final long fingerprint = in.readLong();
+			if (rows != maze.getRows() || columns != maze.getColumns() || fingerprint != fingerprint(maze))
+			{
+				throw new IOException(file + " was built for a different maze.");
+			}
+			
+			final int nodeCount = in.readInt();
+			if (nodeCount < 0 || nodeCount > maze.getCellCount() || clusterSize < 2)
+			{
+				throw new IOException(file + " is corrupt.");
+			}
+			int[] nodeCells = new int[nodeCount];
+			for (int n = 0; n < nodeCount; ++n)
+			{
+				nodeCells[n] = in.readInt();
+				if (nodeCells[n] < 0 || nodeCells[n] >= maze.getCellCount() || (n > 0 && nodeCells[n] <= nodeCells[n - 1]))
+				{
+					throw new IOException(file + " is corrupt.");
+				}
+			}
+			final int edgeCount = in.readInt();
+			if (edgeCount < 0)
+			{
+				throw new IOException(file + " is corrupt.");
+			}
+			int[] edgeStart = new int[nodeCount + 1];
+			for (int n = 0; n <= nodeCount; ++n)
+			{
+				edgeStart[n] = in.readInt();
+				if (edgeStart[n] < (n == 0 ? 0 : edgeStart[n - 1]) || edgeStart[n] > edgeCount)
+				{
+					throw new IOException(file + " is corrupt.");
+				}
+			}
+			int[] edgeTarget = new int[edgeCount];
+			int[] edgeCost = new int[edgeCount];
+			for (int e = 0; e < edgeCount; ++e)
+			{
+				edgeTarget[e] = in.readInt();
+				edgeCost[e] = in.readInt();
+				if (edgeTarget[e] < 0 || edgeTarget[e] >= nodeCount || edgeCost[e] <= 0)
+				{
+					throw new IOException(file + " is corrupt.");
+				}
+			}
+			if (edgeStart[nodeCount] != edgeCount)
+			{
+				throw new IOException(file + " is corrupt.");
+			}
+			return new ClusterGraph(rows, columns, clusterSize, fingerprint, nodeCells, edgeStart, edgeTarget, edgeCost);
+		}
+	}
+	
+	/**
+	 * Whether the graph was built for a maze with the same dimensions and walls.
+	 * @param maze The maze.
+	 * @return true if the graph can be used to search the maze.
+	 */
+	public boolean matches(MazeGrid maze)
+	{
+		return maze.getRows() == rows && maze.getColumns() == columns && fingerprint(maze) == fingerprint;
+	}
+	
+	/**
+	 * Returns the number of rows and columns in a cluster.
+	 * @return The cluster size.
+	 */
+	public int getClusterSize()
+	{
+		return clusterSize;
+	}
+	
+	/**
+	 * Returns the number of clusters.
+	 * @return The number of clusters.
+	 */
+	public int getClusterCount()
+	{
+		return clusterRows * clusterColumns;
+	}
+	
+	/**
+	 * Returns the number of nodes (entry points) in the graph.
+	 * @return The number of nodes.
+	 */
+	public int getNodeCount()
+	{
+		return nodeCells.length;
+	}
+	
+	/**
+	 * Returns the number of directed edges in the graph.
+	 * @return The number of edges.
+	 */
+	public int getEdgeCount()
+	{
+		return edgeTarget.length;
+	}
+	
+	/**
+	 * Returns the maze cell of a node.
+	 * @param node The node number.
+	 * @return The cell index.
+	 */
+	public int getNodeCell(int node)
+	{
+		return nodeCells[node];
+	}
+	
+	/**
+	 * Returns the cluster that contains a cell.
+	 * @param cell The cell index.
+	 * @return The cluster number, in row order.
+	 */
+	public int clusterOf(int cell)
+	{
+		return (cell / columns / clusterSize) * clusterColumns + (cell % columns) / clusterSize;
+	}
+	
+	int getEdgeStart(int node)
+	{
+		return edgeStart[node];
+	}
+	
+	int getEdgeEnd(int node)
+	{
+		return edgeStart[node + 1];
+	}
+	
+	int getEdgeTarget(int edge)
+	{
+		return edgeTarget[edge];
+	}
+	
+	int getEdgeCost(int edge)
+	{
+		return edgeCost[edge];
+	}
+	
+	int getClusterNodeStart(int cluster)
+	{
+		return clusterStart[cluster];
+	}
+	
+	int getClusterNodeEnd(int cluster)
+	{
+		return clusterStart[cluster + 1];
+	}
+	
+	int getClusterNode(int i)
+	{
+		return clusterNodes[i];
+	}
+	
+	/**
+	 * Runs a breadth-first search from a cell, confined to a cluster.
+	 * @param bfs The cluster search.
+	 * @param cluster The cluster number.
+	 * @param source The source cell.
+	 */
+	void searchCluster(ClusterBfs bfs, int cluster, int source)
+	{
+		final int top = (cluster / clusterColumns) * clusterSize;
+		final int left = (cluster % clusterColumns) * clusterSize;
+		bfs.run(top, left, Math.min(clusterSize, rows - top), Math.min(clusterSize, columns - left), source);
+	}
+	
+	
+	/**
+	 * A growable list of ints.
+	 */
+	private static class IntList
+	{
+		private int[] values = new int[64];
+		private int size;
+		
+		void add(int a, int b)
+		{
+			ensureCapacity(size + 2);
+			values[size++] = a;
+			values[size++] = b;
+		}
+		
+		void add(int a, int b, int c)
+		{
+			ensureCapacity(size + 3);
+			values[size++] = a;
+			values[size++] = b;
+			values[size++] = c;
+		}
+		
+		int get(int i)
+		{
+			return values[i];
+		}
+		
+		int size()
+		{
+			return size;
+		}
+		
+		int[] toArray()
+		{
+			return Arrays.copyOf(values, size);
+		}
+		
+		private void ensureCapacity(int capacity)
+		{
+			if (capacity > values.length)
+			{
+				values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+			}
+		}
+	}
+}
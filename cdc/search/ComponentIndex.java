@@ -0,0 +1,585 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+import cdc.maze.MazeChangeEvent;
+import cdc.maze.MazeChangeListener;
+import cdc.maze.MazeGrid;
+
+/**
+ * Labels the connected components of a maze's open cells, so that a query whose
+ * start and goal cannot reach each other is rejected in constant time, instead of
+ * by a search that drains the whole frontier. The labels are built by a flood fill,
+ * and are kept in one int per cell.
+ * <p>
+ * Add the index to the maze's change listeners, or report the changed cells with
+ * cellsChanged, and the labels are repaired incrementally. Opening a cell merges the
+ * components around it, by relabelling all but the largest of them. Closing a cell
+ * may split its component: a flood fill is run from each of its open neighbours in
+ * turn, one cell at a time, and each part that is exhausted is given a new label, so
+ * the work is proportional to the smaller parts rather than to the whole component.
+ * If the maze changes without the changes being reported, the labels are rebuilt
+ * before the next query. An index is not thread safe.
+ * @author Christopher D. Canfield
+ */
+public class ComponentIndex implements MazeChangeListener
+{
+	/** The component of a closed cell. **/
+	public static final int NO_COMPONENT = -1;
+
+	// The initial capacity of the growable buffers.
+	private static final int INITIAL_CAPACITY = 64;
+
+	// The maze.
+	private final MazeGrid maze;
+	private final int columns;
+
+	// The component label of each cell, or NO_COMPONENT if the cell is closed.
+	private final int[] label;
+	// The number of cells in each component, by label.
+	private int[] size = new int[INITIAL_CAPACITY];
+	// The labels that have been freed, and the lowest label that has never been used.
+	private int[] freeLabels = new int[INITIAL_CAPACITY];
+	private int freeLabelCount;
+	private int nextLabel;
+	// The number of labels in use.
+	private int componentCount;
+
+	// The flood fill queues, one for each open neighbour of a closed cell. The cells
+	// in a queue are the cells that its fill has labelled, so they can be relabelled.
+	private final int[][] queues = new int[4][];
+	private final int[] heads = new int[4];
+	private final int[] tails = new int[4];
+	// The open neighbours of a closed cell, the temporary label of each one's fill,
+	// and the fills that have met (a small union-find forest).
+	private final int[] seeds = new int[4];
+	private final int[] temporaryLabels = new int[4];
+	private final int[] group = new int[4];
+	private final boolean[] finished = new boolean[4];
+	// Scratch buffer for the labelled neighbours of a cell.
+	private final int[] adjacent = new int[4];
+
+	// The maze version that the labels reflect.
+	private long knownVersion;
+	// The number of times that the labels have been built from scratch.
+	private long buildCount;
+
+	/**
+	 * Instantiates an index of a maze's components, and builds it.
+	 * @param maze The maze.
+	 */
+	public ComponentIndex(MazeGrid maze)
+	{
+		this.maze = maze;
+		this.columns = maze.getColumns();
+		this.label = new int[maze.getCellCount()];
+		for (int i = 0; i < queues.length; ++i)
+		{
+			queues[i] = new int[INITIAL_CAPACITY];
+		}
+		build();
+	}
+
+	/**
+	 * Returns the maze that the index labels.
+	 * @return The maze grid.
+	 */
+	public MazeGrid getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * Whether the labels reflect the current version of the maze.
+	 * @return true if the index is up to date.
+	 */
+	public boolean isCurrent()
+	{
+		return knownVersion == maze.getVersion();
+	}
+
+	/**
+	 * Rebuilds the labels if the maze has changed without the changes being reported.
+	 * @return true if the labels were rebuilt.
+	 */
+	public boolean update()
+	{
+		if (isCurrent())
+		{
+			return false;
+		}
+		build();
+		return true;
+	}
+
+	/**
+	 * Whether a path can exist between two cells: both are open, and they are in the
+	 * same component.
+	 * @param start The index of the start cell.
+	 * @param goal The index of the goal cell.
+	 * @return true if the cells are connected.
+	 */
+	public boolean isConnected(int start, int goal)
+	{
+		update();
+		return label[start] != NO_COMPONENT && label[start] == label[goal];
+	}
+
+	/**
+	 * Returns the label of a cell's component. Labels are only stable until the next
+	 * change to the maze.
+	 * @param cell The cell index.
+	 * @return The component label, or NO_COMPONENT if the cell is closed.
+	 */
+	public int getComponent(int cell)
+	{
+		update();
+		return label[cell];
+	}
+
+	/**
+	 * Returns the number of cells in a cell's component.
+	 * @param cell The cell index.
+	 * @return The component size, or zero if the cell is closed.
+	 */
+	public int getComponentSize(int cell)
+	{
+		update();
+		return (label[cell] == NO_COMPONENT) ? 0 : size[label[cell]];
+	}
+
+	/**
+	 * Returns the number of components of open cells.
+	 * @return The component count.
+	 */
+	public int getComponentCount()
+	{
+		update();
+		return componentCount;
+	}
+
+	/**
+	 * Returns the number of times that the labels have been built from scratch,
+	 * including the build when the index was instantiated.
+	 * @return The build count.
+	 */
+	public long getBuildCount()
+	{
+		return buildCount;
+	}
+
+	/**
+	 * Reports cells that have been opened or closed since the last call, and repairs
+	 * the labels around them.
+	 * @param cells The indices of the changed cells.
+	 */
+	public void cellsChanged(int... cells)
+	{
+		for (int cell : cells)
+		{
+			cellChanged(cell);
+		}
+		knownVersion = maze.getVersion();
+	}
+
+	/**
+	 * Repairs the labels after a batch of changes to the maze. If an earlier batch
+	 * was missed, the labels are rebuilt by the next query instead.
+	 */
+	@Override
+	public void mazeChanged(MazeChangeEvent event)
+	{
+		if (event.getMaze() == maze && event.getVersion() == knownVersion + 1)
+		{
+			for (int i = 0; i < event.getCellCount(); ++i)
+			{
+				cellChanged(event.getCell(i));
+			}
+			knownVersion = event.getVersion();
+		}
+	}
+
+	/**
+	 * Builds the labels from scratch, with a flood fill from each open cell that has
+	 * not been labelled yet.
+	 */
+	private void build()
+	{
+		Arrays.fill(label, NO_COMPONENT);
+		freeLabelCount = 0;
+		nextLabel = 0;
+		componentCount = 0;
+
+		final int[] neighbours = adjacent;
+		for (int cell = 0; cell < label.length; ++cell)
+		{
+			if (label[cell] != NO_COMPONENT || !maze.isOpen(cell))
+			{
+				continue;
+			}
+
+			final int component = newLabel();
+			label[cell] = component;
+			tails[0] = 0;
+			push(0, cell);
+			for (int head = 0; head < tails[0]; ++head)
+			{
+				final int count = maze.getNeighbours(queues[0][head], neighbours);
+				for (int i = 0; i < count; ++i)
+				{
+					if (label[neighbours[i]] == NO_COMPONENT)
+					{
+						label[neighbours[i]] = component;
+						push(0, neighbours[i]);
+					}
+				}
+			}
+			size[component] = tails[0];
+		}
+
+		knownVersion = maze.getVersion();
+		++buildCount;
+	}
+
+	/**
+	 * Moves the labels of a changed cell towards the maze's state. The labelled cells
+	 * are treated as the open cells, so the cells of a batch can be repaired one at
+	 * a time.
+	 * @param cell The cell index.
+	 */
+	private void cellChanged(int cell)
+	{
+		final boolean isOpen = maze.isOpen(cell);
+		if (isOpen && label[cell] == NO_COMPONENT)
+		{
+			open(cell);
+		}
+		else if (!isOpen && label[cell] != NO_COMPONENT)
+		{
+			close(cell);
+		}
+	}
+
+	/**
+	 * Adds an opened cell to the largest component around it, and merges the other
+	 * components around it into that one.
+	 * @param cell The cell index.
+	 */
+	private void open(int cell)
+	{
+		final int count = labelledNeighbours(cell, seeds);
+		int target = NO_COMPONENT;
+		for (int i = 0; i < count; ++i)
+		{
+			final int component = label[seeds[i]];
+			if (target == NO_COMPONENT || size[component] > size[target])
+			{
+				target = component;
+			}
+		}
+		if (target == NO_COMPONENT)
+		{
+			target = newLabel();
+			size[target] = 0;
+		}
+
+		label[cell] = target;
+		++size[target];
+		for (int i = 0; i < count; ++i)
+		{
+			final int component = label[seeds[i]];
+			if (component != target)
+			{
+				size[target] += relabel(seeds[i], component, target);
+				freeLabel(component);
+			}
+		}
+	}
+
+	/**
+	 * Removes a closed cell from its component, and splits the component if the
+	 * cell's open neighbours can no longer reach each other.
+	 * @param cell The cell index.
+	 */
+	private void close(int cell)
+	{
+		final int component = label[cell];
+		label[cell] = NO_COMPONENT;
+		--size[component];
+
+		final int count = labelledNeighbours(cell, seeds);
+		if (count == 0)
+		{
+			freeLabel(component);
+		}
+		else if (count > 1)
+		{
+			// A cell with one open neighbour cannot disconnect anything.
+			split(component, count);
+		}
+	}
+
+	/**
+	 * Splits a component after one of its cells has been closed. A flood fill is run
+	 * from each of the cell's open neighbours, taking turns one cell at a time. Fills
+	 * that meet are joined. A fill (or set of joined fills) that runs out of cells has
+	 * found a whole component, which keeps a new label. Once only one fill is left,
+	 * its cells are given back the original label.
+	 * @param component The component's label.
+	 * @param count The number of open neighbours in the seeds array.
+	 */
+	private void split(int component, int count)
+	{
+		for (int i = 0; i < count; ++i)
+		{
+			temporaryLabels[i] = newLabel();
+			group[i] = i;
+			finished[i] = false;
+			heads[i] = 0;
+			tails[i] = 0;
+			label[seeds[i]] = temporaryLabels[i];
+			push(i, seeds[i]);
+		}
+
+		int active = count;
+		while (active > 1)
+		{
+			for (int i = 0; i < count && active > 1; ++i)
+			{
+				if (heads[i] == tails[i])
+				{
+					continue;
+				}
+
+				final int current = queues[i][heads[i]++];
+				final int neighbourCount = labelledNeighbours(current, adjacent);
+				for (int j = 0; j < neighbourCount; ++j)
+				{
+					final int neighbour = adjacent[j];
+					final int neighbourLabel = label[neighbour];
+					if (neighbourLabel == component)
+					{
+						label[neighbour] = temporaryLabels[i];
+						push(i, neighbour);
+					}
+					else if (neighbourLabel != temporaryLabels[i])
+					{
+						// The fill has met another fill.
+						final int a = find(i);
+						final int b = find(fillOf(neighbourLabel, count));
+						if (a != b)
+						{
+							group[b] = a;
+							--active;
+						}
+					}
+				}
+
+				if (heads[i] == tails[i] && active > 1 && isExhausted(find(i), count))
+				{
+					keepComponent(component, find(i), count);
+					--active;
+				}
+			}
+		}
+
+		// Give the cells of the remaining fill back the original label.
+		for (int i = 0; i < count; ++i)
+		{
+			if (finished[i])
+			{
+				continue;
+			}
+			for (int j = 0; j < tails[i]; ++j)
+			{
+				label[queues[i][j]] = component;
+			}
+			freeLabel(temporaryLabels[i]);
+		}
+	}
+
+	/**
+	 * Whether every fill in a group has run out of cells.
+	 * @param root The group's root fill.
+	 * @param count The number of fills.
+	 * @return true if the group has found a whole component.
+	 */
+	private boolean isExhausted(int root, int count)
+	{
+		for (int i = 0; i < count; ++i)
+		{
+			if (find(i) == root && heads[i] != tails[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the cells of an exhausted group of fills one new label, and removes them
+	 * from the size of the original component.
+	 * @param component The original component's label.
+	 * @param root The group's root fill.
+	 * @param count The number of fills.
+	 */
+	private void keepComponent(int component, int root, int count)
+	{
+		final int kept = temporaryLabels[root];
+		int total = 0;
+		for (int i = 0; i < count; ++i)
+		{
+			if (find(i) != root)
+			{
+				continue;
+			}
+			if (i != root)
+			{
+				for (int j = 0; j < tails[i]; ++j)
+				{
+					label[queues[i][j]] = kept;
+				}
+				freeLabel(temporaryLabels[i]);
+			}
+			total += tails[i];
+			finished[i] = true;
+		}
+		size[kept] = total;
+		size[component] -= total;
+	}
+
+	/**
+	 * Returns the fill that a temporary label belongs to.
+	 * @param temporaryLabel The label.
+	 * @param count The number of fills.
+	 * @return The fill's index.
+	 */
+	private int fillOf(int temporaryLabel, int count)
+	{
+		for (int i = 0; i < count; ++i)
+		{
+			if (temporaryLabels[i] == temporaryLabel)
+			{
+				return i;
+			}
+		}
+		throw new IllegalStateException("Not a fill label: " + temporaryLabel);
+	}
+
+	/**
+	 * Returns the root fill of a group of fills that have met.
+	 * @param fill The fill's index.
+	 * @return The index of the group's root fill.
+	 */
+	private int find(int fill)
+	{
+		while (group[fill] != fill)
+		{
+			fill = group[fill];
+		}
+		return fill;
+	}
+
+	/**
+	 * Relabels a component with a flood fill.
+	 * @param start A cell in the component.
+	 * @param from The component's label.
+	 * @param to The new label.
+	 * @return The number of cells that were relabelled.
+	 */
+	private int relabel(int start, int from, int to)
+	{
+		label[start] = to;
+		tails[0] = 0;
+		push(0, start);
+		for (int head = 0; head < tails[0]; ++head)
+		{
+			final int count = labelledNeighbours(queues[0][head], adjacent);
+			for (int i = 0; i < count; ++i)
+			{
+				if (label[adjacent[i]] == from)
+				{
+					label[adjacent[i]] = to;
+					push(0, adjacent[i]);
+				}
+			}
+		}
+		return tails[0];
+	}
+
+	/**
+	 * Writes the labelled neighbours of a cell into the supplied array, in the order
+	 * up, down, left, right.
+	 * @param cell The cell index.
+	 * @param neighbours Array that receives the neighbouring cell indices.
+	 * @return The number of labelled neighbours written to the array.
+	 */
+	private int labelledNeighbours(int cell, int[] neighbours)
+	{
+		final int column = cell % columns;
+		int count = 0;
+		if (cell >= columns && label[cell - columns] != NO_COMPONENT)
+		{
+			neighbours[count++] = cell - columns;
+		}
+		if (cell < label.length - columns && label[cell + columns] != NO_COMPONENT)
+		{
+			neighbours[count++] = cell + columns;
+		}
+		if (column > 0 && label[cell - 1] != NO_COMPONENT)
+		{
+			neighbours[count++] = cell - 1;
+		}
+		if (column < columns - 1 && label[cell + 1] != NO_COMPONENT)
+		{
+			neighbours[count++] = cell + 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Appends a cell to a flood fill queue.
+	 * @param queue The queue's index.
+	 * @param cell The cell index.
+	 */
+	private void push(int queue, int cell)
+	{
+		if (tails[queue] == queues[queue].length)
+		{
+			queues[queue] = Arrays.copyOf(queues[queue], Math.min(queues[queue].length * 2, label.length));
+		}
+		queues[queue][tails[queue]++] = cell;
+	}
+
+	/**
+	 * Returns an unused label.
+	 * @return The label.
+	 */
+	private int newLabel()
+	{
+		++componentCount;
+		if (freeLabelCount > 0)
+		{
+			return freeLabels[--freeLabelCount];
+		}
+		if (nextLabel == size.length)
+		{
+			size = Arrays.copyOf(size, size.length * 2);
+		}
+		return nextLabel++;
+	}
+
+	/**
+	 * Frees a label that is no longer used.
+	 * @param component The label.
+	 */
+	private void freeLabel(int component)
+	{
+		--componentCount;
+		if (freeLabelCount == freeLabels.length)
+		{
+			freeLabels = Arrays.copyOf(freeLabels, freeLabels.length * 2);
+		}
+		freeLabels[freeLabelCount++] = component;
+	}
+}
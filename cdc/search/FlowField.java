@@ -0,0 +1,292 @@
+package cdc.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+
+import cdc.maze.MazeGrid;
+import cdc.maze.Node;
+
+/**
+ * A flow field that leads every cell of a maze to one goal cell. The field is built
+ * by a breadth-first search outward from the goal, which stores each reachable cell's
+ * distance to the goal and the direction of its next step. Once the field is built,
+ * the path from any start cell is found by following the steps, in time proportional
+ * to the path length, so many searches for the same goal share the cost of one search.
+ * <p>
+ * The field records the maze version that it was built from. If the maze has changed
+ * since, the field is rebuilt before the next query. Each build is reported to the
+ * search listeners (see Search.addSearchListener) as a search named "flowField",
+ * which has found a path if the goal is open. A flow field is not thread safe.
+ * @author Christopher D. Canfield
+ */
+public class FlowField
+{
+	/** The distance of a cell that cannot reach the goal. **/
+	public static final int UNREACHABLE = -1;
+
+	// The step directions. A cell's next step is to the neighbour in its direction.
+	private static final byte NONE = 0;
+	private static final byte UP = 1;
+	private static final byte DOWN = 2;
+	private static final byte LEFT = 3;
+	private static final byte RIGHT = 4;
+
+	// The maze and goal.
+	private final MazeGrid maze;
+	private final int goal;
+
+	// The distance from each cell to the goal, or UNREACHABLE.
+	private final int[] distance;
+	// The direction of each cell's next step towards the goal.
+	private final byte[] direction;
+	// The change in cell index for each direction.
+	private final int[] offset;
+	// The breadth-first search queue.
+	private final int[] queue;
+	// Scratch buffer for MazeGrid.getNeighbours.
+	private final int[] neighbours = new int[4];
+
+	// The maze version that the field was built from.
+	private long builtVersion;
+	// The number of cells that can reach the goal.
+	private int reachableCount;
+	// The number of times that the field has been built.
+	private long buildCount;
+	// The largest size of the queue, and the duration, of the last build.
+	private int peakQueueSize;
+	private long buildNanos;
+
+	/**
+	 * Instantiates a flow field, and builds it.
+	 * @param maze The maze.
+	 * @param goal The index of the goal cell.
+	 */
+	public FlowField(MazeGrid maze, int goal)
+	{
+		if (goal < 0 || goal >= maze.getCellCount())
+		{
+			throw new IndexOutOfBoundsException("Goal: " + goal + ", cells: " + maze.getCellCount());
+		}
+		this.maze = maze;
+		this.goal = goal;
+		this.distance = new int[maze.getCellCount()];
+		this.direction = new byte[maze.getCellCount()];
+		this.offset = new int[] { 0, -maze.getColumns(), maze.getColumns(), -1, 1 };
+		this.queue = new int[maze.getCellCount()];
+		build();
+	}
+
+	/**
+	 * Returns the maze that the field leads through.
+	 * @return The maze grid.
+	 */
+	public MazeGrid getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * Returns the goal cell.
+	 * @return The index of the goal cell.
+	 */
+	public int getGoal()
+	{
+		return goal;
+	}
+
+	/**
+	 * Whether the field was built from the current version of the maze.
+	 * @return true if the field is up to date.
+	 */
+	public boolean isCurrent()
+	{
+		return builtVersion == maze.getVersion();
+	}
+
+	/**
+	 * Rebuilds the field if the maze has changed since it was built.
+	 * @return true if the field was rebuilt.
+	 */
+	public boolean update()
+	{
+		if (isCurrent())
+		{
+			return false;
+		}
+		build();
+		return true;
+	}
+
+	/**
+	 * Returns the distance from a cell to the goal.
+	 * @param cell The cell index.
+	 * @return The number of steps from the cell to the goal, or UNREACHABLE.
+	 */
+	public int getDistance(int cell)
+	{
+		update();
+		return distance[cell];
+	}
+
+	/**
+	 * Returns the next cell on the path from a cell to the goal.
+	 * @param cell The cell index.
+	 * @return The index of the next cell, or MazeGrid.NO_CELL if the cell is the goal
+	 * or cannot reach it.
+	 */
+	public int getNextCell(int cell)
+	{
+		update();
+		return (direction[cell] == NONE) ? MazeGrid.NO_CELL : cell + offset[direction[cell]];
+	}
+
+	/**
+	 * Returns the path from a cell to the goal, by following the field.
+	 * @param start The index of the start cell.
+	 * @return The cells in the path, from start to goal, or null if the start cell
+	 * cannot reach the goal.
+	 */
+	public int[] findPath(int start)
+	{
+		update();
+		if (distance[start] == UNREACHABLE)
+		{
+			return null;
+		}
+
+		int[] path = new int[distance[start] + 1];
+		int cell = start;
+		for (int i = 0; i < path.length; ++i)
+		{
+			path[i] = cell;
+			cell += offset[direction[cell]];
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the path from a cell to the goal as a SearchResult. The search result
+	 * does not include the searched nodes, because following the field is not a search.
+	 * @param start The index of the start cell.
+	 * @return The search result, or null if the start cell cannot reach the goal.
+	 */
+	public SearchResult getSearchResult(int start)
+	{
+		int[] cells = findPath(start);
+		if (cells == null)
+		{
+			return null;
+		}
+		Deque<Node> path = new ArrayDeque<Node>(cells.length);
+		for (int cell : cells)
+		{
+			path.addLast(new PathNode(maze.getNode(cell)));
+		}
+		return new SearchResult(path, Collections.<SearchNode>emptySet());
+	}
+
+	/**
+	 * Returns the number of cells that can reach the goal, including the goal.
+	 * @return The number of reachable cells.
+	 */
+	public int getReachableCount()
+	{
+		update();
+		return reachableCount;
+	}
+
+	/**
+	 * Returns the number of times that the field has been built, including the
+	 * build when it was instantiated.
+	 * @return The build count.
+	 */
+	public long getBuildCount()
+	{
+		return buildCount;
+	}
+
+	/**
+	 * Returns the metrics of the last build of the field. Following the field does
+	 * no search, so the results of getSearchResult report SearchMetrics.NONE.
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		return new SearchMetrics(reachableCount, reachableCount, 0, peakQueueSize, 0, buildNanos);
+	}
+
+	/**
+	 * Builds the field with a breadth-first search outward from the goal, and reports
+	 * it to the search listeners. Each cell's step is towards the neighbour that
+	 * first reached it.
+	 */
+	private void build()
+	{
+		final long startNanos = System.nanoTime();
+		search();
+		buildNanos = System.nanoTime() - startNanos;
+		Search.fireSearchFinished("flowField", reachableCount > 0, getMetrics());
+	}
+
+	/**
+	 * Runs the breadth-first search that builds the field.
+	 */
+	private void search()
+	{
+		Arrays.fill(distance, UNREACHABLE);
+		Arrays.fill(direction, NONE);
+		builtVersion = maze.getVersion();
+		++buildCount;
+		reachableCount = 0;
+		peakQueueSize = 0;
+		if (!maze.isOpen(goal))
+		{
+			return;
+		}
+
+		final int columns = maze.getColumns();
+		int head = 0;
+		int tail = 0;
+		distance[goal] = 0;
+		queue[tail++] = goal;
+		peakQueueSize = 1;
+		while (head < tail)
+		{
+			final int cell = queue[head++];
+			final int count = maze.getNeighbours(cell, neighbours);
+			for (int i = 0; i < count; ++i)
+			{
+				final int neighbour = neighbours[i];
+				if (distance[neighbour] == UNREACHABLE)
+				{
+					distance[neighbour] = distance[cell] + 1;
+					// The neighbour steps back towards the cell.
+					if (neighbour == cell - columns)
+					{
+						direction[neighbour] = DOWN;
+					}
+					else if (neighbour == cell + columns)
+					{
+						direction[neighbour] = UP;
+					}
+					else if (neighbour == cell - 1)
+					{
+						direction[neighbour] = RIGHT;
+					}
+					else
+					{
+						direction[neighbour] = LEFT;
+					}
+					queue[tail++] = neighbour;
+				}
+			}
+			if (tail - head > peakQueueSize)
+			{
+				peakQueueSize = tail - head;
+			}
+		}
+		reachableCount = tail;
+	}
+}
@@ -0,0 +1,84 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+/**
+ * The generation stamps of a reusable search, which let the search keep its arrays
+ * between searches without clearing them. Each search begins a new generation, and
+ * an entry is only generated (reached) or closed (expanded) in the current search if
+ * its stamp matches one of the generation's two stamp values. When the stamp values
+ * would overflow, the stamps are cleared and the generations start again.
+ * @author Christopher D. Canfield
+ */
+final class GenerationStamps
+{
+	// The generation in which each entry was last generated or closed.
+	private final int[] stamp;
+	// Stamp value for entries that are generated in the current generation.
+	private int openStamp;
+	// Stamp value for entries that are closed in the current generation.
+	private int closedStamp;
+
+	/**
+	 * Instantiates the stamps. No entry is generated until the first generation begins.
+	 * @param size The number of entries.
+	 */
+	GenerationStamps(int size)
+	{
+		this.stamp = new int[size];
+	}
+
+	/**
+	 * Begins a new generation, in which no entry is generated.
+	 */
+	void next()
+	{
+		if (closedStamp >= Integer.MAX_VALUE - 2)
+		{
+			// The stamp values would run out, so clear the stamps and start again.
+			Arrays.fill(stamp, 0);
+			closedStamp = 0;
+		}
+		openStamp = closedStamp + 1;
+		closedStamp = openStamp + 1;
+	}
+
+	/**
+	 * Whether the entry has been generated in the current generation.
+	 * @param index The entry's index.
+	 * @return true if the entry is open or closed.
+	 */
+	boolean isGenerated(int index)
+	{
+		final int value = stamp[index];
+		return value == openStamp || value == closedStamp;
+	}
+
+	/**
+	 * Whether the entry has been closed in the current generation.
+	 * @param index The entry's index.
+	 * @return true if the entry is closed.
+	 */
+	boolean isClosed(int index)
+	{
+		return stamp[index] == closedStamp;
+	}
+
+	/**
+	 * Marks the entry as generated and open.
+	 * @param index The entry's index.
+	 */
+	void open(int index)
+	{
+		stamp[index] = openStamp;
+	}
+
+	/**
+	 * Marks the entry as closed.
+	 * @param index The entry's index.
+	 */
+	void close(int index)
+	{
+		stamp[index] = closedStamp;
+	}
+}
@@ -0,0 +1,19 @@
+package cdc.search;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * Interface for A* search heuristics that work directly on MazeGrid cell indices.
+ * @author Christopher D. Canfield
+ */
+public interface GridHeuristic
+{
+	/**
+	 * Calculates the distance cost between two cells.
+	 * @param maze The maze grid that contains the cells.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @return The estimated cost from the start cell to the end cell.
+	 */
+	public int calculateCost(MazeGrid maze, int start, int end);
+}
@@ -0,0 +1,249 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * Contains an A* search engine that works on MazeGrid cell indices. Unlike
+ * Search.aStar, it does not create any objects per cell: the g costs and parent
+ * links are kept in the primitive arrays of a SearchContext, and the frontier is
+ * an indexed binary heap that supports decrease-key.
+ * <p>
+ * The weighted A* search trades path cost for speed: it inflates the heuristic by
+ * a weight (epsilon), which makes the search greedier, and finds a path that costs
+ * at most epsilon times the optimal cost.
+ * @author Christopher D. Canfield
+ */
+public class GridSearch
+{
+	/**
+	 * Performs an A* search between the start and end cell. The path and the set
+	 * of reached cells are stored in the context, which can be reused for the
+	 * next search.
+	 * @param context The search context for the maze.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * @return true if a path was found, or false if no path from the start to end
+	 * can be found, or if the search was stopped by a limit (see SearchContext.getStatus).
+	 */
+	public static boolean aStar(SearchContext context, int start, int end, GridHeuristic heuristic)
+	{
+		final MazeGrid maze = context.getMaze();
+		final int[] g = context.g;
+		final int[] neighbours = context.neighbours;
+		final IndexedHeap frontier = context.frontier;
+
+		context.begin();
+
+		// Add the start cell to the frontier.
+		context.generate(start, SearchContext.NO_PARENT, 0);
+		final int startH = heuristic.calculateCost(maze, start, end);
+		++context.heuristicCallCount;
+		frontier.insertOrUpdate(start, startH, startH);
+
+		while (!frontier.isEmpty())
+		{
+			if (context.limitReached(context.expandedCount))
+			{
+				context.buildPartialPath();
+				context.finish();
+				return false;
+			}
+
+			final int currentH = frontier.peekSecondary();
+			final int current = frontier.pop();
+			context.close(current, currentH);
+
+			if (current == end)
+			{
+				context.buildPath(current);
+				context.status = SearchStatus.FOUND;
+				context.finish();
+				return true;
+			}
+
+			// Every move between neighbouring cells costs 1.
+			final int cost = g[current] + 1;
+			final int count = maze.getNeighbours(current, neighbours);
+			for (int i = 0; i < count; ++i)
+			{
+				final int edge = neighbours[i];
+
+				// Skip the edge if it has already been reached at the same or lower cost.
+				// A closed cell is only reopened if the heuristic is inconsistent.
+				if (context.isGenerated(edge) && g[edge] <= cost)
+				{
+					continue;
+				}
+
+				final int h = heuristic.calculateCost(maze, edge, end);
+				++context.heuristicCallCount;
+				context.generate(edge, current, cost);
+				frontier.insertOrUpdate(edge, cost + h, h);
+			}
+		}
+
+		// No path can be found from the start cell to the end cell.
+		context.finish();
+		return false;
+	}
+
+	/**
+	 * Performs a weighted A* search between the start and end cell, which orders the
+	 * frontier by g + epsilon * h. With a consistent heuristic, the path costs at most
+	 * epsilon times the optimal cost. Expanded cells are not reopened: a cell that is
+	 * reached at a lower cost after it has been expanded has its cost and parent
+	 * updated, but is not expanded again, as in the first iteration of ARA*. The bound
+	 * that was actually achieved, which is often much lower than epsilon, is calculated
+	 * from the cells left in the frontier and stored in the context (see
+	 * SearchContext.getSuboptimalityBound).
+	 * @param context The search context for the maze.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be consistent.
+	 * @param epsilon The heuristic weight. Must be at least 1; a weight of 1 is an
+	 * ordinary A* search.
+	 * @return true if a path was found, or false if no path from the start to end
+	 * can be found, or if the search was stopped by a limit (see SearchContext.getStatus).
+	 */
+	public static boolean weightedAStar(SearchContext context, int start, int end, GridHeuristic heuristic,
+			double epsilon)
+	{
+		if (!(epsilon >= 1.0) || Double.isInfinite(epsilon))
+		{
+			throw new IllegalArgumentException("epsilon must be at least 1: " + epsilon);
+		}
+		
+		final MazeGrid maze = context.getMaze();
+		final int[] g = context.g;
+		final int[] neighbours = context.neighbours;
+		final IndexedHeap frontier = context.frontier;
+		// The expanded cells that were later reached at a lower cost.
+		int[] inconsistent = null;
+		int inconsistentCount = 0;
+
+		context.begin();
+
+		// Add the start cell to the frontier.
+		context.generate(start, SearchContext.NO_PARENT, 0);
+		final int startH = heuristic.calculateCost(maze, start, end);
+		++context.heuristicCallCount;
+		frontier.insertOrUpdate(start, weightedCost(0, startH, epsilon), startH);
+
+		while (!frontier.isEmpty())
+		{
+			if (context.limitReached(context.expandedCount))
+			{
+				context.buildPartialPath();
+				context.finish();
+				return false;
+			}
+
+			final int currentH = frontier.peekSecondary();
+			final int current = frontier.pop();
+			context.close(current, currentH);
+
+			if (current == end)
+			{
+				context.buildPath(current);
+				context.suboptimalityBound = achievedBound(context, end, heuristic, epsilon,
+						inconsistent, inconsistentCount);
+				context.status = SearchStatus.FOUND;
+				context.finish();
+				return true;
+			}
+
+			final int cost = g[current] + 1;
+			final int count = maze.getNeighbours(current, neighbours);
+			for (int i = 0; i < count; ++i)
+			{
+				final int edge = neighbours[i];
+
+				if (context.isGenerated(edge) && g[edge] <= cost)
+				{
+					continue;
+				}
+				if (context.isClosed(edge))
+				{
+					// Reopening the cell could expand much of the maze again, so only its
+					// cost is lowered. It is remembered for the bound calculation.
+					context.lowerCost(edge, current, cost);
+					if (inconsistent == null)
+					{
+						inconsistent = new int[16];
+					}
+					else if (inconsistentCount == inconsistent.length)
+					{
+						inconsistent = Arrays.copyOf(inconsistent, inconsistentCount * 2);
+					}
+					inconsistent[inconsistentCount++] = edge;
+					continue;
+				}
+
+				final int h = heuristic.calculateCost(maze, edge, end);
+				++context.heuristicCallCount;
+				context.generate(edge, current, cost);
+				frontier.insertOrUpdate(edge, weightedCost(cost, h, epsilon), h);
+			}
+		}
+
+		// No path can be found from the start cell to the end cell.
+		context.finish();
+		return false;
+	}
+
+	/**
+	 * Returns the weighted A* priority of a cell, g + epsilon * h, rounded down.
+	 * Rounding down keeps the cost bound.
+	 * @param g The cost from the start cell.
+	 * @param h The heuristic estimate to the end cell.
+	 * @param epsilon The heuristic weight.
+	 * @return The priority.
+	 */
+	static int weightedCost(int g, int h, double epsilon)
+	{
+		return (int)Math.min(Integer.MAX_VALUE, g + Math.floor(epsilon * h));
+	}
+
+	/**
+	 * Calculates the suboptimality bound achieved by a weighted search. An optimal
+	 * path always has a cell in the frontier, or among the expanded cells whose cost
+	 * was later lowered, that was reached at its optimal cost. So the lowest unweighted
+	 * g + h of those cells is a lower bound on the optimal cost.
+	 * @param context The context of a weighted search that has found a path.
+	 * @param end The end cell.
+	 * @param heuristic The heuristic used by the search.
+	 * @param epsilon The heuristic weight used by the search.
+	 * @param inconsistent The expanded cells whose cost was later lowered, or null.
+	 * @param inconsistentCount The number of those cells.
+	 * @return The suboptimality bound, from 1 to epsilon.
+	 */
+	private static double achievedBound(SearchContext context, int end, GridHeuristic heuristic, double epsilon,
+			int[] inconsistent, int inconsistentCount)
+	{
+		final MazeGrid maze = context.getMaze();
+		final IndexedHeap frontier = context.frontier;
+		// A parent's cost may have been lowered after it became the parent, so the
+		// path can be cheaper than g[end].
+		final int pathCost = context.getPathLength() - 1;
+		int lowerBound = pathCost;
+		for (int slot = 0; slot < frontier.size(); ++slot)
+		{
+			final int cell = frontier.cellAt(slot);
+			lowerBound = Math.min(lowerBound, context.g[cell] + heuristic.calculateCost(maze, cell, end));
+		}
+		for (int i = 0; i < inconsistentCount; ++i)
+		{
+			final int cell = inconsistent[i];
+			lowerBound = Math.min(lowerBound, context.g[cell] + heuristic.calculateCost(maze, cell, end));
+		}
+		if (lowerBound <= 0)
+		{
+			return 1.0;
+		}
+		return Math.min(epsilon, (double)pathCost / lowerBound);
+	}
+}
@@ -0,0 +1,410 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * Answers path queries with hierarchical pathfinding (HPA*). The start and end
+ * cells are connected to the entry points of their clusters by local searches,
+ * an A* search is run on the ClusterGraph, and each edge of the abstract path is
+ * then refined into cells by a local search within its cluster. Each query only
+ * searches three clusters at the cell level, however far apart the cells are.
+ * <p>
+ * The paths are not always optimal, because they must pass through the entry
+ * points, but are normally within a few percent of the optimal length. A
+ * HierarchicalSearch reuses its arrays between queries, and is not thread safe;
+ * use one per thread. The ClusterGraph can be shared between threads.
+ * @author Christopher D. Canfield
+ */
+public class HierarchicalSearch
+{
+	// The maze and its cluster graph.
+	private final MazeGrid maze;
+	private final ClusterGraph graph;
+	// The local search used to connect and refine paths.
+	private final ClusterBfs bfs;
+	
+	// The temporary abstract nodes for the start and end cells of a query.
+	private final int startNode;
+	private final int endNode;
+	
+	// The working state of the abstract search, indexed by node.
+	private final int[] g;
+	private final int[] parent;
+	private final GenerationStamps stamps;
+	private final IndexedHeap frontier;
+	// The nodes that were generated by the abstract search.
+	private final int[] generated;
+	private int generatedCount;
+	
+	// The abstract nodes in the start cell's cluster that it can reach, and their distances.
+	private final int[] startLinkNode;
+	private final int[] startLinkCost;
+	private int startLinkCount;
+	// The distance from each node in the end cell's cluster to the end cell, valid
+	// if the node is generated in the end stamps.
+	private final int[] endCost;
+	private final GenerationStamps endStamps;
+	
+	// The start and end cells of the current query.
+	private int queryStart;
+	private int queryEnd;
+	// The abstract path, from the end node back to the start node.
+	private final int[] abstractPath;
+	
+	// The path found by the last query, from start to end.
+	private int[] path = new int[64];
+	private int pathLength;
+	private int pathCost;
+	// The number of abstract nodes expanded by the last query.
+	private long expandedCount;
+	// The work done by the last query: the abstract nodes reached again at a lower
+	// cost, the heuristic calls, and the cells reached by the local searches.
+	private long reopenedCount;
+	private long heuristicCallCount;
+	private long localCellCount;
+	// The largest frontier of the abstract search or queue of a local search.
+	private int peakFrontierSize;
+	private long startNanos;
+	private long elapsedNanos;
+	
+	/**
+	 * Instantiates a hierarchical search.
+	 * @param maze The maze.
+	 * @param graph The cluster graph of the maze.
+	 * @throws IllegalArgumentException If the graph was built for a different maze.
+	 */
+	public HierarchicalSearch(MazeGrid maze, ClusterGraph graph)
+	{
+		if (!graph.matches(maze))
+		{
+			throw new IllegalArgumentException("The cluster graph was built for a different maze.");
+		}
+		this.maze = maze;
+		this.graph = graph;
+		this.bfs = new ClusterBfs(maze, graph.getClusterSize());
+		
+		final int nodeCount = graph.getNodeCount() + 2;
+		this.startNode = nodeCount - 2;
+		this.endNode = nodeCount - 1;
+		this.g = new int[nodeCount];
+		this.parent = new int[nodeCount];
+		this.stamps = new GenerationStamps(nodeCount);
+		this.frontier = new IndexedHeap(nodeCount);
+		this.generated = new int[nodeCount];
+		this.abstractPath = new int[nodeCount];
+		this.startLinkNode = new int[nodeCount];
+		this.startLinkCost = new int[nodeCount];
+		this.endCost = new int[nodeCount];
+		this.endStamps = new GenerationStamps(nodeCount);
+	}
+	
+	/**
+	 * Finds a path between the start and end cell. The path is stored in this object.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @return true if a path was found, or false if no path from the start to end
+	 * can be found.
+	 */
+	public boolean search(int start, int end)
+	{
+		begin();
+		queryStart = start;
+		queryEnd = end;
+		
+		// Connect the end cell to the entry points of its cluster.
+		final int startCluster = graph.clusterOf(start);
+		final int endCluster = graph.clusterOf(end);
+		searchCluster(endCluster, end);
+		for (int i = graph.getClusterNodeStart(endCluster); i < graph.getClusterNodeEnd(endCluster); ++i)
+		{
+			final int node = graph.getClusterNode(i);
+			final int distance = bfs.distanceTo(graph.getNodeCell(node));
+			if (distance >= 0)
+			{
+				endCost[node] = distance;
+				endStamps.open(node);
+			}
+		}
+		// If the cells share a cluster, they may be joined by a local path.
+		final int directCost = (startCluster == endCluster) ? bfs.distanceTo(start) : -1;
+		
+		// Connect the start cell to the entry points of its cluster.
+		searchCluster(startCluster, start);
+		for (int i = graph.getClusterNodeStart(startCluster); i < graph.getClusterNodeEnd(startCluster); ++i)
+		{
+			final int node = graph.getClusterNode(i);
+			final int distance = bfs.distanceTo(graph.getNodeCell(node));
+			if (distance >= 0)
+			{
+				startLinkNode[startLinkCount] = node;
+				startLinkCost[startLinkCount++] = distance;
+			}
+		}
+		if (directCost >= 0)
+		{
+			startLinkNode[startLinkCount] = endNode;
+			startLinkCost[startLinkCount++] = directCost;
+		}
+		
+		// Search the abstract graph.
+		relax(startNode, SearchContext.NO_PARENT, 0);
+		while (!frontier.isEmpty())
+		{
+			final int current = frontier.pop();
+			stamps.close(current);
+			++expandedCount;
+			
+			if (current == endNode)
+			{
+				pathCost = g[endNode];
+				refinePath();
+				finish();
+				return true;
+			}
+			
+			if (current == startNode)
+			{
+				for (int i = 0; i < startLinkCount; ++i)
+				{
+					relax(startLinkNode[i], current, startLinkCost[i]);
+				}
+				continue;
+			}
+			for (int edge = graph.getEdgeStart(current); edge < graph.getEdgeEnd(current); ++edge)
+			{
+				relax(graph.getEdgeTarget(edge), current, g[current] + graph.getEdgeCost(edge));
+			}
+			if (endStamps.isGenerated(current))
+			{
+				relax(endNode, current, g[current] + endCost[current]);
+			}
+		}
+		
+		// No path can be found from the start cell to the end cell.
+		finish();
+		return false;
+	}
+	
+	/**
+	 * Resets the working state for a new query.
+	 */
+	private void begin()
+	{
+		stamps.next();
+		endStamps.next();
+		frontier.clear();
+		generatedCount = 0;
+		startLinkCount = 0;
+		pathLength = 0;
+		pathCost = 0;
+		expandedCount = 0;
+		reopenedCount = 0;
+		heuristicCallCount = 0;
+		localCellCount = 0;
+		peakFrontierSize = 0;
+		elapsedNanos = 0;
+		startNanos = System.nanoTime();
+	}
+	
+	/**
+	 * Records the end of the current query.
+	 */
+	private void finish()
+	{
+		peakFrontierSize = Math.max(peakFrontierSize, frontier.peakSize());
+		elapsedNanos = System.nanoTime() - startNanos;
+	}
+	
+	/**
+	 * Runs a local search within a cluster, and adds its work to the query's metrics.
+	 * @param cluster The cluster.
+	 * @param source The source cell, which must be in the cluster.
+	 */
+	private void searchCluster(int cluster, int source)
+	{
+		graph.searchCluster(bfs, cluster, source);
+		localCellCount += bfs.reachedCount();
+		peakFrontierSize = Math.max(peakFrontierSize, bfs.peakQueueSize());
+	}
+	
+	/**
+	 * Records a path to an abstract node if it is the cheapest found so far.
+	 * @param node The node.
+	 * @param from The node's parent.
+	 * @param cost The cost from the start cell to the node.
+	 */
+	private void relax(int node, int from, int cost)
+	{
+		final boolean isGenerated = stamps.isGenerated(node);
+		if (isGenerated && g[node] <= cost)
+		{
+			return;
+		}
+		if (!isGenerated)
+		{
+			generated[generatedCount++] = node;
+		}
+		else if (stamps.isClosed(node))
+		{
+			++reopenedCount;
+		}
+		stamps.open(node);
+		g[node] = cost;
+		parent[node] = from;
+		
+		final int cell = cellOf(node);
+		final int h = Math.abs(maze.rowOf(cell) - maze.rowOf(queryEnd)) +
+				Math.abs(maze.columnOf(cell) - maze.columnOf(queryEnd));
+		++heuristicCallCount;
+		frontier.insertOrUpdate(node, cost + h, h);
+	}
+	
+	/**
+	 * Refines the abstract path that ends at the end node into cells.
+	 */
+	private void refinePath()
+	{
+		// Follow the parent links back from the end node.
+		int abstractLength = 0;
+		for (int node = endNode; node != SearchContext.NO_PARENT; node = parent[node])
+		{
+			abstractPath[abstractLength++] = node;
+		}
+		
+		// The path has one cell per unit of cost, plus the start cell.
+		if (pathCost + 1 > path.length)
+		{
+			path = new int[Math.max(pathCost + 1, Math.min(path.length * 2, maze.getCellCount()))];
+		}
+		pathLength = 0;
+		path[pathLength++] = queryStart;
+		for (int i = abstractLength - 2; i >= 0; --i)
+		{
+			final int from = path[pathLength - 1];
+			final int to = cellOf(abstractPath[i]);
+			if (graph.clusterOf(from) != graph.clusterOf(to))
+			{
+				// An edge between clusters joins two adjacent cells.
+				path[pathLength++] = to;
+			}
+			else
+			{
+				searchCluster(graph.clusterOf(to), to);
+				pathLength = bfs.tracePath(from, path, pathLength);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of cells in the path found by the last query.
+	 * @return The path length, or zero if no path was found.
+	 */
+	public int getPathLength()
+	{
+		return pathLength;
+	}
+	
+	/**
+	 * Returns a cell in the path found by the last query.
+	 * @param i The position in the path, starting with 0 for the start cell.
+	 * @return The cell index.
+	 */
+	public int getPathCell(int i)
+	{
+		if (i < 0 || i >= pathLength)
+		{
+			throw new IndexOutOfBoundsException("Path index: " + i + ", length: " + pathLength);
+		}
+		return path[i];
+	}
+	
+	/**
+	 * Copies the path found by the last query into a new array.
+	 * @return The cells in the path, from start to end.
+	 */
+	public int[] copyPath()
+	{
+		return Arrays.copyOf(path, pathLength);
+	}
+	
+	/**
+	 * Returns the cost of the path found by the last query.
+	 * @return The path cost, or zero if no path was found.
+	 */
+	public int getPathCost()
+	{
+		return pathCost;
+	}
+	
+	/**
+	 * Returns the number of abstract nodes expanded by the last query.
+	 * @return The number of expanded nodes.
+	 */
+	public long getExpandedCount()
+	{
+		return expandedCount;
+	}
+	
+	/**
+	 * Returns the metrics of the last query. The counts cover both levels of the
+	 * search: the abstract nodes expanded and reached by the A* search, plus the cells
+	 * reached by the local searches that connect the query to the graph and refine the
+	 * path. A cell reached by more than one local search is counted once for each. The
+	 * peak frontier size is the larger of the abstract frontier and the largest local
+	 * queue; reopenings and heuristic calls only occur in the abstract search.
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		return new SearchMetrics(expandedCount + localCellCount, generatedCount + localCellCount,
+				reopenedCount, peakFrontierSize, heuristicCallCount, elapsedNanos);
+	}
+	
+	/**
+	 * Returns the number of abstract nodes reached by the last query: the entry points,
+	 * and the start and end cells.
+	 * @return The number of generated abstract nodes.
+	 */
+	public int getGeneratedCount()
+	{
+		return generatedCount;
+	}
+	
+	/**
+	 * Returns the cell of an abstract node reached by the last query.
+	 * @param i The position in generation order, starting with 0.
+	 * @return The cell index.
+	 */
+	public int getGeneratedCell(int i)
+	{
+		if (i < 0 || i >= generatedCount)
+		{
+			throw new IndexOutOfBoundsException("Index: " + i + ", count: " + generatedCount);
+		}
+		return cellOf(generated[i]);
+	}
+	
+	/**
+	 * Returns the cost from the start cell to an abstract node reached by the last query.
+	 * @param i The position in generation order, starting with 0.
+	 * @return The g cost of the node.
+	 */
+	public int getGeneratedCost(int i)
+	{
+		if (i < 0 || i >= generatedCount)
+		{
+			throw new IndexOutOfBoundsException("Index: " + i + ", count: " + generatedCount);
+		}
+		return g[generated[i]];
+	}
+	
+	/**
+	 * Returns the cell of an abstract node.
+	 */
+	private int cellOf(int node)
+	{
+		return (node == startNode) ? queryStart : (node == endNode) ? queryEnd : graph.getNodeCell(node);
+	}
+}
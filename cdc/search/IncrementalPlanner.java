@@ -0,0 +1,398 @@
+package cdc.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import cdc.maze.MazeChangeEvent;
+import cdc.maze.MazeChangeListener;
+import cdc.maze.MazeGrid;
+import cdc.maze.Node;
+
+/**
+ * An incremental path planner, based on Lifelong Planning A* (LPA*). The planner
+ * keeps its search state between calls. When cells of the maze are opened or closed,
+ * only the cells whose cost from the start has changed are searched again, so small
+ * edits to a large maze are repaired far faster than a new search.
+ * <p>
+ * Each cell has a g value (its cost from the start, as of the last search) and an
+ * rhs value (one more than the lowest g of its open neighbours). A cell whose g
+ * and rhs differ is inconsistent, and is kept in the frontier, ordered by the key
+ * [min(g, rhs) + h, min(g, rhs)]. Changing a cell only makes that cell and its
+ * neighbours inconsistent, and the search stops as soon as the goal is consistent
+ * and no cell in the frontier could improve it.
+ * <p>
+ * Usage: change the maze, report the changed cells with cellsChanged, then call
+ * replan. Alternatively, add the planner to the maze's change listeners, and the
+ * changes are reported automatically. Each replan is reported to the search listeners
+ * (see Search.addSearchListener) as a search named "incrementalPlanner". A planner is
+ * not thread safe.
+ * @author Christopher D. Canfield
+ */
+public class IncrementalPlanner implements MazeChangeListener
+{
+	// The cost of an unreachable cell. Small enough that adding a cost and a
+	// heuristic to it does not overflow.
+	private static final int INFINITY = Integer.MAX_VALUE / 4;
+	
+	// The maze, start and goal.
+	private final MazeGrid maze;
+	private final int start;
+	private final int goal;
+	private final GridHeuristic heuristic;
+	
+	// The cost from the start to each cell, as of the last search.
+	private final int[] g;
+	// The cost from the start to each cell, based on its neighbours' g values.
+	private final int[] rhs;
+	// The inconsistent cells.
+	private final IndexedHeap frontier;
+	// Scratch buffers for the open neighbours of a cell, and for all of its neighbours.
+	private final int[] neighbours = new int[4];
+	private final int[] adjacent = new int[4];
+	
+	// The maze version that the search state reflects.
+	private long knownVersion;
+	
+	// The cells expanded by the last replan.
+	private int[] expanded = new int[64];
+	private int expandedCount;
+	
+	// The cells reached and expanded by the last replan, and the rest of its work.
+	private final GenerationStamps reached;
+	private long generatedCount;
+	private long reopenedCount;
+	private long heuristicCallCount;
+	private long elapsedNanos;
+	
+	/**
+	 * Instantiates a planner, and searches for the initial path.
+	 * @param maze The maze.
+	 * @param start The index of the start cell.
+	 * @param goal The index of the goal cell.
+	 * @param heuristic The heuristic function to use when calculating the "h" value.
+	 * It must be consistent.
+	 */
+	public IncrementalPlanner(MazeGrid maze, int start, int goal, GridHeuristic heuristic)
+	{
+		this.maze = maze;
+		this.start = start;
+		this.goal = goal;
+		this.heuristic = heuristic;
+		this.g = new int[maze.getCellCount()];
+		this.rhs = new int[maze.getCellCount()];
+		this.frontier = new IndexedHeap(maze.getCellCount());
+		this.reached = new GenerationStamps(maze.getCellCount());
+		reset();
+		replan();
+	}
+	
+	/**
+	 * Reports cells that have been opened or closed since the last call. The search
+	 * state around the cells is updated, ready for replan.
+	 * @param cells The indices of the changed cells.
+	 */
+	public void cellsChanged(int... cells)
+	{
+		for (int cell : cells)
+		{
+			cellChanged(cell);
+		}
+		knownVersion = maze.getVersion();
+	}
+	
+	/**
+	 * Updates the search state around a changed cell.
+	 * @param cell The cell index.
+	 */
+	private void cellChanged(int cell)
+	{
+		updateCell(cell);
+		final int count = allNeighbours(cell);
+		for (int i = 0; i < count; ++i)
+		{
+			updateCell(adjacent[i]);
+		}
+	}
+	
+	/**
+	 * Reports the cells changed by a batch of changes to the maze. If an earlier batch
+	 * was missed, the whole maze is searched again by the next replan instead.
+	 */
+	@Override
+	public void mazeChanged(MazeChangeEvent event)
+	{
+		if (event.getMaze() == maze && event.getVersion() == knownVersion + 1)
+		{
+			for (int i = 0; i < event.getCellCount(); ++i)
+			{
+				cellChanged(event.getCell(i));
+			}
+			knownVersion = event.getVersion();
+		}
+	}
+	
+	/**
+	 * Repairs the path after cells have changed. If the maze has changed since the 
+	 * last call without the changes being reported to cellsChanged, the planner
+	 * cannot know which cells changed, so it searches the whole maze again.
+	 * @return true if there is a path from the start to the goal.
+	 */
+	public boolean replan()
+	{
+		final long startNanos = System.nanoTime();
+		if (maze.getVersion() != knownVersion)
+		{
+			reset();
+		}
+		expandedCount = 0;
+		reached.next();
+		generatedCount = 0;
+		reopenedCount = 0;
+		heuristicCallCount = 0;
+		frontier.resetPeakSize();
+		
+		while (!frontier.isEmpty() &&
+				(frontier.peekKey() < key(goal) || rhs[goal] != g[goal]))
+		{
+			final int cell = frontier.pop();
+			recordExpanded(cell);
+			
+			if (g[cell] > rhs[cell])
+			{
+				// The cell's cost has fallen.
+				g[cell] = rhs[cell];
+			}
+			else
+			{
+				// The cell's cost has risen; make it unreachable, and let its
+				// neighbours find it a new cost.
+				g[cell] = INFINITY;
+				updateCell(cell);
+			}
+			
+			final int count = allNeighbours(cell);
+			for (int i = 0; i < count; ++i)
+			{
+				updateCell(adjacent[i]);
+			}
+		}
+		
+		elapsedNanos = System.nanoTime() - startNanos;
+		final boolean found = g[goal] < INFINITY;
+		Search.fireSearchFinished("incrementalPlanner", found, getMetrics());
+		return found;
+	}
+	
+	/**
+	 * Returns the path found by the last replan.
+	 * @return The cells in the path, from start to goal, or null if there is no path.
+	 * @throws IllegalStateException If the maze has changed since the last replan, and
+	 * the path is no longer open.
+	 */
+	public int[] getPath()
+	{
+		if (g[goal] >= INFINITY)
+		{
+			return null;
+		}
+		
+		// Walk back from the goal, always to a neighbour that is one step closer to the start.
+		int[] path = new int[g[goal] + 1];
+		int cell = goal;
+		path[g[goal]] = goal;
+		for (int i = g[goal] - 1; i >= 0; --i)
+		{
+			final int count = maze.getNeighbours(cell, neighbours);
+			int next = MazeGrid.NO_CELL;
+			for (int n = 0; n < count; ++n)
+			{
+				if (g[neighbours[n]] == g[cell] - 1)
+				{
+					next = neighbours[n];
+					break;
+				}
+			}
+			if (next == MazeGrid.NO_CELL)
+			{
+				throw new IllegalStateException("The maze has changed since the last replan.");
+			}
+			path[i] = next;
+			cell = next;
+		}
+		return path;
+	}
+	
+	/**
+	 * Returns the path found by the last replan as a SearchResult. The searched
+	 * nodes are the cells that the last replan expanded.
+	 * @return The search result, or null if there is no path.
+	 * @throws IllegalStateException If the maze has changed since the last replan, and
+	 * the path is no longer open.
+	 */
+	public SearchResult getSearchResult()
+	{
+		int[] cells = getPath();
+		if (cells == null)
+		{
+			return null;
+		}
+		Deque<Node> path = new ArrayDeque<Node>(cells.length);
+		for (int cell : cells)
+		{
+			path.addLast(new PathNode(maze.getNode(cell)));
+		}
+		Set<SearchNode> searched = new HashSet<SearchNode>(expandedCount * 2);
+		for (int i = 0; i < expandedCount; ++i)
+		{
+			final int cell = expanded[i];
+			searched.add(new SearchNode(maze.getNode(cell), null, Math.min(g[cell], rhs[cell]),
+					heuristic.calculateCost(maze, cell, goal)));
+		}
+		return new SearchResult(path, searched, getMetrics());
+	}
+	
+	/**
+	 * Returns the cost of the path found by the last replan.
+	 * @return The path cost, or -1 if there is no path.
+	 */
+	public int getPathCost()
+	{
+		return (g[goal] < INFINITY) ? g[goal] : -1;
+	}
+	
+	/**
+	 * Returns the number of cells expanded by the last replan.
+	 * @return The number of expanded cells.
+	 */
+	public long getExpandedCount()
+	{
+		return expandedCount;
+	}
+	
+	/**
+	 * Returns the metrics of the last replan. The counts cover the repair made by
+	 * replan, but not the updates made when the changed cells were reported. The
+	 * reopened count is the number of times that a cell expanded by the replan was
+	 * made inconsistent again, and so returned to the frontier.
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		return new SearchMetrics(expandedCount, generatedCount, reopenedCount, frontier.peakSize(),
+				heuristicCallCount, elapsedNanos);
+	}
+	
+	/**
+	 * Discards the search state, so the next replan searches from scratch.
+	 */
+	private void reset()
+	{
+		Arrays.fill(g, INFINITY);
+		Arrays.fill(rhs, INFINITY);
+		frontier.clear();
+		rhs[start] = 0;
+		insert(start);
+		knownVersion = maze.getVersion();
+	}
+	
+	/**
+	 * Recalculates a cell's rhs value, and adds it to the frontier if it is inconsistent.
+	 * @param cell The cell index.
+	 */
+	private void updateCell(int cell)
+	{
+		if (cell != start)
+		{
+			int best = INFINITY;
+			if (maze.isOpen(cell))
+			{
+				final int count = maze.getNeighbours(cell, neighbours);
+				for (int i = 0; i < count; ++i)
+				{
+					best = Math.min(best, g[neighbours[i]] + 1);
+				}
+			}
+			rhs[cell] = Math.min(best, INFINITY);
+		}
+		
+		frontier.remove(cell);
+		if (g[cell] != rhs[cell])
+		{
+			insert(cell);
+		}
+	}
+	
+	private void insert(int cell)
+	{
+		if (!reached.isGenerated(cell))
+		{
+			reached.open(cell);
+			++generatedCount;
+		}
+		else if (reached.isClosed(cell))
+		{
+			reached.open(cell);
+			++reopenedCount;
+		}
+		final int m = Math.min(g[cell], rhs[cell]);
+		frontier.insertOrUpdate(cell, m + heuristic.calculateCost(maze, cell, goal), m);
+		++heuristicCallCount;
+	}
+	
+	/**
+	 * Returns a cell's frontier key, combined as in IndexedHeap.
+	 */
+	private long key(int cell)
+	{
+		final int m = Math.min(g[cell], rhs[cell]);
+		++heuristicCallCount;
+		return ((long)(m + heuristic.calculateCost(maze, cell, goal)) << 32) | m;
+	}
+	
+	/**
+	 * Writes the neighbours of a cell that are inside the maze, open or not, into
+	 * the adjacent buffer.
+	 * @return The number of neighbours.
+	 */
+	private int allNeighbours(int cell)
+	{
+		final int columns = maze.getColumns();
+		final int column = cell % columns;
+		int count = 0;
+		if (cell >= columns)
+		{
+			adjacent[count++] = cell - columns;
+		}
+		if (cell < maze.getCellCount() - columns)
+		{
+			adjacent[count++] = cell + columns;
+		}
+		if (column > 0)
+		{
+			adjacent[count++] = cell - 1;
+		}
+		if (column < columns - 1)
+		{
+			adjacent[count++] = cell + 1;
+		}
+		return count;
+	}
+	
+	private void recordExpanded(int cell)
+	{
+		if (!reached.isGenerated(cell))
+		{
+			// The cell was made inconsistent when its change was reported.
+			++generatedCount;
+		}
+		reached.close(cell);
+		if (expandedCount == expanded.length)
+		{
+			expanded = Arrays.copyOf(expanded, (int)Math.min((long)expanded.length * 2, Integer.MAX_VALUE - 8));
+		}
+		expanded[expandedCount++] = cell;
+	}
+}
@@ -0,0 +1,307 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of cell indices that supports decrease-key. Each cell is
+ * ordered by a primary key (the A* "f" value) and then by a secondary key, which
+ * is used to break ties (normally the "h" value, so that nodes closer to the goal
+ * are expanded first).
+ * <p>
+ * The position of each cell in the heap is tracked in an array indexed by cell,
+ * and is validated against the heap itself, so the heap can be cleared in constant
+ * time and reused across searches without resetting the position array.
+ * @author Christopher D. Canfield
+ */
+class IndexedHeap
+{
+	// The initial capacity of the heap arrays.
+	private static final int INITIAL_CAPACITY = 256;
+
+	// The cells in the heap, in heap order.
+	private int[] cells;
+	// The combined (primary, secondary) key of each heap slot.
+	private long[] keys;
+	// The heap slot of each cell. Only valid if cells[position[cell]] == cell.
+	private final int[] position;
+	// The number of cells in the heap.
+	private int size;
+	// The largest number of cells in the heap since it was last cleared.
+	private int peakSize;
+
+	/**
+	 * Instantiates a heap that can hold cells in the range [0, cellCount).
+	 * @param cellCount The number of cells in the maze.
+	 */
+	IndexedHeap(int cellCount)
+	{
+		int capacity = Math.min(cellCount, INITIAL_CAPACITY);
+		cells = new int[capacity];
+		keys = new long[capacity];
+		position = new int[cellCount];
+	}
+
+	/**
+	 * Instantiates a heap that shares its position array with other heaps. Each cell
+	 * must only ever be added to one of the heaps, as in a parallel search where
+	 * every cell has one owner.
+	 * @param position The shared position array, with one entry for each cell.
+	 */
+	IndexedHeap(int[] position)
+	{
+		int capacity = Math.min(position.length, INITIAL_CAPACITY);
+		cells = new int[capacity];
+		keys = new long[capacity];
+		this.position = position;
+	}
+
+	/**
+	 * Removes all cells from the heap.
+	 */
+	void clear()
+	{
+		size = 0;
+		peakSize = 0;
+	}
+
+	/**
+	 * Whether the heap is empty.
+	 * @return true if there are no cells in the heap.
+	 */
+	boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of cells in the heap.
+	 * @return The number of cells in the heap.
+	 */
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the cell in a heap slot. Together with size, this allows the cells in
+	 * the heap to be visited, in no particular order.
+	 * @param slot The heap slot, from 0 to size() - 1.
+	 * @return The cell index.
+	 */
+	int cellAt(int slot)
+	{
+		return cells[slot];
+	}
+
+	/**
+	 * Returns the largest number of cells that have been in the heap since it was
+	 * last cleared.
+	 * @return The peak size.
+	 */
+	int peakSize()
+	{
+		return peakSize;
+	}
+
+	/**
+	 * Starts tracking the peak size again from the current size, for searches that
+	 * keep their frontier between calls.
+	 */
+	void resetPeakSize()
+	{
+		peakSize = size;
+	}
+
+	/**
+	 * Whether the cell is in the heap.
+	 * @param cell The cell index.
+	 * @return true if the cell is in the heap.
+	 */
+	boolean contains(int cell)
+	{
+		int slot = position[cell];
+		return slot < size && cells[slot] == cell;
+	}
+
+	/**
+	 * Adds a cell to the heap, or changes its keys if it is already in the heap.
+	 * @param cell The cell index.
+	 * @param primary The primary key. Must not be negative.
+	 * @param secondary The secondary (tie-breaking) key. Must not be negative.
+	 */
+	void insertOrUpdate(int cell, int primary, int secondary)
+	{
+		final long key = ((long)primary << 32) | secondary;
+		if (contains(cell))
+		{
+			int slot = position[cell];
+			if (key < keys[slot])
+			{
+				keys[slot] = key;
+				siftUp(slot);
+			}
+			else
+			{
+				keys[slot] = key;
+				siftDown(slot);
+			}
+		}
+		else
+		{
+			if (size == cells.length)
+			{
+				grow();
+			}
+			cells[size] = cell;
+			keys[size] = key;
+			position[cell] = size;
+			siftUp(size++);
+			if (size > peakSize)
+			{
+				peakSize = size;
+			}
+		}
+	}
+
+	/**
+	 * Returns the primary key of the cell at the top of the heap.
+	 * @return The lowest primary key in the heap.
+	 */
+	int peekPrimary()
+	{
+		return (int)(keys[0] >>> 32);
+	}
+
+	/**
+	 * Returns the combined key of the cell at the top of the heap: the primary key
+	 * in the upper 32 bits, and the secondary key in the lower 32 bits.
+	 * @return The lowest combined key in the heap.
+	 */
+	long peekKey()
+	{
+		return keys[0];
+	}
+
+	/**
+	 * Returns the secondary key of the cell at the top of the heap.
+	 * @return The secondary key of the cell with the lowest combined key.
+	 */
+	int peekSecondary()
+	{
+		return (int)keys[0];
+	}
+
+	/**
+	 * Returns the cell at the top of the heap without removing it.
+	 * @return The cell with the lowest key.
+	 */
+	int peek()
+	{
+		return cells[0];
+	}
+
+	/**
+	 * Removes and returns the cell with the lowest key.
+	 * @return The cell with the lowest key.
+	 */
+	int pop()
+	{
+		final int top = cells[0];
+		removeAt(0);
+		return top;
+	}
+
+	/**
+	 * Removes a cell from the heap, if it is in the heap.
+	 * @param cell The cell index.
+	 */
+	void remove(int cell)
+	{
+		if (contains(cell))
+		{
+			removeAt(position[cell]);
+		}
+	}
+
+	/**
+	 * Removes the cell in the specified heap slot.
+	 * @param slot The heap slot.
+	 */
+	private void removeAt(int slot)
+	{
+		final int removed = cells[slot];
+		--size;
+		if (slot != size)
+		{
+			final long oldKey = keys[slot];
+			cells[slot] = cells[size];
+			keys[slot] = keys[size];
+			position[cells[slot]] = slot;
+			if (keys[slot] < oldKey)
+			{
+				siftUp(slot);
+			}
+			else
+			{
+				siftDown(slot);
+			}
+		}
+		// Invalidate the removed cell's position.
+		position[removed] = Integer.MAX_VALUE;
+	}
+
+	private void siftUp(int slot)
+	{
+		final int cell = cells[slot];
+		final long key = keys[slot];
+		while (slot > 0)
+		{
+			int parent = (slot - 1) >>> 1;
+			if (keys[parent] <= key)
+			{
+				break;
+			}
+			cells[slot] = cells[parent];
+			keys[slot] = keys[parent];
+			position[cells[slot]] = slot;
+			slot = parent;
+		}
+		cells[slot] = cell;
+		keys[slot] = key;
+		position[cell] = slot;
+	}
+
+	private void siftDown(int slot)
+	{
+		final int cell = cells[slot];
+		final long key = keys[slot];
+		final int half = size >>> 1;
+		while (slot < half)
+		{
+			int child = 2 * slot + 1;
+			int right = child + 1;
+			if (right < size && keys[right] < keys[child])
+			{
+				child = right;
+			}
+			if (key <= keys[child])
+			{
+				break;
+			}
+			cells[slot] = cells[child];
+			keys[slot] = keys[child];
+			position[cells[slot]] = slot;
+			slot = child;
+		}
+		cells[slot] = cell;
+		keys[slot] = key;
+		position[cell] = slot;
+	}
+
+	private void grow()
+	{
+		int capacity = (int)Math.min((long)cells.length * 2, position.length);
+		cells = Arrays.copyOf(cells, capacity);
+		keys = Arrays.copyOf(keys, capacity);
+	}
+}
@@ -0,0 +1,338 @@
+package cdc.search;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * Contains a Jump Point Search engine for MazeGrids. Jump Point Search is an A*
+ * search that is optimal on uniform-cost grids, but instead of adding every
+ * neighbour of a cell to the frontier, it "jumps" in a straight line from the cell
+ * until it reaches a jump point: the goal, or a cell whose neighbours cannot be
+ * reached optimally by any other route. Only jump points are added to the frontier,
+ * so long corridors and open rooms are crossed with a single expansion.
+ * <p>
+ * The search uses the same SearchContext as GridSearch. The generated cells are
+ * the jump points, and the path includes every cell between them.
+ * @author Christopher D. Canfield
+ */
+public class JumpPointSearch
+{
+	/**
+	 * Performs a Jump Point Search between the start and end cell. The path and the
+	 * jump points are stored in the context, which can be reused for the next search.
+	 * @param context The search context for the maze.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @param movement The moves allowed between cells. The costs in the context are
+	 * in the movement's units, and the movement's heuristic is used.
+	 * @return true if a path was found, or false if no path from the start to end
+	 * can be found, or if the search was stopped by a limit (see SearchContext.getStatus).
+	 */
+	public static boolean search(SearchContext context, int start, int end, Movement movement)
+	{
+		final MazeGrid maze = context.getMaze();
+		final int columns = maze.getColumns();
+		final int endRow = end / columns;
+		final int endColumn = end % columns;
+		final boolean diagonals = movement.allowsDiagonals();
+		final GridHeuristic heuristic = movement.getHeuristic();
+		final int[] g = context.g;
+		final int[] parent = context.parent;
+		// The directions to jump in from the current cell, encoded by direction().
+		final int[] directions = context.neighbours;
+		final IndexedHeap frontier = context.frontier;
+		
+		context.begin();
+		
+		// Add the start cell to the frontier.
+		context.generate(start, SearchContext.NO_PARENT, 0);
+		final int startH = heuristic.calculateCost(maze, start, end);
+		++context.heuristicCallCount;
+		frontier.insertOrUpdate(start, startH, startH);
+		
+		while (!frontier.isEmpty())
+		{
+			if (context.limitReached(context.expandedCount))
+			{
+				final int closest = context.getClosestCell();
+				if (closest != SearchContext.NO_PARENT)
+				{
+					context.buildJumpPath(closest);
+				}
+				context.finish();
+				return false;
+			}
+			
+			final int currentH = frontier.peekSecondary();
+			final int current = frontier.pop();
+			context.close(current, currentH);
+			
+			if (current == end)
+			{
+				context.buildJumpPath(current);
+				context.status = SearchStatus.FOUND;
+				context.finish();
+				return true;
+			}
+			
+			final int row = current / columns;
+			final int column = current % columns;
+			final int count = diagonals ? 
+					prune8(maze, row, column, parent[current], directions) :
+					prune4(maze, row, column, parent[current], directions);
+			for (int i = 0; i < count; ++i)
+			{
+				final int rowStep = rowStep(directions[i]);
+				final int columnStep = columnStep(directions[i]);
+				final int jumpPoint = diagonals ?
+						jump8(maze, row, column, rowStep, columnStep, endRow, endColumn) :
+						jump4(maze, row, column, rowStep, columnStep, endRow, endColumn);
+				if (jumpPoint == MazeGrid.NO_CELL)
+				{
+					continue;
+				}
+				
+				// Each jump is a straight or diagonal line.
+				final int steps = Math.max(Math.abs(jumpPoint / columns - row), Math.abs(jumpPoint % columns - column));
+				final int cost = g[current] + steps *
+						((rowStep != 0 && columnStep != 0) ? movement.getDiagonalCost() : movement.getStraightCost());
+				
+				// Skip the jump point if it has already been reached at the same or lower cost.
+				if (context.isGenerated(jumpPoint) && g[jumpPoint] <= cost)
+				{
+					continue;
+				}
+				
+				final int h = heuristic.calculateCost(maze, jumpPoint, end);
+				++context.heuristicCallCount;
+				context.generate(jumpPoint, current, cost);
+				frontier.insertOrUpdate(jumpPoint, cost + h, h);
+			}
+		}
+		
+		// No path can be found from the start cell to the end cell.
+		context.finish();
+		return false;
+	}
+	
+	/**
+	 * Jumps from a cell in a four-connected grid. A path is assumed to turn from
+	 * vertical to horizontal anywhere, but from horizontal to vertical only where a
+	 * wall behind it forces it to; so a vertical jump stops at any cell from which
+	 * a horizontal jump finds a jump point.
+	 * @return The jump point, or NO_CELL if the jump reaches a wall or the edge of the maze.
+	 */
+	private static int jump4(MazeGrid maze, int row, int column, int rowStep, int columnStep,
+			int endRow, int endColumn)
+	{
+		while (true)
+		{
+			row += rowStep;
+			column += columnStep;
+			if (!isOpen(maze, row, column))
+			{
+				return MazeGrid.NO_CELL;
+			}
+			if (row == endRow && column == endColumn)
+			{
+				return maze.indexOf(row, column);
+			}
+			
+			if (columnStep != 0)
+			{
+				// A cell above or below is forced if the cell behind it is a wall.
+				if ((isOpen(maze, row - 1, column) && !isOpen(maze, row - 1, column - columnStep)) ||
+						(isOpen(maze, row + 1, column) && !isOpen(maze, row + 1, column - columnStep)))
+				{
+					return maze.indexOf(row, column);
+				}
+			}
+			else
+			{
+				if ((isOpen(maze, row, column - 1) && !isOpen(maze, row - rowStep, column - 1)) ||
+						(isOpen(maze, row, column + 1) && !isOpen(maze, row - rowStep, column + 1)))
+				{
+					return maze.indexOf(row, column);
+				}
+				if (jump4(maze, row, column, 0, 1, endRow, endColumn) != MazeGrid.NO_CELL ||
+						jump4(maze, row, column, 0, -1, endRow, endColumn) != MazeGrid.NO_CELL)
+				{
+					return maze.indexOf(row, column);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Jumps from a cell in an eight-connected grid without corner cutting. A
+	 * diagonal jump stops at any cell from which a straight jump finds a jump point.
+	 * @return The jump point, or NO_CELL if the jump reaches a wall or the edge of the maze.
+	 */
+	private static int jump8(MazeGrid maze, int row, int column, int rowStep, int columnStep,
+			int endRow, int endColumn)
+	{
+		while (true)
+		{
+			row += rowStep;
+			column += columnStep;
+			if (!isOpen(maze, row, column))
+			{
+				return MazeGrid.NO_CELL;
+			}
+			if (row == endRow && column == endColumn)
+			{
+				return maze.indexOf(row, column);
+			}
+			
+			if (rowStep != 0 && columnStep != 0)
+			{
+				if (jump8(maze, row, column, rowStep, 0, endRow, endColumn) != MazeGrid.NO_CELL ||
+						jump8(maze, row, column, 0, columnStep, endRow, endColumn) != MazeGrid.NO_CELL)
+				{
+					return maze.indexOf(row, column);
+				}
+				// The next diagonal move must not cut a corner.
+				if (!isOpen(maze, row + rowStep, column) || !isOpen(maze, row, column + columnStep))
+				{
+					return MazeGrid.NO_CELL;
+				}
+			}
+			else if (columnStep != 0)
+			{
+				if ((isOpen(maze, row - 1, column) && !isOpen(maze, row - 1, column - columnStep)) ||
+						(isOpen(maze, row + 1, column) && !isOpen(maze, row + 1, column - columnStep)))
+				{
+					return maze.indexOf(row, column);
+				}
+			}
+			else
+			{
+				if ((isOpen(maze, row, column - 1) && !isOpen(maze, row - rowStep, column - 1)) ||
+						(isOpen(maze, row, column + 1) && !isOpen(maze, row - rowStep, column + 1)))
+				{
+					return maze.indexOf(row, column);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Finds the directions to jump in from a cell in a four-connected grid, based on
+	 * the direction the cell was reached from.
+	 * @param parent The cell's parent, or NO_PARENT for the start cell.
+	 * @param directions Receives the encoded directions. Must have room for four entries.
+	 * @return The number of directions.
+	 */
+	private static int prune4(MazeGrid maze, int row, int column, int parent, int[] directions)
+	{
+		int count = 0;
+		if (parent == SearchContext.NO_PARENT)
+		{
+			count = addIfOpen(maze, row, column, -1, 0, directions, count);
+			count = addIfOpen(maze, row, column, 1, 0, directions, count);
+			count = addIfOpen(maze, row, column, 0, -1, directions, count);
+			return addIfOpen(maze, row, column, 0, 1, directions, count);
+		}
+		
+		final int rowStep = Integer.signum(row - parent / maze.getColumns());
+		final int columnStep = Integer.signum(column - parent % maze.getColumns());
+		if (columnStep != 0)
+		{
+			count = addIfOpen(maze, row, column, 0, columnStep, directions, count);
+			count = addIfOpen(maze, row, column, -1, 0, directions, count);
+			return addIfOpen(maze, row, column, 1, 0, directions, count);
+		}
+		count = addIfOpen(maze, row, column, rowStep, 0, directions, count);
+		count = addIfOpen(maze, row, column, 0, -1, directions, count);
+		return addIfOpen(maze, row, column, 0, 1, directions, count);
+	}
+	
+	/**
+	 * Finds the directions to jump in from a cell in an eight-connected grid, based
+	 * on the direction the cell was reached from.
+	 * @param parent The cell's parent, or NO_PARENT for the start cell.
+	 * @param directions Receives the encoded directions. Must have room for eight entries.
+	 * @return The number of directions.
+	 */
+	private static int prune8(MazeGrid maze, int row, int column, int parent, int[] directions)
+	{
+		int count = 0;
+		if (parent == SearchContext.NO_PARENT)
+		{
+			for (int rowStep = -1; rowStep <= 1; ++rowStep)
+			{
+				for (int columnStep = -1; columnStep <= 1; ++columnStep)
+				{
+					if (rowStep != 0 || columnStep != 0)
+					{
+						count = addIfOpen(maze, row, column, rowStep, columnStep, directions, count);
+					}
+				}
+			}
+			return count;
+		}
+		
+		final int rowStep = Integer.signum(row - parent / maze.getColumns());
+		final int columnStep = Integer.signum(column - parent % maze.getColumns());
+		if (rowStep != 0 && columnStep != 0)
+		{
+			count = addIfOpen(maze, row, column, rowStep, 0, directions, count);
+			count = addIfOpen(maze, row, column, 0, columnStep, directions, count);
+			return addIfOpen(maze, row, column, rowStep, columnStep, directions, count);
+		}
+		
+		// Straight moves continue forwards, and may turn to either side, directly or diagonally.
+		final int sideRow = columnStep;
+		final int sideColumn = rowStep;
+		count = addIfOpen(maze, row, column, rowStep, columnStep, directions, count);
+		count = addIfOpen(maze, row, column, rowStep + sideRow, columnStep + sideColumn, directions, count);
+		count = addIfOpen(maze, row, column, rowStep - sideRow, columnStep - sideColumn, directions, count);
+		count = addIfOpen(maze, row, column, sideRow, sideColumn, directions, count);
+		return addIfOpen(maze, row, column, -sideRow, -sideColumn, directions, count);
+	}
+	
+	/**
+	 * Adds a direction if the move in that direction is allowed: the neighbouring
+	 * cell is open, and for a diagonal move, both cells it passes between are open.
+	 * @return The new number of directions.
+	 */
+	private static int addIfOpen(MazeGrid maze, int row, int column, int rowStep, int columnStep,
+			int[] directions, int count)
+	{
+		if (!isOpen(maze, row + rowStep, column + columnStep))
+		{
+			return count;
+		}
+		if (rowStep != 0 && columnStep != 0 &&
+				(!isOpen(maze, row + rowStep, column) || !isOpen(maze, row, column + columnStep)))
+		{
+			return count;
+		}
+		directions[count] = direction(rowStep, columnStep);
+		return count + 1;
+	}
+	
+	/**
+	 * Whether a cell is inside the maze and open.
+	 */
+	private static boolean isOpen(MazeGrid maze, int row, int column)
+	{
+		return row >= 0 && row < maze.getRows() && column >= 0 && column < maze.getColumns() &&
+				maze.isOpen(row, column);
+	}
+	
+	// Directions are encoded as a number from 0 to 8, so they fit in the context's buffer.
+	private static int direction(int rowStep, int columnStep)
+	{
+		return (rowStep + 1) * 3 + (columnStep + 1);
+	}
+	
+	private static int rowStep(int direction)
+	{
+		return direction / 3 - 1;
+	}
+	
+	private static int columnStep(int direction)
+	{
+		return direction % 3 - 1;
+	}
+}
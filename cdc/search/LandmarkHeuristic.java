@@ -0,0 +1,439 @@
+package cdc.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import cdc.maze.MazeGrid;
+import cdc.maze.Node;
+
+/**
+ * A heuristic based on precomputed distances to landmark cells (ALT: A*, Landmarks
+ * and the Triangle inequality). For any landmark L, the distance between two cells
+ * is at least |d(L, a) - d(L, b)|, so the largest of these differences is an
+ * admissible and consistent estimate. In twisty mazes, where the Manhattan distance
+ * is far below the true distance, it is far more accurate. The estimate is never
+ * lower than the Manhattan distance.
+ * <p>
+ * The landmarks are chosen by farthest-point selection: the first is the cell farthest
+ * from the maze's entrance, and each of the others is the cell farthest from the
+ * landmarks chosen so far. The distance tables hold one entry per cell and landmark,
+ * stored as chars when every distance fits, and as ints otherwise. Cells that cannot
+ * reach the landmarks fall back to the Manhattan distance.
+ * <p>
+ * The tables are only valid for the walls that they were built from; if the maze
+ * changes, they must be built again. They can be saved to a file, which records a
+ * fingerprint of the maze's walls, so tables are not loaded for a maze that has changed.
+ * @author Christopher D. Canfield
+ */
+public class LandmarkHeuristic implements Heuristic, GridHeuristic
+{
+	/** The default number of landmarks. **/
+	public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+	// Identifies landmark files.
+	private static final int FILE_MAGIC = 0x434D4C48;
+	// The version of the landmark file format.
+	private static final int FILE_VERSION = 1;
+	// The distance of a cell that cannot reach a landmark, in the char tables.
+	private static final char UNREACHABLE_CHAR = Character.MAX_VALUE;
+	// The distance of a cell that cannot reach a landmark, in the int tables.
+	private static final int UNREACHABLE = -1;
+
+	// The dimensions of the maze.
+	private final int rows;
+	private final int columns;
+	// The fingerprint of the maze's walls.
+	private final long fingerprint;
+	// The landmark cells.
+	private final int[] landmarks;
+	// The distance from landmark l to cell c is at [c * landmarks.length + l], so the
+	// distances of one cell are together. Exactly one of the tables is used.
+	private final char[] charDistances;
+	private final int[] intDistances;
+
+	private final ManhattanHeuristic manhattan = new ManhattanHeuristic();
+
+	private LandmarkHeuristic(int rows, int columns, long fingerprint, int[] landmarks,
+			char[] charDistances, int[] intDistances)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		this.fingerprint = fingerprint;
+		this.landmarks = landmarks;
+		this.charDistances = charDistances;
+		this.intDistances = intDistances;
+	}
+
+	/**
+	 * Chooses the default number of landmarks for a maze, and builds their distance tables.
+	 * @param maze The maze.
+	 * @return The landmark heuristic.
+	 */
+	public static LandmarkHeuristic build(MazeGrid maze)
+	{
+		return build(maze, DEFAULT_LANDMARK_COUNT);
+	}
+
+	/**
+	 * Chooses landmarks for a maze, and builds their distance tables. Fewer landmarks
+	 * are chosen if the maze does not have enough distinct open cells.
+	 * @param maze The maze.
+	 * @param landmarkCount The number of landmarks. More landmarks give better
+	 * estimates, at the cost of memory and of time per estimate.
+	 * @return The landmark heuristic.
+	 */
+	public static LandmarkHeuristic build(MazeGrid maze, int landmarkCount)
+	{
+		if (landmarkCount < 1 || landmarkCount > 64)
+		{
+			throw new IllegalArgumentException("The landmark count must be from 1 to 64: " + landmarkCount);
+		}
+
+		final int cellCount = maze.getCellCount();
+		int[] distance = new int[cellCount];
+		int[] queue = new int[cellCount];
+		int[] neighbours = new int[4];
+
+		// The distance from each cell to the nearest landmark chosen so far.
+		int[] nearest = new int[cellCount];
+		int[] landmarks = new int[landmarkCount];
+		int[][] tables = new int[landmarkCount][];
+		int chosen = 0;
+		int maxDistance = 0;
+
+		// The first landmark is the cell farthest from the entrance, or from the first
+		// open cell if there is no entrance.
+		int seed = maze.getEntrance();
+		for (int cell = 0; seed == MazeGrid.NO_CELL && cell < cellCount; ++cell)
+		{
+			if (maze.isOpen(cell))
+			{
+				seed = cell;
+			}
+		}
+		if (seed != MazeGrid.NO_CELL)
+		{
+			breadthFirst(maze, seed, distance, queue, neighbours);
+			int next = farthest(distance);
+			Arrays.fill(nearest, Integer.MAX_VALUE);
+			while (chosen < landmarkCount)
+			{
+				landmarks[chosen] = next;
+				tables[chosen] = new int[cellCount];
+				final int[] table = tables[chosen];
+				breadthFirst(maze, next, table, queue, neighbours);
+				++chosen;
+
+				for (int cell = 0; cell < cellCount; ++cell)
+				{
+					maxDistance = Math.max(maxDistance, table[cell]);
+					if (table[cell] != UNREACHABLE)
+					{
+						nearest[cell] = Math.min(nearest[cell], table[cell]);
+					}
+					else
+					{
+						nearest[cell] = UNREACHABLE;
+					}
+				}
+				next = farthest(nearest);
+				if (next == MazeGrid.NO_CELL || nearest[next] == 0)
+				{
+					// Every reachable cell is already a landmark.
+					break;
+				}
+			}
+		}
+
+		// Interleave the tables, so that the distances of one cell are together.
+		landmarks = Arrays.copyOf(landmarks, chosen);
+		char[] charDistances = null;
+		int[] intDistances = null;
+		if (maxDistance < UNREACHABLE_CHAR)
+		{
+			charDistances = new char[cellCount * chosen];
+			for (int l = 0; l < chosen; ++l)
+			{
+				for (int cell = 0; cell < cellCount; ++cell)
+				{
+					final int d = tables[l][cell];
+					charDistances[cell * chosen + l] = (d == UNREACHABLE) ? UNREACHABLE_CHAR : (char)d;
+				}
+			}
+		}
+		else
+		{
+			intDistances = new int[cellCount * chosen];
+			for (int l = 0; l < chosen; ++l)
+			{
+				for (int cell = 0; cell < cellCount; ++cell)
+				{
+					intDistances[cell * chosen + l] = tables[l][cell];
+				}
+			}
+		}
+		return new LandmarkHeuristic(maze.getRows(), maze.getColumns(), ClusterGraph.fingerprint(maze),
+				landmarks, charDistances, intDistances);
+	}
+
+	/**
+	 * Calculates the distance from a cell to every other cell with a breadth-first search.
+	 * @param maze The maze.
+	 * @param source The source cell.
+	 * @param distance Array that receives the distances; unreachable cells are set
+	 * to UNREACHABLE.
+	 * @param queue The search queue, with room for every cell.
+	 * @param neighbours Scratch buffer for MazeGrid.getNeighbours.
+	 */
+	private static void breadthFirst(MazeGrid maze, int source, int[] distance, int[] queue, int[] neighbours)
+	{
+		Arrays.fill(distance, UNREACHABLE);
+		int head = 0;
+		int tail = 0;
+		distance[source] = 0;
+		queue[tail++] = source;
+		while (head < tail)
+		{
+			final int cell = queue[head++];
+			final int count = maze.getNeighbours(cell, neighbours);
+			for (int i = 0; i < count; ++i)
+			{
+				if (distance[neighbours[i]] == UNREACHABLE)
+				{
+					distance[neighbours[i]] = distance[cell] + 1;
+					queue[tail++] = neighbours[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the cell with the largest distance.
+	 * @param distance The distance of each cell.
+	 * @return The farthest cell, or MazeGrid.NO_CELL if no cell is reachable.
+	 */
+	private static int farthest(int[] distance)
+	{
+		int farthest = MazeGrid.NO_CELL;
+		for (int cell = 0; cell < distance.length; ++cell)
+		{
+			if (distance[cell] != UNREACHABLE && (farthest == MazeGrid.NO_CELL || distance[cell] > distance[farthest]))
+			{
+				farthest = cell;
+			}
+		}
+		return farthest;
+	}
+
+	@Override
+	public int calculateCost(Node start, Node end)
+	{
+		return estimate(start.getRow() * columns + start.getColumn(), end.getRow() * columns + end.getColumn(),
+				manhattan.calculateCost(start, end));
+	}
+
+	@Override
+	public int calculateCost(MazeGrid maze, int start, int end)
+	{
+		return estimate(start, end, manhattan.calculateCost(maze, start, end));
+	}
+
+	/**
+	 * Returns the largest landmark bound on the distance between two cells, or the
+	 * Manhattan distance if it is larger.
+	 * @param start The start cell.
+	 * @param end The end cell.
+	 * @param manhattanDistance The Manhattan distance between the cells.
+	 * @return The estimated distance.
+	 */
+	private int estimate(int start, int end, int manhattanDistance)
+	{
+		final int count = landmarks.length;
+		final int a = start * count;
+		final int b = end * count;
+		int best = manhattanDistance;
+		if (charDistances != null)
+		{
+			for (int l = 0; l < count; ++l)
+			{
+				final char da = charDistances[a + l];
+				final char db = charDistances[b + l];
+				if (da != UNREACHABLE_CHAR && db != UNREACHABLE_CHAR)
+				{
+					best = Math.max(best, Math.abs(da - db));
+				}
+			}
+		}
+		else
+		{
+			for (int l = 0; l < count; ++l)
+			{
+				final int da = intDistances[a + l];
+				final int db = intDistances[b + l];
+				if (da != UNREACHABLE && db != UNREACHABLE)
+				{
+					best = Math.max(best, Math.abs(da - db));
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the number of landmarks.
+	 * @return The landmark count.
+	 */
+	public int getLandmarkCount()
+	{
+		return landmarks.length;
+	}
+
+	/**
+	 * Returns a landmark cell.
+	 * @param i The landmark number, starting with 0.
+	 * @return The index of the landmark cell.
+	 */
+	public int getLandmark(int i)
+	{
+		return landmarks[i];
+	}
+
+	/**
+	 * Whether the distance tables are stored as chars (two bytes per entry) rather
+	 * than ints (four bytes per entry).
+	 * @return true if the tables are stored as chars.
+	 */
+	public boolean isCompact()
+	{
+		return charDistances != null;
+	}
+
+	/**
+	 * Whether the tables were built for a maze with the same dimensions and walls.
+	 * @param maze The maze.
+	 * @return true if the heuristic is admissible for the maze.
+	 */
+	public boolean matches(MazeGrid maze)
+	{
+		return maze.getRows() == rows && maze.getColumns() == columns &&
+				ClusterGraph.fingerprint(maze) == fingerprint;
+	}
+
+	/**
+	 * Saves the landmarks and distance tables to a file.
+	 * @param file The file. If it exists, it is replaced.
+	 * @throws IOException If there is a problem writing the file.
+	 */
+	public void save(File file) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeInt(rows);
+			out.writeInt(columns);
+			out.writeLong(fingerprint);
+			out.writeInt(landmarks.length);
+			out.writeBoolean(isCompact());
+			for (int landmark : landmarks)
+			{
+				out.writeInt(landmark);
+			}
+			if (charDistances != null)
+			{
+				for (char d : charDistances)
+				{
+					out.writeChar(d);
+				}
+			}
+			else
+			{
+				for (int d : intDistances)
+				{
+					out.writeInt(d);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads landmarks and distance tables that were saved for a maze.
+	 * @param file The file.
+	 * @param maze The maze that the tables were built for.
+	 * @return The landmark heuristic.
+	 * @throws IOException If the file is not a valid landmark file, or it was built
+	 * for a different maze, or there is a problem reading the file.
+	 */
+	public static LandmarkHeuristic load(File file, MazeGrid maze) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != FILE_MAGIC)
+			{
+				throw new IOException(file + " is not a landmark file.");
+			}
+			final int version = in.readInt();
+			if (version != FILE_VERSION)
+			{
+				throw new IOException("Unsupported landmark file version: " + version);
+			}
+			final int rows = in.readInt();
+			final int columns = in.readInt();
+			final long fingerprint = in.readLong();
+			if (rows != maze.getRows() || columns != maze.getColumns() || fingerprint != ClusterGraph.fingerprint(maze))
+			{
+				throw new IOException(file + " was built for a different maze.");
+			}
+
+			final int landmarkCount = in.readInt();
+			final boolean compact = in.readBoolean();
+			if (landmarkCount < 0 || landmarkCount > 64)
+			{
+				throw new IOException(file + " is corrupt.");
+			}
+			int[] landmarks = new int[landmarkCount];
+			for (int l = 0; l < landmarkCount; ++l)
+			{
+				landmarks[l] = in.readInt();
+				if (landmarks[l] < 0 || landmarks[l] >= maze.getCellCount())
+				{
+					throw new IOException(file + " is corrupt.");
+				}
+			}
+
+			final int entryCount = maze.getCellCount() * landmarkCount;
+			char[] charDistances = null;
+			int[] intDistances = null;
+			if (compact)
+			{
+				charDistances = new char[entryCount];
+				for (int i = 0; i < entryCount; ++i)
+				{
+					charDistances[i] = in.readChar();
+				}
+			}
+			else
+			{
+				intDistances = new int[entryCount];
+				for (int i = 0; i < entryCount; ++i)
+				{
+					intDistances[i] = in.readInt();
+					if (intDistances[i] < UNREACHABLE)
+					{
+						throw new IOException(file + " is corrupt.");
+					}
+				}
+			}
+			return new LandmarkHeuristic(rows, columns, fingerprint, landmarks, charDistances, intDistances);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package cdc.search;
 
+import cdc.maze.MazeGrid;
 import cdc.maze.Node;
 
 /**
@@ -7,7 +8,7 @@ import cdc.maze.Node;
  * The Manhattan distance provides the grid-based distance between the squares.
  * @author Christopher D. Canfield
  */
-public class ManhattanHeuristic implements Heuristic
+public class ManhattanHeuristic implements Heuristic, GridHeuristic
 {
 	@Override
 	public int calculateCost(Node start, Node end)
@@ -15,5 +16,14 @@ public class ManhattanHeuristic implements Heuristic
 		int rowDiff = Math.abs(start.getRow() - end.getRow());
 		int colDiff = Math.abs(start.getColumn() - end.getColumn());
 		return (rowDiff + colDiff);
-	}	
-}
\ No newline at end of file
+	}
+	
+	@Override
+	public int calculateCost(MazeGrid maze, int start, int end)
+	{
+		final int columns = maze.getColumns();
+		int rowDiff = Math.abs(start / columns - end / columns);
+		int colDiff = Math.abs(start % columns - end % columns);
+		return (rowDiff + colDiff);
+	}
+}
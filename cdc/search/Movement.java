@@ -0,0 +1,66 @@
+package cdc.search;
+
+/**
+ * The moves allowed between cells of a MazeGrid, and their costs.
+ * @author Christopher D. Canfield
+ */
+public enum Movement
+{
+	/** Moves up, down, left and right. Every move costs 1, as in GridSearch. **/
+	FOUR_CONNECTED(1, 0, new ManhattanHeuristic()),
+	/** 
+	 * Moves in the eight compass directions. Straight moves cost 10 and diagonal 
+	 * moves cost 14, which approximates the ratio of 1 to the square root of 2 with
+	 * integers. A diagonal move is only allowed if both of the cells it passes between
+	 * are open, so paths do not cut the corners of walls.
+	 */
+	EIGHT_CONNECTED(OctileHeuristic.STRAIGHT_COST, OctileHeuristic.DIAGONAL_COST, new OctileHeuristic());
+	
+	private final int straightCost;
+	private final int diagonalCost;
+	private final GridHeuristic heuristic;
+	
+	private Movement(int straightCost, int diagonalCost, GridHeuristic heuristic)
+	{
+		this.straightCost = straightCost;
+		this.diagonalCost = diagonalCost;
+		this.heuristic = heuristic;
+	}
+	
+	/**
+	 * Returns the cost of a move up, down, left or right.
+	 * @return The straight move cost.
+	 */
+	public int getStraightCost()
+	{
+		return straightCost;
+	}
+	
+	/**
+	 * Returns the cost of a diagonal move.
+	 * @return The diagonal move cost, or 0 if diagonal moves are not allowed.
+	 */
+	public int getDiagonalCost()
+	{
+		return diagonalCost;
+	}
+	
+	/**
+	 * Whether diagonal moves are allowed.
+	 * @return true if diagonal moves are allowed.
+	 */
+	public boolean allowsDiagonals()
+	{
+		return diagonalCost != 0;
+	}
+	
+	/**
+	 * Returns the admissible heuristic for this movement: the Manhattan distance
+	 * for four-connected movement, and the octile distance for eight-connected movement.
+	 * @return The heuristic.
+	 */
+	public GridHeuristic getHeuristic()
+	{
+		return heuristic;
+	}
+}
@@ -0,0 +1,41 @@
+package cdc.search;
+
+import cdc.maze.MazeGrid;
+import cdc.maze.Node;
+
+/**
+ * Heuristic used to calculate the octile distance between two squares: the cost
+ * of the shortest path between them on an empty grid that allows diagonal moves.
+ * Straight moves cost 10 and diagonal moves cost 14.
+ * @author Christopher D. Canfield
+ */
+public class OctileHeuristic implements Heuristic, GridHeuristic
+{
+	/** The cost of a move up, down, left or right. **/
+	public static final int STRAIGHT_COST = 10;
+	/** The cost of a diagonal move. **/
+	public static final int DIAGONAL_COST = 14;
+	
+	@Override
+	public int calculateCost(Node start, Node end)
+	{
+		int rowDiff = Math.abs(start.getRow() - end.getRow());
+		int colDiff = Math.abs(start.getColumn() - end.getColumn());
+		return cost(rowDiff, colDiff);
+	}
+	
+	@Override
+	public int calculateCost(MazeGrid maze, int start, int end)
+	{
+		final int columns = maze.getColumns();
+		int rowDiff = Math.abs(start / columns - end / columns);
+		int colDiff = Math.abs(start % columns - end % columns);
+		return cost(rowDiff, colDiff);
+	}
+	
+	private static int cost(int rowDiff, int colDiff)
+	{
+		final int diagonal = Math.min(rowDiff, colDiff);
+		return DIAGONAL_COST * diagonal + STRAIGHT_COST * (Math.max(rowDiff, colDiff) - diagonal);
+	}
+}
@@ -0,0 +1,41 @@
+package cdc.search;
+
+/**
+ * The frontier (open list) of the Node-based A* search: the search nodes that have
+ * been reached but not expanded yet. Nodes are removed in order of their f value,
+ * g + h, with ties broken by the list's TieBreaking. A node that is added twice is
+ * held twice. Choose an implementation per query with SearchOptions.setOpenListType.
+ * @author Christopher D. Canfield
+ */
+public interface OpenList
+{
+	/**
+	 * Adds a node.
+	 * @param node The search node.
+	 */
+	public void add(SearchNode node);
+
+	/**
+	 * Removes the node with the lowest f value.
+	 * @return The node with the lowest f value.
+	 * @throws java.util.NoSuchElementException If the list is empty.
+	 */
+	public SearchNode remove();
+
+	/**
+	 * Whether the list is empty.
+	 * @return true if there are no nodes in the list.
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Returns the number of nodes in the list.
+	 * @return The number of nodes.
+	 */
+	public int size();
+
+	/**
+	 * Removes every node.
+	 */
+	public void clear();
+}
@@ -0,0 +1,40 @@
+package cdc.search;
+
+/**
+ * The open list implementations that the Node-based A* search can use.
+ * @author Christopher D. Canfield
+ */
+public enum OpenListType
+{
+	/** A binary heap: O(log n) adds and removes. **/
+	BINARY_HEAP,
+	/**
+	 * A pairing heap: O(1) adds and amortized O(log n) removes. Suits searches that
+	 * add many more nodes than they remove.
+	 */
+	PAIRING_HEAP,
+	/**
+	 * A bucket queue (Dial's algorithm), with a bucket for each f value and, within
+	 * it, for each h value: O(1) adds, and removes in amortized O(1) when the f values
+	 * are small integers that rise slowly, as they do with a consistent heuristic.
+	 */
+	BUCKET_QUEUE;
+
+	/**
+	 * Instantiates an empty open list of this type.
+	 * @param tieBreaking How nodes with the same f value are ordered.
+	 * @return The open list.
+	 */
+	public OpenList create(TieBreaking tieBreaking)
+	{
+		switch (this)
+		{
+		case PAIRING_HEAP:
+			return new PairingHeapOpenList(tieBreaking);
+		case BUCKET_QUEUE:
+			return new BucketQueueOpenList(tieBreaking);
+		default:
+			return new BinaryHeapOpenList(tieBreaking);
+		}
+	}
+}
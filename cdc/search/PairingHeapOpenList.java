@@ -0,0 +1,143 @@
+package cdc.search;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An open list backed by a pairing heap. Adding a node links it to the root in
+ * constant time; removing the root merges its children in two passes, first in
+ * pairs from left to right, and then from right to left.
+ * @author Christopher D. Canfield
+ */
+class PairingHeapOpenList implements OpenList
+{
+	private final TieBreaking tieBreaking;
+
+	// The root of the heap, which holds the node with the lowest f value.
+	private Entry root;
+	private int size;
+
+	// Scratch buffer for the first pass of a merge.
+	private Entry[] pairs = new Entry[16];
+
+	/**
+	 * Instantiates an empty open list.
+	 * @param tieBreaking How nodes with the same f value are ordered.
+	 */
+	PairingHeapOpenList(TieBreaking tieBreaking)
+	{
+		this.tieBreaking = tieBreaking;
+	}
+
+	@Override
+	public void add(SearchNode node)
+	{
+		root = (root == null) ? new Entry(node) : link(root, new Entry(node));
+		++size;
+	}
+
+	@Override
+	public SearchNode remove()
+	{
+		if (root == null)
+		{
+			throw new NoSuchElementException();
+		}
+		final SearchNode node = root.node;
+		root = mergePairs(root.child);
+		--size;
+		return node;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public void clear()
+	{
+		root = null;
+		size = 0;
+	}
+
+	/**
+	 * Links two heaps: the root with the higher f value becomes the first child of
+	 * the other.
+	 * @param a The root of a heap.
+	 * @param b The root of another heap.
+	 * @return The root of the linked heap.
+	 */
+	private Entry link(Entry a, Entry b)
+	{
+		if (tieBreaking.compare(b.node, a.node) < 0)
+		{
+			Entry swap = a;
+			a = b;
+			b = swap;
+		}
+		b.sibling = a.child;
+		a.child = b;
+		return a;
+	}
+
+	/**
+	 * Merges a list of sibling heaps into one heap.
+	 * @param first The first heap in the list, or null.
+	 * @return The root of the merged heap, or null.
+	 */
+	private Entry mergePairs(Entry first)
+	{
+		// First pass: link the siblings in pairs, from left to right.
+		int count = 0;
+		while (first != null)
+		{
+			Entry a = first;
+			Entry b = a.sibling;
+			first = (b == null) ? null : b.sibling;
+			a.sibling = null;
+			if (b != null)
+			{
+				b.sibling = null;
+				a = link(a, b);
+			}
+			if (count == pairs.length)
+			{
+				pairs = Arrays.copyOf(pairs, count * 2);
+			}
+			pairs[count++] = a;
+		}
+
+		// Second pass: link the pairs, from right to left.
+		Entry merged = null;
+		while (count > 0)
+		{
+			Entry pair = pairs[--count];
+			pairs[count] = null;
+			merged = (merged == null) ? pair : link(pair, merged);
+		}
+		return merged;
+	}
+
+	/**
+	 * A node in the heap, with its first child and its next sibling.
+	 */
+	private static class Entry
+	{
+		final SearchNode node;
+		Entry child;
+		Entry sibling;
+
+		Entry(SearchNode node)
+		{
+			this.node = node;
+		}
+	}
+}
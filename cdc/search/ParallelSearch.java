@@ -0,0 +1,815 @@
+package cdc.search;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * A parallel A* search for single large queries, based on Hash Distributed A*
+ * (HDA*). Every cell is owned by one worker thread, chosen by hashing the small
+ * block of cells that contains it. Each worker keeps the frontier of its own cells,
+ * and is the only thread that reads or writes their costs. When a worker reaches a
+ * cell that another worker owns, it sends the cell, its parent and its cost to the
+ * owner, in batches, through the owner's lock-free inbox.
+ * <p>
+ * Because cells are expanded in parallel, a cell can be expanded before its lowest
+ * cost is known; it is expanded again if a lower cost arrives later. The cost of the
+ * best path to the end cell found so far (the incumbent) is shared, and cells whose
+ * f value is not below it are discarded. The search ends when no worker has a cell
+ * below the incumbent and no batch is in flight, which is detected with one shared
+ * counter of busy workers and unread batches. The path is then optimal, as long as
+ * the heuristic is admissible. The heuristic is called from every worker, so it must
+ * be thread safe.
+ * <p>
+ * Each worker expands its own best cell without waiting for the others, so the
+ * workers do not follow the serial expansion order: some cells are expanded before
+ * their lowest cost is known, and are expanded again later. The incumbent and the
+ * re-expansions keep the path optimal. The workers can only be kept busy while the
+ * frontier is wide: long searches through mazes with many branches scale well, but
+ * a search that a serial A* finishes after a few thousand expansions is slowed by the
+ * cells the workers expand speculatively.
+ * <p>
+ * A search can be limited by a node budget, a deadline and a cancellation token (see
+ * setOptions). Each worker checks the limits before each round of expansions, and
+ * the first worker to reach a limit stops the others.
+ * <p>
+ * The worker threads are started by the first search, and wait between searches, so
+ * that they are reused; close stops them. The context is sized for one maze, and one
+ * search can run at a time.
+ * @author Christopher D. Canfield
+ */
+public class ParallelSearch implements Closeable
+{
+	// The number of rows and columns in the blocks of cells that are hashed to the
+	// workers, as a shift. Neighbouring cells usually have the same owner, which
+	// cuts the number of messages.
+	private static final int BLOCK_SHIFT = 2;
+	// The number of messages (cell, parent, cost) in a full batch.
+	private static final int BATCH_SIZE = 64;
+	// The number of cells a worker expands between reading its inbox.
+	private static final int EXPANSIONS_PER_ROUND = 64;
+
+	// The maze and the number of workers.
+	private final MazeGrid maze;
+	private final int workerCount;
+	private final int columns;
+
+	// The cost from the start cell to each cell, and each cell's parent. Each entry
+	// is only written by the cell's owner.
+	private final int[] g;
+	private final int[] parent;
+	// The generation in which each cell was last generated or closed. Each cell's
+	// stamp is only written by its owner.
+	private final GenerationStamps stamps;
+	// The heap slot of each cell, shared by the workers' heaps.
+	private final int[] position;
+
+	// The workers' state. Worker 0 runs on the thread that calls search.
+	private final Worker[] workers;
+	// The threads of the other workers, or null until the first search.
+	private Thread[] threads;
+	// Starts the workers of each search, and waits for them to finish. Its parties
+	// are the calling thread and the worker threads.
+	private final Phaser phaser;
+
+	// The cost of the best path to the end cell found so far.
+	private final AtomicInteger bestCost = new AtomicInteger();
+	// The number of busy workers plus the number of sent batches that have not been
+	// read. The search is finished when it reaches zero.
+	private final AtomicLong work = new AtomicLong();
+	// The first exception thrown by a worker, which stops the search.
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	// Set to stop the workers.
+	private volatile boolean stopped;
+	// The limit that stopped the search, set by the first worker to reach one, or null.
+	private final AtomicReference<SearchStatus> limitStatus = new AtomicReference<SearchStatus>();
+	// The number of expansions that the workers can still claim from the node budget.
+	private final AtomicLong expansionsLeft = new AtomicLong();
+
+	// The limits of each search.
+	private long maxExpandedNodes = Long.MAX_VALUE;
+	private boolean hasDeadline;
+	private long deadline;
+	private CancellationToken cancellationToken;
+
+	// The search parameters.
+	private int end;
+	private GridHeuristic heuristic;
+
+	// The path found by the last search, from start to end, or the best partial path.
+	private int[] path = new int[0];
+	private int pathLength;
+	// How the last search ended.
+	private SearchStatus status = SearchStatus.NO_PATH;
+	// The metrics of the last search.
+	private SearchMetrics metrics = SearchMetrics.NONE;
+
+	/**
+	 * Instantiates a parallel search for the specified maze.
+	 * @param maze The maze that will be searched.
+	 * @param workerCount The number of worker threads; at least 1.
+	 */
+	public ParallelSearch(MazeGrid maze, int workerCount)
+	{
+		if (workerCount < 1)
+		{
+			throw new IllegalArgumentException("There must be at least one worker: " + workerCount);
+		}
+		this.maze = maze;
+		this.workerCount = workerCount;
+		this.columns = maze.getColumns();
+		this.g = new int[maze.getCellCount()];
+		this.parent = new int[maze.getCellCount()];
+		this.stamps = new GenerationStamps(maze.getCellCount());
+		this.position = new int[maze.getCellCount()];
+		this.workers = new Worker[workerCount];
+		for (int i = 0; i < workerCount; ++i)
+		{
+			workers[i] = new Worker(i);
+		}
+		this.phaser = new Phaser(workerCount);
+	}
+
+	/**
+	 * Returns the maze that this search is sized for.
+	 * @return The maze grid.
+	 */
+	public MazeGrid getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 * @return The worker count.
+	 */
+	public int getWorkerCount()
+	{
+		return workerCount;
+	}
+
+	/**
+	 * Applies the limits of a set of search options to the following searches. A
+	 * search that reaches a limit returns false, with the limit's status and the best
+	 * path found so far. The node budget is shared by the workers, and counts every
+	 * expansion, including the expansions of cells that are expanded again.
+	 * @param options The search options. The searched nodes are never retained.
+	 * @throws IllegalArgumentException If the options have a visitor, which cannot
+	 * follow a search that runs on several threads.
+	 */
+	public void setOptions(SearchOptions options)
+	{
+		if (options.getVisitor() != null)
+		{
+			throw new IllegalArgumentException("A parallel search cannot report to a visitor.");
+		}
+		this.maxExpandedNodes = options.getMaxExpandedNodes();
+		this.hasDeadline = options.hasDeadline();
+		this.deadline = options.getDeadline();
+		this.cancellationToken = options.getCancellationToken();
+	}
+
+	/**
+	 * Performs a parallel A* search between the start and end cell. The calling
+	 * thread is one of the workers; the others run on the search's worker threads,
+	 * and have finished when it returns.
+	 * @param start The index of the start cell.
+	 * @param end The index of the end cell.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be admissible and thread safe.
+	 * @return true if a path was found, or false if no path from the start to end
+	 * can be found, or if the search was stopped by a limit or by an interrupt of the
+	 * calling thread (see getStatus).
+	 * @throws RuntimeException If a worker failed; the cause is the worker's exception.
+	 * @throws IllegalStateException If the search has been closed.
+	 */
+	public boolean search(int start, int end, GridHeuristic heuristic)
+	{
+		if (phaser.isTerminated())
+		{
+			throw new IllegalStateException("The search has been closed.");
+		}
+		final long startNanos = System.nanoTime();
+		begin(end, heuristic);
+
+		// Send the start cell to its owner.
+		work.set(1);
+		workers[owner(start)].inbox.add(new int[] { start, SearchContext.NO_PARENT, 0 });
+
+		if (threads == null)
+		{
+			startThreads();
+		}
+		// Start the other workers, and run worker 0.
+		phaser.arriveAndAwaitAdvance();
+		workers[0].run();
+
+		final int phase = phaser.arrive();
+		boolean interrupted = false;
+		while (true)
+		{
+			try
+			{
+				phaser.awaitAdvanceInterruptibly(phase);
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				// Stop the search, but wait for the workers so that the state is not
+				// shared with the next search.
+				interrupted = true;
+				stop(SearchStatus.CANCELLED);
+			}
+		}
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		long expandedCount = 0;
+		long generatedCount = 0;
+		long reopenedCount = 0;
+		long heuristicCallCount = 0;
+		int peakFrontierSize = 0;
+		for (Worker worker : workers)
+		{
+			expandedCount += worker.expandedCount;
+			generatedCount += worker.generatedCount;
+			reopenedCount += worker.reopenedCount;
+			heuristicCallCount += worker.heuristicCallCount;
+			peakFrontierSize += worker.frontier.peakSize();
+		}
+		metrics = new SearchMetrics(expandedCount, generatedCount, reopenedCount, peakFrontierSize,
+				heuristicCallCount, System.nanoTime() - startNanos);
+
+		if (failure.get() != null)
+		{
+			throw new RuntimeException("A parallel search worker failed.", failure.get());
+		}
+		if (limitStatus.get() != null)
+		{
+			// Keep the best path found so far: the path to the end cell if one has been
+			// found, or else the path to the expanded cell closest to it.
+			status = limitStatus.get();
+			if (bestCost.get() != Integer.MAX_VALUE)
+			{
+				buildPath(end);
+			}
+			else
+			{
+				buildPartialPath();
+			}
+			return false;
+		}
+		if (bestCost.get() == Integer.MAX_VALUE)
+		{
+			status = SearchStatus.NO_PATH;
+			return false;
+		}
+		status = SearchStatus.FOUND;
+		buildPath(end);
+		return true;
+	}
+
+	/**
+	 * Stops the worker threads. The threads are daemon threads, but they are not
+	 * stopped until the search is closed. A closed search cannot be used again.
+	 */
+	@Override
+	public void close()
+	{
+		phaser.forceTermination();
+	}
+
+	/**
+	 * Stops the search because it has reached a limit. Only the first limit is kept.
+	 * @param limit The status of the limit.
+	 */
+	private void stop(SearchStatus limit)
+	{
+		limitStatus.compareAndSet(null, limit);
+		stopped = true;
+	}
+
+	/**
+	 * Starts the threads of the workers other than worker 0. Each thread waits for a
+	 * search to start, runs its worker, and waits for the other workers to finish,
+	 * until the search is closed.
+	 */
+	private void startThreads()
+	{
+		threads = new Thread[workerCount - 1];
+		for (int i = 0; i < threads.length; ++i)
+		{
+			final Worker worker = workers[i + 1];
+			threads[i] = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					while (phaser.arriveAndAwaitAdvance() >= 0)
+					{
+						worker.run();
+						phaser.arriveAndAwaitAdvance();
+					}
+				}
+			}, "ParallelSearch-worker-" + (i + 1));
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+
+	/**
+	 * Resets the shared state for a new search.
+	 * @param end The index of the end cell.
+	 * @param heuristic The heuristic function.
+	 */
+	private void begin(int end, GridHeuristic heuristic)
+	{
+		stamps.next();
+		this.end = end;
+		this.heuristic = heuristic;
+		bestCost.set(Integer.MAX_VALUE);
+		failure.set(null);
+		stopped = false;
+		limitStatus.set(null);
+		expansionsLeft.set(maxExpandedNodes);
+		pathLength = 0;
+		for (Worker worker : workers)
+		{
+			worker.reset();
+		}
+	}
+
+	/**
+	 * Stores the path to a reached cell, by following the parent links. The costs
+	 * strictly decrease along the links, so the path has no cycles.
+	 * @param goal The final cell in the path.
+	 */
+	private void buildPath(int goal)
+	{
+		int length = 0;
+		for (int cell = goal; cell != SearchContext.NO_PARENT; cell = parent[cell])
+		{
+			++length;
+		}
+		if (length > path.length)
+		{
+			path = new int[length];
+		}
+		int index = length;
+		for (int cell = goal; cell != SearchContext.NO_PARENT; cell = parent[cell])
+		{
+			path[--index] = cell;
+		}
+		pathLength = length;
+	}
+
+	/**
+	 * Stores the best partial path of a search that was stopped by a limit: the path
+	 * to the expanded cell with the lowest heuristic estimate, over all the workers.
+	 */
+	private void buildPartialPath()
+	{
+		Worker closest = workers[0];
+		for (Worker worker : workers)
+		{
+			if (worker.closestH < closest.closestH)
+			{
+				closest = worker;
+			}
+		}
+		if (closest.closestCell == SearchContext.NO_PARENT)
+		{
+			pathLength = 0;
+		}
+		else
+		{
+			buildPath(closest.closestCell);
+		}
+	}
+
+	/**
+	 * Returns the worker that owns a cell.
+	 * @param cell The cell index.
+	 * @return The worker's index.
+	 */
+	private int owner(int cell)
+	{
+		final int block = (cell / columns >> BLOCK_SHIFT) * ((columns >> BLOCK_SHIFT) + 1) +
+				(cell % columns >> BLOCK_SHIFT);
+		// Mix the bits of the block index, so that neighbouring blocks are spread
+		// evenly over the workers.
+		int hash = block * 0x9E3779B1;
+		hash ^= hash >>> 16;
+		return (hash & Integer.MAX_VALUE) % workerCount;
+	}
+
+	/**
+	 * Returns the number of cells in the path found by the last search.
+	 * @return The path length, or zero if no path was found.
+	 */
+	public int getPathLength()
+	{
+		return pathLength;
+	}
+
+	/**
+	 * Returns a cell in the path found by the last search.
+	 * @param i The position in the path, starting with 0 for the start cell.
+	 * @return The cell index.
+	 */
+	public int getPathCell(int i)
+	{
+		if (i < 0 || i >= pathLength)
+		{
+			throw new IndexOutOfBoundsException("Path index: " + i + ", length: " + pathLength);
+		}
+		return path[i];
+	}
+
+	/**
+	 * Copies the path found by the last search into a new array.
+	 * @return The cells in the path, from start to end.
+	 */
+	public int[] copyPath()
+	{
+		return Arrays.copyOf(path, pathLength);
+	}
+
+	/**
+	 * Returns the cost of the best path to the end cell found by the last search.
+	 * @return The path cost, or Integer.MAX_VALUE if no path to the end cell was found.
+	 */
+	public int getPathCost()
+	{
+		return bestCost.get();
+	}
+
+	/**
+	 * Returns how the last search ended. If it was stopped by a limit, or by an
+	 * interrupt (CANCELLED), the path is the best path found before it stopped.
+	 * @return The search status.
+	 */
+	public SearchStatus getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * Returns the metrics of the last search, summed over the workers. The peak
+	 * frontier size is the sum of each worker's peak.
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * One worker: the frontier of the cells it owns, its inbox, and the batches it
+	 * has not sent yet.
+	 */
+	private class Worker implements Runnable
+	{
+		// The worker's index.
+		private final int id;
+		// The frontier of the worker's cells.
+		final IndexedHeap frontier;
+		// The batches sent to this worker.
+		final ConcurrentLinkedQueue<int[]> inbox = new ConcurrentLinkedQueue<int[]>();
+		// The messages waiting to be sent to each worker, as (cell, parent, cost).
+		private final int[][] outbox;
+		private final int[] outboxSize;
+		// Scratch buffer for MazeGrid.getNeighbours.
+		private final int[] neighbours = new int[4];
+
+		// The expanded cell with the lowest heuristic estimate, which ends the best
+		// partial path if the search is stopped by a limit.
+		int closestCell;
+		int closestH;
+		// The worker's metrics.
+		long expandedCount;
+		long generatedCount;
+		long reopenedCount;
+		long heuristicCallCount;
+
+		/**
+		 * Instantiates a worker.
+		 * @param id The worker's index.
+		 */
+		Worker(int id)
+		{
+			this.id = id;
+			this.frontier = new IndexedHeap(position);
+			this.outbox = new int[workerCount][BATCH_SIZE * 3];
+			this.outboxSize = new int[workerCount];
+		}
+
+		/**
+		 * Resets the worker for a new search.
+		 */
+		void reset()
+		{
+			frontier.clear();
+			inbox.clear();
+			Arrays.fill(outboxSize, 0);
+			closestCell = SearchContext.NO_PARENT;
+			closestH = Integer.MAX_VALUE;
+			expandedCount = 0;
+			generatedCount = 0;
+			reopenedCount = 0;
+			heuristicCallCount = 0;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				search();
+			}
+			catch (Throwable t)
+			{
+				failure.compareAndSet(null, t);
+				stopped = true;
+			}
+		}
+
+		/**
+		 * Reads batches and expands cells until the search is finished.
+		 */
+		private void search()
+		{
+			// Whether this worker is counted as busy.
+			boolean busy = false;
+			while (!stopped)
+			{
+				if (id == 0 && Thread.currentThread().isInterrupted())
+				{
+					stop(SearchStatus.CANCELLED);
+					return;
+				}
+
+				int[] batch;
+				while ((batch = inbox.poll()) != null)
+				{
+					receive(batch);
+					if (!busy && hasWork())
+					{
+						// Become busy before the batch is marked as read, so that the
+						// counter cannot reach zero while there is work to do.
+						busy = true;
+						work.incrementAndGet();
+					}
+					work.decrementAndGet();
+				}
+
+				if (busy)
+				{
+					if (!hasWork())
+					{
+						// The remaining cells, if any, cannot lead to a better path.
+						busy = false;
+						work.decrementAndGet();
+						continue;
+					}
+
+					final int allowed = claimExpansions();
+					if (allowed == 0)
+					{
+						stop(SearchStatus.NODE_LIMIT);
+						return;
+					}
+					if (limitReached())
+					{
+						return;
+					}
+					int expanded = 0;
+					while (expanded < allowed && hasWork())
+					{
+						final int h = frontier.peekSecondary();
+						final int cell = frontier.pop();
+						if (h < closestH)
+						{
+							closestH = h;
+							closestCell = cell;
+						}
+						expand(cell);
+						++expanded;
+					}
+					if (expanded < allowed && maxExpandedNodes != Long.MAX_VALUE)
+					{
+						// Return the unused expansions to the budget.
+						expansionsLeft.addAndGet(allowed - expanded);
+					}
+					sendAll();
+				}
+				else if (work.get() == 0)
+				{
+					return;
+				}
+				else
+				{
+					Thread.yield();
+				}
+			}
+		}
+
+		/**
+		 * Claims the expansions of the next round from the node budget.
+		 * @return The number of cells that the worker may expand, or 0 if the budget
+		 * has been used up.
+		 */
+		private int claimExpansions()
+		{
+			if (maxExpandedNodes == Long.MAX_VALUE)
+			{
+				return EXPANSIONS_PER_ROUND;
+			}
+			while (true)
+			{
+				final long left = expansionsLeft.get();
+				if (left <= 0)
+				{
+					return 0;
+				}
+				final int claimed = (int)Math.min(left, EXPANSIONS_PER_ROUND);
+				if (expansionsLeft.compareAndSet(left, left - claimed))
+				{
+					return claimed;
+				}
+			}
+		}
+
+		/**
+		 * Whether the deadline has passed or the search has been cancelled. If so, the
+		 * search is stopped.
+		 * @return true if the search must stop.
+		 */
+		private boolean limitReached()
+		{
+			final CancellationToken token = cancellationToken;
+			if (token != null && token.isCancelled())
+			{
+				stop(SearchStatus.CANCELLED);
+				return true;
+			}
+			if (hasDeadline && System.nanoTime() - deadline >= 0)
+			{
+				stop(SearchStatus.DEADLINE);
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Whether the worker has a cell that could lead to a better path.
+		 * @return true if the best cell in the frontier is below the incumbent.
+		 */
+		private boolean hasWork()
+		{
+			return !frontier.isEmpty() && frontier.peekPrimary() < bestCost.get();
+		}
+
+		/**
+		 * Reads a batch of messages, and adds each cell that was reached at a lower
+		 * cost to the frontier.
+		 * @param batch The messages, as (cell, parent, cost).
+		 */
+		private void receive(int[] batch)
+		{
+			for (int i = 0; i < batch.length; i += 3)
+			{
+				reach(batch[i], batch[i + 1], batch[i + 2]);
+			}
+		}
+
+		/**
+		 * Records a path to one of the worker's cells, if it is cheaper than the
+		 * cell's current cost.
+		 * @param cell The cell index.
+		 * @param from The cell's parent on the path.
+		 * @param cost The cost of the path.
+		 */
+		private void reach(int cell, int from, int cost)
+		{
+			final boolean isGenerated = stamps.isGenerated(cell);
+			if (isGenerated && g[cell] <= cost)
+			{
+				return;
+			}
+
+			final int h = heuristic.calculateCost(maze, cell, end);
+			++heuristicCallCount;
+			if (cost + h >= bestCost.get())
+			{
+				return;
+			}
+
+			if (!isGenerated)
+			{
+				++generatedCount;
+			}
+			else if (stamps.isClosed(cell))
+			{
+				++reopenedCount;
+			}
+			g[cell] = cost;
+			parent[cell] = from;
+			stamps.open(cell);
+
+			if (cell == end)
+			{
+				// Only the end cell's owner lowers the incumbent.
+				bestCost.set(cost);
+			}
+			else
+			{
+				frontier.insertOrUpdate(cell, cost + h, h);
+			}
+		}
+
+		/**
+		 * Expands a cell: its own neighbours are reached directly, and the others are
+		 * sent to their owners.
+		 * @param cell The cell index.
+		 */
+		private void expand(int cell)
+		{
+			++expandedCount;
+			stamps.close(cell);
+
+			// Every move between neighbouring cells costs 1.
+			final int cost = g[cell] + 1;
+			final int count = maze.getNeighbours(cell, neighbours);
+			for (int i = 0; i < count; ++i)
+			{
+				final int edge = neighbours[i];
+				final int edgeOwner = owner(edge);
+				if (edgeOwner == id)
+				{
+					reach(edge, cell, cost);
+				}
+				else
+				{
+					send(edgeOwner, edge, cell, cost);
+				}
+			}
+		}
+
+		/**
+		 * Adds a message to the batch for another worker, and sends the batch if it
+		 * is full.
+		 * @param to The index of the receiving worker.
+		 * @param cell The cell index.
+		 * @param from The cell's parent.
+		 * @param cost The cost of the path to the cell.
+		 */
+		private void send(int to, int cell, int from, int cost)
+		{
+			final int[] messages = outbox[to];
+			int size = outboxSize[to];
+			messages[size++] = cell;
+			messages[size++] = from;
+			messages[size++] = cost;
+			outboxSize[to] = size;
+			if (size == messages.length)
+			{
+				flush(to);
+			}
+		}
+
+		/**
+		 * Sends the waiting messages to every worker.
+		 */
+		private void sendAll()
+		{
+			for (int to = 0; to < workerCount; ++to)
+			{
+				if (outboxSize[to] > 0)
+				{
+					flush(to);
+				}
+			}
+		}
+
+		/**
+		 * Sends the waiting messages to a worker. The batch is counted before it is
+		 * added to the inbox, while this worker is still counted as busy.
+		 * @param to The index of the receiving worker.
+		 */
+		private void flush(int to)
+		{
+			work.incrementAndGet();
+			workers[to].inbox.add(Arrays.copyOf(outbox[to], outboxSize[to]));
+			outboxSize[to] = 0;
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package cdc.search;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cdc.maze.MazeGrid;
+import cdc.maze.Node;
+
+/**
+ * A bounded cache of search results, in front of the A* search. Paths are keyed by
+ * maze identity, start cell and goal cell, and are stored as arrays of cell indices.
+ * Each entry records the version of the maze it was found in; if the maze has 
+ * changed since, the entry is discarded and the path is searched for again. Searches
+ * that find no path are cached too.
+ * <p>
+ * When the cache holds more than its maximum number of entries or path cells, the
+ * least recently used entries are evicted. The cache is thread safe; searches run
+ * outside the cache's lock, so two threads that miss on the same key at the same
+ * time both search.
+ * @author Christopher D. Canfield
+ */
+public class PathCache
+{
+	// Cached value for searches that found no path.
+	private static final int[] NO_PATH = new int[0];
+	
+	// The maximum number of entries, and of path cells across all entries.
+	private final int maxEntries;
+	private final long maxCells;
+	// The heuristic used by the searches.
+	private final GridHeuristic heuristic;
+	
+	// The entries, in access order, so the first entry is the least recently used.
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	// The number of path cells across all entries.
+	private long cellCount;
+	
+	// Statistics.
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	private long invalidationCount;
+	
+	// Each thread reuses a search context while it searches the same maze.
+	private final ThreadLocal<SearchContext> contexts = new ThreadLocal<SearchContext>();
+	
+	/**
+	 * Instantiates a path cache that uses the Manhattan distance heuristic.
+	 * @param maxEntries The maximum number of cached paths.
+	 * @param maxCells The maximum number of path cells across all cached paths.
+	 */
+	public PathCache(int maxEntries, long maxCells)
+	{
+		this(maxEntries, maxCells, new ManhattanHeuristic());
+	}
+	
+	/**
+	 * Instantiates a path cache.
+	 * @param maxEntries The maximum number of cached paths.
+	 * @param maxCells The maximum number of path cells across all cached paths.
+	 * @param heuristic The heuristic used by the searches.
+	 */
+	public PathCache(int maxEntries, long maxCells, GridHeuristic heuristic)
+	{
+		if (maxEntries < 1 || maxCells < 1)
+		{
+			throw new IllegalArgumentException("The cache must be able to hold at least one entry and cell.");
+		}
+		this.maxEntries = maxEntries;
+		this.maxCells = maxCells;
+		this.heuristic = heuristic;
+	}
+	
+	/**
+	 * Returns the path between two cells, searching for it if it is not cached.
+	 * @param maze The maze.
+	 * @param start The index of the start cell.
+	 * @param goal The index of the goal cell.
+	 * @return The cells in the path, from start to goal, or null if no path from the
+	 * start to the goal can be found. The array is a copy, so it can be modified.
+	 */
+	public int[] findPath(MazeGrid maze, int start, int goal)
+	{
+		final Key key = new Key(maze, start, goal);
+		final long version = maze.getVersion();
+		
+		synchronized (this)
+		{
+			Entry entry = entries.get(key);
+			if (entry != null)
+			{
+				if (entry.version == version)
+				{
+					++hitCount;
+					return (entry.path == NO_PATH) ? null : entry.path.clone();
+				}
+				// The maze has changed since the path was found.
+				remove(key, entry);
+				++invalidationCount;
+			}
+			++missCount;
+		}
+		
+		SearchContext context = contexts.get();
+		if (context == null || context.getMaze() != maze)
+		{
+			context = new SearchContext(maze);
+			contexts.set(context);
+		}
+		final boolean found = GridSearch.aStar(context, start, goal, heuristic);
+		final int[] path = found ? context.copyPath() : NO_PATH;
+		
+		synchronized (this)
+		{
+			// Don't cache the path if the maze changed while it was being searched for.
+			if (maze.getVersion() == version)
+			{
+				Entry old = entries.put(key, new Entry(path, version));
+				if (old != null)
+				{
+					cellCount -= old.path.length;
+				}
+				cellCount += path.length;
+				evict();
+			}
+		}
+		return found ? path.clone() : null;
+	}
+	
+	/**
+	 * Returns the path from the maze's entrance to its exit as a SearchResult. The 
+	 * search result does not include the searched nodes, because a cached path
+	 * was not searched for.
+	 * @param maze The maze grid.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public SearchResult aStar(MazeGrid maze)
+	{
+		if (maze.getEntrance() == MazeGrid.NO_CELL || maze.getExit() == MazeGrid.NO_CELL)
+		{
+			throw new RuntimeException("Maze is missing an exit or entrance.");
+		}
+		
+		int[] cells = findPath(maze, maze.getEntrance(), maze.getExit());
+		if (cells == null)
+		{
+			return null;
+		}
+		Deque<Node> path = new ArrayDeque<Node>(cells.length);
+		for (int cell : cells)
+		{
+			path.addLast(new PathNode(maze.getNode(cell)));
+		}
+		return new SearchResult(path, Collections.<SearchNode>emptySet());
+	}
+	
+	/**
+	 * Removes every cached path for a maze.
+	 * @param maze The maze.
+	 */
+	public synchronized void invalidate(MazeGrid maze)
+	{
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext())
+		{
+			Map.Entry<Key, Entry> entry = it.next();
+			if (entry.getKey().maze == maze)
+			{
+				cellCount -= entry.getValue().path.length;
+				it.remove();
+				++invalidationCount;
+			}
+		}
+	}
+	
+	/**
+	 * Removes every cached path. The statistics are not reset.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		cellCount = 0;
+	}
+	
+	/**
+	 * Returns the number of cached paths.
+	 * @return The number of entries.
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+	
+	/**
+	 * Returns the number of path cells across all cached paths.
+	 * @return The number of cached cells.
+	 */
+	public synchronized long getCellCount()
+	{
+		return cellCount;
+	}
+	
+	/**
+	 * Returns the number of lookups that were answered from the cache.
+	 * @return The hit count.
+	 */
+	public synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+	
+	/**
+	 * Returns the number of lookups that required a search.
+	 * @return The miss count.
+	 */
+	public synchronized long getMissCount()
+	{
+		return missCount;
+	}
+	
+	/**
+	 * Returns the fraction of lookups that were answered from the cache.
+	 * @return The hit rate, from 0 to 1, or 0 if there have been no lookups.
+	 */
+	public synchronized double getHitRate()
+	{
+		final long lookups = hitCount + missCount;
+		return (lookups == 0) ? 0.0 : (double)hitCount / lookups;
+	}
+	
+	/**
+	 * Returns the number of entries that were evicted to keep the cache within its bounds.
+	 * @return The eviction count.
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictionCount;
+	}
+	
+	/**
+	 * Returns the number of entries that were discarded because their maze changed,
+	 * or were removed by invalidate.
+	 * @return The invalidation count.
+	 */
+	public synchronized long getInvalidationCount()
+	{
+		return invalidationCount;
+	}
+	
+	/**
+	 * Resets the statistics.
+	 */
+	public synchronized void resetStatistics()
+	{
+		hitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+		invalidationCount = 0;
+	}
+	
+	@Override
+	public synchronized String toString()
+	{
+		return "PathCache[entries=" + entries.size() + ", cells=" + cellCount + ", hits=" + hitCount +
+				", misses=" + missCount + ", evictions=" + evictionCount + 
+				", invalidations=" + invalidationCount + "]";
+	}
+	
+	private void remove(Key key, Entry entry)
+	{
+		entries.remove(key);
+		cellCount -= entry.path.length;
+	}
+	
+	/**
+	 * Evicts the least recently used entries until the cache is within its bounds.
+	 * The most recently used entry is always kept.
+	 */
+	private void evict()
+	{
+		Iterator<Entry> it = entries.values().iterator();
+		while ((entries.size() > maxEntries || cellCount > maxCells) && entries.size() > 1)
+		{
+			cellCount -= it.next().path.length;
+			it.remove();
+			++evictionCount;
+		}
+	}
+	
+	
+	/**
+	 * Identifies a path: the maze, compared by identity, and the start and goal cells.
+	 */
+	private static final class Key
+	{
+		final MazeGrid maze;
+		final int start;
+		final int goal;
+		
+		Key(MazeGrid maze, int start, int goal)
+		{
+			this.maze = maze;
+			this.start = start;
+			this.goal = goal;
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+			{
+				return false;
+			}
+			Key other = (Key)o;
+			return maze == other.maze && start == other.start && goal == other.goal;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return (System.identityHashCode(maze) * 31 + start) * 31 + goal;
+		}
+	}
+	
+	/**
+	 * A cached path, and the version of the maze it was found in.
+	 */
+	private static final class Entry
+	{
+		final int[] path;
+		final long version;
+		
+		Entry(int[] path, long version)
+		{
+			this.path = path;
+			this.version = version;
+		}
+	}
+}
@@ -1,20 +1,53 @@
 package cdc.search;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import cdc.maze.MazeGrid;
 import cdc.maze.Node;
 
 /**
- * Contains a method that implements the A* search algorithm.
+ * Contains a method that implements the A* search algorithm. Each search records
+ * its metrics in the SearchResult, and reports them to the search listeners.
  * @author Christopher D. Canfield
  */
 public class Search
 {
+	// The listeners that are notified when a search finishes.
+	private static final List<SearchListener> listeners = new CopyOnWriteArrayList<SearchListener>();
+	
+	/**
+	 * Adds a listener that is notified whenever one of the Search methods finishes
+	 * a search, on any thread. AnytimeSearch, IncrementalPlanner and FlowField also
+	 * report their searches to the listeners.
+	 * @param listener The listener.
+	 */
+	public static void addSearchListener(SearchListener listener)
+	{
+		if (listener == null)
+		{
+			throw new NullPointerException("listener");
+		}
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Removes a search listener.
+	 * @param listener The listener.
+	 */
+	public static void removeSearchListener(SearchListener listener)
+	{
+		listeners.remove(listener);
+	}
+	
 	/**
 	 * Performs an A* search between the start and end node. Returns a a SearchResult
 	 * object, which contains a queue of nodes representing the path from 
@@ -28,28 +61,89 @@ public class Search
 	 */
 	public static SearchResult aStar(Node start, Node end, Heuristic heuristic)
 	{
-		// Instantiate the frontier priority queue and searched set. The frontier 
+		return aStar(start, end, heuristic, SearchOptions.full());
+	}
+	
+	/**
+	 * Performs an A* search between the start and end node, within the limits of 
+	 * the search options. If a limit is reached, the result has the best partial 
+	 * path: the path to the searched node with the lowest heuristic estimate. With
+	 * pathOnly options, the result does not include the searched nodes; unlike the
+	 * MazeGrid searches, this does not lower the peak memory use of the search,
+	 * because the searched set is needed until the search returns.
+	 * @param start The initial node.
+	 * @param end The final node.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * @param options Whether the searched nodes are included in the result, the
+	 * limits of the search, and the open list and tie-breaking rule that it uses. The
+	 * options must not have a visitor, because Nodes do not have cell indices.
+	 * @return The search result. Note that this will return null if no path from the
+	 * start to end can be found.
+	 * @throws IllegalArgumentException If the options have a visitor.
+	 */
+	public static SearchResult aStar(Node start, Node end, Heuristic heuristic, SearchOptions options)
+	{
+		if (options.getVisitor() != null)
+		{
+			throw new IllegalArgumentException("A search of Nodes cannot report to a visitor.");
+		}
+		
+		final long startNanos = System.nanoTime();
+		long expandedCount = 0;
+		long heuristicCallCount = 1;
+		// The number of times that a node was reached again at a lower cost, which
+		// adds a duplicate search node to the frontier.
+		long reopenedCount = 0;
+		int peakFrontierSize = 1;
+		
+		// Instantiate the frontier open list and searched map. The frontier 
 		// is used to identify nodes that are at the edge of the explored zone. The
 		// lowest cost of these nodes will then have their edges searched.
-		// The searched set ensures that a previously explored node is not re-explored.
-		PriorityQueue<SearchNode> frontier = new PriorityQueue<SearchNode>();
-		Set<SearchNode> searched = new HashSet<SearchNode>();
+		// The searched map holds the cheapest search node found for each node, so
+		// that a node is only searched again if it is reached at a lower cost.
+		OpenList frontier = options.getOpenListType().create(options.getTieBreaking());
+		Map<SearchNode, SearchNode> searched = new HashMap<SearchNode, SearchNode>();
 		
 		// Wrap the start node in the SearchNode decorator.
 		SearchNode startNode = 
 				new SearchNode(start, null, 0, heuristic.calculateCost(start, end));
 		
-		// Add the start node to the frontier priority queue and the searched set.
-		// The searched set ensures that the start node isn't searched
-		searched.add(startNode);
+		// Add the start node to the frontier and the searched map.
+		// The searched map ensures that the start node isn't searched
+		searched.put(startNode, startNode);
 		frontier.add(startNode);
 		
+		// The expanded node that is estimated to be closest to the end node, which
+		// ends the partial path if the search is stopped by a limit.
+		SearchNode closest = null;
+		
 		// Loop through the frontier nodes. If all nodes are searched and
 		// no path to the exit is found, then no path is possible, and null
 		// will be returned.
 		while (!frontier.isEmpty())
 		{
+			SearchStatus limit = checkLimits(options, expandedCount);
+			if (limit != null)
+			{
+				Queue<Node> path = (closest != null) ? constructPath(closest, start) : new ArrayDeque<Node>();
+				SearchMetrics metrics = new SearchMetrics(expandedCount, searched.size(), reopenedCount, 
+						peakFrontierSize, heuristicCallCount, System.nanoTime() - startNanos);
+				fireSearchFinished("aStar", false, metrics);
+				return new SearchResult(path, searchedNodes(searched.keySet(), options), metrics, limit);
+			}
+			
 			SearchNode lowestCost = frontier.remove();
+			// Skip the node if it has been reached at a lower cost since it was added
+			// to the frontier; the cheaper search node is in the frontier too.
+			if (searched.get(lowestCost) != lowestCost)
+			{
+				continue;
+			}
+			++expandedCount;
+			if (closest == null || lowestCost.getH() < closest.getH())
+			{
+				closest = lowestCost;
+			}
 			
 			// Check if the lowest cost equals the end node. If it does, 
 			// the algorithm has reached the end, so construct the path using
@@ -57,8 +151,11 @@ public class Search
 			if (lowestCost.equals(end))
 			{
 				Queue<Node> path = constructPath(lowestCost, start);
-				// Return the path and the searched set, so both can be displayed.
-				SearchResult result = new SearchResult(path, searched);
+				// Return the path, the searched set and the metrics, so they can be displayed.
+				SearchMetrics metrics = new SearchMetrics(expandedCount, searched.size(), reopenedCount, 
+						peakFrontierSize, heuristicCallCount, System.nanoTime() - startNanos);
+				fireSearchFinished("aStar", true, metrics);
+				SearchResult result = new SearchResult(path, searchedNodes(searched.keySet(), options), metrics);
 				return result;
 			}
 			
@@ -66,43 +163,548 @@ public class Search
 			// cost node.
 			for (Node edge : lowestCost.getEdges())
 			{
-				// Calculate the g (from start) cost of the lowest cost node by 
-				// taking the parent's g cost and adding 1 to it.
-				int g = 1;
-				if (lowestCost.getParent() != null)
+				// Calculate the g (from start) cost of the edge by taking the
+				// lowest cost node's g cost and adding 1 to it.
+				int g = lowestCost.getG() + 1;
+				
+				// Skip the edge if it has already been searched at the same or 
+				// lower cost, or if it is a wall.
+				SearchNode previous = searched.get(edge);
+				if (previous != null && (previous.getG() <= g || !previous.isOpen()))
 				{
-					g += lowestCost.getParent().getG();
+					continue;
 				}
 
-				// Calculate the h (heuristic) cost of the lowest cost node
-				// to the end node.
-				int h = heuristic.calculateCost(edge, end);
+				// Calculate the h (heuristic) cost of the edge to the end node.
+				int h;
+				if (previous != null)
+				{
+					h = previous.getH();
+					++reopenedCount;
+				}
+				else
+				{
+					h = heuristic.calculateCost(edge, end);
+					++heuristicCallCount;
+				}
 				
 				// Wrap the edge in the SearchNode decorator, so the parent and 
 				// costs can be stored with it.
 				SearchNode edgeSearchNode = new SearchNode(edge, lowestCost, g, h);
 				
-				// Determine if the edge has already been searched.
-				if (!searched.contains(edgeSearchNode))
+				// Add the edge to the frontier, if it is open (i.e., passable).
+				if (edgeSearchNode.isOpen())
 				{
-					// Add the edge to the frontier priority queue, if it
-					// is open (i.e., passable).
-					if (edgeSearchNode.isOpen())
-					{
-						frontier.add(edgeSearchNode);
-					}
-					
-					// Add the edge to the searched set.
-					searched.add(edgeSearchNode);
+					frontier.add(edgeSearchNode);
+					peakFrontierSize = Math.max(peakFrontierSize, frontier.size());
 				}
+				
+				// Add the edge to the searched map, replacing the more expensive 
+				// search node (the map would otherwise keep the old key).
+				searched.remove(edgeSearchNode);
+				searched.put(edgeSearchNode, edgeSearchNode);
 			}
 		}
 		
 		// Return null if no path can be found from 
 		// the start node to the end node.
+		fireSearchFinished("aStar", false, new SearchMetrics(expandedCount, searched.size(), reopenedCount, 
+				peakFrontierSize, heuristicCallCount, System.nanoTime() - startNanos));
 		return null;
 	}
 	
+	/**
+	 * Performs an A* search from the maze's entrance to its exit, using the
+	 * index-based GridSearch engine. The result has the same form as the result 
+	 * of the Node-based search.
+	 * @param maze The maze grid.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * If it is not a GridHeuristic, it is called with Node views of the cells.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult aStar(MazeGrid maze, Heuristic heuristic)
+	{
+		return aStar(maze, heuristic, SearchOptions.full());
+	}
+	
+	/**
+	 * Performs an A* search from the maze's entrance to its exit, using the
+	 * index-based GridSearch engine.
+	 * @param maze The maze grid.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * If it is not a GridHeuristic, it is called with Node views of the cells.
+	 * @param options Whether the searched nodes are included in the result, the 
+	 * visitor that follows the search, the limits of the search, and the component
+	 * index that rejects unreachable searches.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found. If a limit is reached, the result has the best partial path.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult aStar(MazeGrid maze, Heuristic heuristic, SearchOptions options)
+	{
+		if (maze.getEntrance() == MazeGrid.NO_CELL || maze.getExit() == MazeGrid.NO_CELL)
+		{
+			throw new RuntimeException("Maze is missing an exit or entrance.");
+		}
+		
+		if (isUnreachable(maze, options))
+		{
+			fireSearchFinished("aStar", false, SearchMetrics.NONE);
+			return null;
+		}
+		
+		GridHeuristic gridHeuristic = toGridHeuristic(heuristic);
+		SearchContext context = new SearchContext(maze);
+		context.setOptions(options);
+		final boolean found = GridSearch.aStar(context, maze.getEntrance(), maze.getExit(), gridHeuristic);
+		fireSearchFinished("aStar", found, context.getMetrics());
+		if (context.getStatus() == SearchStatus.NO_PATH)
+		{
+			return null;
+		}
+		return toSearchResult(context, maze.getExit(), gridHeuristic, options);
+	}
+	
+	/**
+	 * Performs a weighted A* search from the maze's entrance to its exit. The path
+	 * costs at most epsilon times the optimal cost, and is usually found after far
+	 * fewer expansions than the optimal path.
+	 * @param maze The maze grid.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be consistent.
+	 * @param epsilon The heuristic weight; at least 1.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult weightedAStar(MazeGrid maze, Heuristic heuristic, double epsilon)
+	{
+		return weightedAStar(maze, heuristic, epsilon, SearchOptions.full());
+	}
+	
+	/**
+	 * Performs a weighted A* search from the maze's entrance to its exit. The path
+	 * costs at most epsilon times the optimal cost.
+	 * @param maze The maze grid.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be consistent.
+	 * @param epsilon The heuristic weight; at least 1.
+	 * @param options Whether the searched nodes are included in the result, the 
+	 * visitor that follows the search, the limits of the search, and the component
+	 * index that rejects unreachable searches.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found. If a limit is reached, the result has the best partial path.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult weightedAStar(MazeGrid maze, Heuristic heuristic, double epsilon,
+			SearchOptions options)
+	{
+		if (maze.getEntrance() == MazeGrid.NO_CELL || maze.getExit() == MazeGrid.NO_CELL)
+		{
+			throw new RuntimeException("Maze is missing an exit or entrance.");
+		}
+
+		if (isUnreachable(maze, options))
+		{
+			fireSearchFinished("weightedAStar", false, SearchMetrics.NONE);
+			return null;
+		}
+		
+		GridHeuristic gridHeuristic = toGridHeuristic(heuristic);
+		SearchContext context = new SearchContext(maze);
+		context.setOptions(options);
+		final boolean found = GridSearch.weightedAStar(context, maze.getEntrance(), maze.getExit(), gridHeuristic, epsilon);
+		fireSearchFinished("weightedAStar", found, context.getMetrics());
+		if (context.getStatus() == SearchStatus.NO_PATH)
+		{
+			return null;
+		}
+		return toSearchResult(context, maze.getExit(), gridHeuristic, options);
+	}
+
+	/**
+	 * Performs a bidirectional A* search between the maze's entrance and exit. The
+	 * path has the same cost as the path found by aStar. The searched nodes include
+	 * the cells reached by both searches; the cells reached by the backward search 
+	 * have their costs from the exit.
+	 * @param maze The maze grid.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be consistent and symmetric.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult bidirectionalAStar(MazeGrid maze, Heuristic heuristic)
+	{
+		return bidirectionalAStar(maze, heuristic, SearchOptions.full());
+	}
+	
+	/**
+	 * Performs a bidirectional A* search between the maze's entrance and exit. The
+	 * visitor follows both searches; the costs of the backward search are from the exit.
+	 * @param maze The maze grid.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be consistent and symmetric.
+	 * @param options Whether the searched nodes are included in the result, the 
+	 * visitor that follows the search, the limits of the search, and the component
+	 * index that rejects unreachable searches.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found. If a limit is reached, the result has the best partial path.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult bidirectionalAStar(MazeGrid maze, Heuristic heuristic, SearchOptions options)
+	{
+		if (maze.getEntrance() == MazeGrid.NO_CELL || maze.getExit() == MazeGrid.NO_CELL)
+		{
+			throw new RuntimeException("Maze is missing an exit or entrance.");
+		}
+		
+		if (isUnreachable(maze, options))
+		{
+			fireSearchFinished("bidirectionalAStar", false, SearchMetrics.NONE);
+			return null;
+		}
+		
+		GridHeuristic gridHeuristic = toGridHeuristic(heuristic);
+		BidirectionalContext context = new BidirectionalContext(maze);
+		context.setOptions(options);
+		final boolean found = BidirectionalSearch.aStar(context, maze.getEntrance(), maze.getExit(), gridHeuristic);
+		final SearchMetrics metrics = context.getMetrics();
+		fireSearchFinished("bidirectionalAStar", found, metrics);
+		if (context.getStatus() == SearchStatus.NO_PATH)
+		{
+			return null;
+		}
+		
+		Deque<Node> path = new ArrayDeque<Node>(context.getPathLength());
+		for (int i = 0; i < context.getPathLength(); ++i)
+		{
+			path.addLast(new PathNode(maze.getNode(context.getPathCell(i))));
+		}
+		
+		if (!options.isRetainSearchedNodes())
+		{
+			return new SearchResult(path, Collections.<SearchNode>emptySet(), metrics, context.getStatus());
+		}
+		Set<SearchNode> searched = new HashSet<SearchNode>(
+				(context.getForward().getGeneratedCount() + context.getBackward().getGeneratedCount()) * 2);
+		addSearchedNodes(searched, context.getForward(), maze.getExit(), gridHeuristic);
+		addSearchedNodes(searched, context.getBackward(), maze.getEntrance(), gridHeuristic);
+		return new SearchResult(path, searched, metrics, context.getStatus());
+	}
+	
+	/**
+	 * Performs a hierarchical (HPA*) search from the maze's entrance to its exit,
+	 * using a cluster graph that was built for the maze. The path is not always 
+	 * optimal. The searched nodes are the entry points reached by the abstract search.
+	 * @param maze The maze grid.
+	 * @param graph The maze's cluster graph.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found.
+	 * @throws RuntimeException If the maze is missing an entrance or exit, or the 
+	 * graph was built for a different maze.
+	 */
+	public static SearchResult hierarchicalSearch(MazeGrid maze, ClusterGraph graph)
+	{
+		if (maze.getEntrance() == MazeGrid.NO_CELL || maze.getExit() == MazeGrid.NO_CELL)
+		{
+			throw new RuntimeException("Maze is missing an exit or entrance.");
+		}
+		
+		HierarchicalSearch search = new HierarchicalSearch(maze, graph);
+		final boolean found = search.search(maze.getEntrance(), maze.getExit());
+		final SearchMetrics metrics = search.getMetrics();
+		fireSearchFinished("hierarchicalSearch", found, metrics);
+		if (!found)
+		{
+			return null;
+		}
+		
+		Deque<Node> path = new ArrayDeque<Node>(search.getPathLength());
+		for (int i = 0; i < search.getPathLength(); ++i)
+		{
+			path.addLast(new PathNode(maze.getNode(search.getPathCell(i))));
+		}
+		
+		ManhattanHeuristic heuristic = new ManhattanHeuristic();
+		Set<SearchNode> searched = new HashSet<SearchNode>(search.getGeneratedCount() * 2);
+		for (int i = 0; i < search.getGeneratedCount(); ++i)
+		{
+			final int cell = search.getGeneratedCell(i);
+			searched.add(new SearchNode(maze.getNode(cell), null, search.getGeneratedCost(i),
+					heuristic.calculateCost(maze, cell, maze.getExit())));
+		}
+		return new SearchResult(path, searched, metrics);
+	}
+	
+	/**
+	 * Performs a Jump Point Search from the maze's entrance to its exit. Returns the
+	 * same path as aStar, but only the jump points are included in the searched nodes.
+	 * @param maze The maze grid.
+	 * @param movement The moves allowed between cells. With eight-connected movement,
+	 * the g and h costs of the searched nodes are in units of OctileHeuristic.STRAIGHT_COST.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult jumpPointSearch(MazeGrid maze, Movement movement)
+	{
+		return jumpPointSearch(maze, movement, SearchOptions.full());
+	}
+	
+	/**
+	 * Performs a Jump Point Search from the maze's entrance to its exit. The visitor
+	 * is only told about the jump points.
+	 * @param maze The maze grid.
+	 * @param movement The moves allowed between cells.
+	 * @param options Whether the searched nodes are included in the result, the 
+	 * visitor that follows the search, the limits of the search, and the component
+	 * index that rejects unreachable searches.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found. If a limit is reached, the result has the best partial path.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult jumpPointSearch(MazeGrid maze, Movement movement, SearchOptions options)
+	{
+		if (maze.getEntrance() == MazeGrid.NO_CELL || maze.getExit() == MazeGrid.NO_CELL)
+		{
+			throw new RuntimeException("Maze is missing an exit or entrance.");
+		}
+
+		if (isUnreachable(maze, options))
+		{
+			fireSearchFinished("jumpPointSearch", false, SearchMetrics.NONE);
+			return null;
+		}
+		
+		SearchContext context = new SearchContext(maze);
+		context.setOptions(options);
+		final boolean found = JumpPointSearch.search(context, maze.getEntrance(), maze.getExit(), movement);
+		fireSearchFinished("jumpPointSearch", found, context.getMetrics());
+		if (context.getStatus() == SearchStatus.NO_PATH)
+		{
+			return null;
+		}
+		return toSearchResult(context, maze.getExit(), movement.getHeuristic(), options);
+	}
+
+	/**
+	 * Performs a parallel A* search from the maze's entrance to its exit, spread
+	 * across several worker threads (see ParallelSearch). The path is optimal. The
+	 * search is meant for very large mazes, so the result does not include the
+	 * searched nodes.
+	 * @param maze The maze grid.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be admissible and thread safe.
+	 * @param threadCount The number of worker threads, including the calling thread.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 */
+	public static SearchResult parallelAStar(MazeGrid maze, Heuristic heuristic, int threadCount)
+	{
+		return parallelAStar(maze, heuristic, threadCount, SearchOptions.pathOnly());
+	}
+
+	/**
+	 * Performs a parallel A* search from the maze's entrance to its exit, spread
+	 * across several worker threads (see ParallelSearch). The search's workers check
+	 * the node budget, deadline and cancellation token of the options as they expand
+	 * cells. The result never includes the searched nodes.
+	 * @param maze The maze grid.
+	 * @param heuristic The heuristic function to use when calculating the A* "h" value.
+	 * It must be admissible and thread safe.
+	 * @param threadCount The number of worker threads, including the calling thread.
+	 * @param options The limits of the search, and the component index that rejects
+	 * unreachable searches. The options must not have a visitor.
+	 * @return The search result, or null if no path from the entrance to the exit
+	 * can be found. If a limit is reached, the result has the best partial path.
+	 * @throws RuntimeException If the maze is missing an entrance or exit.
+	 * @throws IllegalArgumentException If the options have a visitor.
+	 */
+	public static SearchResult parallelAStar(MazeGrid maze, Heuristic heuristic, int threadCount,
+			SearchOptions options)
+	{
+		if (maze.getEntrance() == MazeGrid.NO_CELL || maze.getExit() == MazeGrid.NO_CELL)
+		{
+			throw new RuntimeException("Maze is missing an exit or entrance.");
+		}
+
+		if (isUnreachable(maze, options))
+		{
+			fireSearchFinished("parallelAStar", false, SearchMetrics.NONE);
+			return null;
+		}
+		
+		try (ParallelSearch search = new ParallelSearch(maze, threadCount))
+		{
+			search.setOptions(options);
+			final boolean found = search.search(maze.getEntrance(), maze.getExit(), toGridHeuristic(heuristic));
+			fireSearchFinished("parallelAStar", found, search.getMetrics());
+			if (search.getStatus() == SearchStatus.NO_PATH)
+			{
+				return null;
+			}
+			
+			Deque<Node> path = new ArrayDeque<Node>(search.getPathLength());
+			for (int i = 0; i < search.getPathLength(); ++i)
+			{
+				path.addLast(new PathNode(maze.getNode(search.getPathCell(i))));
+			}
+			return new SearchResult(path, Collections.<SearchNode>emptySet(), search.getMetrics(),
+					search.getStatus());
+		}
+	}
+
+	/**
+	 * Converts the path and reached cells stored in a search context into a 
+	 * SearchResult, so they can be displayed.
+	 * @param context The context of a search that found a path, or that was stopped
+	 * by a limit.
+	 * @param end The end cell of the search.
+	 * @param heuristic The heuristic used by the search.
+	 * @param options Whether the reached cells are included in the result.
+	 * @return The search result.
+	 */
+	static SearchResult toSearchResult(SearchContext context, int end, GridHeuristic heuristic,
+			SearchOptions options)
+	{
+		final MazeGrid maze = context.getMaze();
+		
+		Deque<Node> path = new ArrayDeque<Node>(context.getPathLength());
+		for (int i = 0; i < context.getPathLength(); ++i)
+		{
+			path.addLast(new PathNode(maze.getNode(context.getPathCell(i))));
+		}
+		
+		if (!options.isRetainSearchedNodes())
+		{
+			return new SearchResult(path, Collections.<SearchNode>emptySet(), context.getMetrics(),
+					context.getStatus());
+		}
+		Set<SearchNode> searched = new HashSet<SearchNode>(context.getGeneratedCount() * 2);
+		addSearchedNodes(searched, context, end, heuristic);
+		return new SearchResult(path, searched, context.getMetrics(), context.getStatus());
+	}
+	
+	/**
+	 * Whether the options' component index shows that the maze's exit cannot be 
+	 * reached from its entrance.
+	 * @param maze The maze grid.
+	 * @param options The search options.
+	 * @return true if the search cannot find a path.
+	 * @throws IllegalArgumentException If the component index is for a different maze.
+	 */
+	private static boolean isUnreachable(MazeGrid maze, SearchOptions options)
+	{
+		ComponentIndex index = options.getComponentIndex();
+		if (index == null)
+		{
+			return false;
+		}
+		if (index.getMaze() != maze)
+		{
+			throw new IllegalArgumentException("The component index is for a different maze.");
+		}
+		return !index.isConnected(maze.getEntrance(), maze.getExit());
+	}
+	
+	/**
+	 * Checks the limits of a Node-based search. The deadline and cancellation token
+	 * are only checked every 256 expansions.
+	 * @param options The search options.
+	 * @param expandedCount The number of nodes that have been expanded.
+	 * @return The limit that was reached, or null if the search can continue.
+	 */
+	private static SearchStatus checkLimits(SearchOptions options, long expandedCount)
+	{
+		if (expandedCount >= options.getMaxExpandedNodes())
+		{
+			return SearchStatus.NODE_LIMIT;
+		}
+		if ((expandedCount & 0xFF) == 0)
+		{
+			CancellationToken token = options.getCancellationToken();
+			if (token != null && token.isCancelled())
+			{
+				return SearchStatus.CANCELLED;
+			}
+			if (options.hasDeadline() && System.nanoTime() - options.getDeadline() >= 0)
+			{
+				return SearchStatus.DEADLINE;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the searched nodes of a Node-based search, if the options retain them.
+	 * @param searched The set of searched nodes.
+	 * @param options The search options.
+	 * @return The searched set, or an empty set.
+	 */
+	private static Set<SearchNode> searchedNodes(Set<SearchNode> searched, SearchOptions options)
+	{
+		return options.isRetainSearchedNodes() ? searched : Collections.<SearchNode>emptySet();
+	}
+	
+	/**
+	 * Notifies the search listeners that a search has finished.
+	 * @param algorithm The name of the search algorithm.
+	 * @param pathFound Whether the search found a path.
+	 * @param metrics The search metrics.
+	 */
+	static void fireSearchFinished(String algorithm, boolean pathFound, SearchMetrics metrics)
+	{
+		for (SearchListener listener : listeners)
+		{
+			listener.searchFinished(algorithm, pathFound, metrics);
+		}
+	}
+	
+	/**
+	 * Adds the cells reached by a search to a set of searched nodes.
+	 * @param searched The set of searched nodes.
+	 * @param context The context of the search.
+	 * @param end The cell that the search was heading towards.
+	 * @param heuristic The heuristic used by the search.
+	 */
+	private static void addSearchedNodes(Set<SearchNode> searched, SearchContext context, int end,
+			GridHeuristic heuristic)
+	{
+		final MazeGrid maze = context.getMaze();
+		for (int i = 0; i < context.getGeneratedCount(); ++i)
+		{
+			final int cell = context.getGeneratedCell(i);
+			searched.add(new SearchNode(maze.getNode(cell), null, context.getCost(cell), 
+					heuristic.calculateCost(maze, cell, end)));
+		}
+	}
+	
+	/**
+	 * Returns the heuristic as a GridHeuristic. Heuristics that only work on
+	 * Nodes are called with Node views of the cells.
+	 * @param heuristic The heuristic.
+	 * @return The grid heuristic.
+	 */
+	private static GridHeuristic toGridHeuristic(final Heuristic heuristic)
+	{
+		if (heuristic instanceof GridHeuristic)
+		{
+			return (GridHeuristic)heuristic;
+		}
+		return new GridHeuristic()
+		{
+			@Override
+			public int calculateCost(MazeGrid maze, int start, int end)
+			{
+				return heuristic.calculateCost(maze.getNode(start), maze.getNode(end));
+			}
+		};
+	}
+	
 	/**
 	 * Constructs a path from the final PathNode back to the start node. This
 	 * should be used with the Queue<Path> returned by the A* algorithm.
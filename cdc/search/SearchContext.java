@@ -0,0 +1,492 @@
+package cdc.search;
+
+import java.util.Arrays;
+
+import cdc.maze.MazeGrid;
+
+/**
+ * The reusable working state of the index-based search engines. A context holds
+ * the g costs, parent links and frontier of a search in primitive arrays that are
+ * sized for one maze, so repeated searches on the same maze do not allocate.
+ * <p>
+ * The arrays are not cleared between searches. Instead, each search is given a
+ * new generation number, and a cell's entries are only valid if its stamp matches
+ * the current generation. A context is not thread safe; use one context per thread.
+ * <p>
+ * A SearchVisitor can be set to follow each search as it runs, and the searches can
+ * be limited by a node budget, a deadline and a cancellation token (see setOptions).
+ * @author Christopher D. Canfield
+ */
+public class SearchContext
+{
+	/** The parent of the start cell. **/
+	static final int NO_PARENT = -1;
+
+	// The initial capacity of the growable buffers.
+	private static final int INITIAL_CAPACITY = 64;
+	// The number of expansions between checks of the deadline and cancellation token.
+	private static final int LIMIT_CHECK_INTERVAL = 256;
+
+	// The maze that the context is sized for.
+	private final MazeGrid maze;
+
+	// The cumulative cost from the start cell to each cell.
+	final int[] g;
+	// The parent of each cell in the search tree.
+	final int[] parent;
+	// The generation in which each cell was last generated or closed.
+	private final GenerationStamps stamps;
+	// The frontier.
+	final IndexedHeap frontier;
+	// Scratch buffer for MazeGrid.getNeighbours.
+	final int[] neighbours = new int[8];
+
+	// The cells that were generated by the current search, in generation order.
+	private int[] generated = new int[INITIAL_CAPACITY];
+	private int generatedCount;
+
+	// The path found by the last search, from start to goal.
+	private int[] path = new int[INITIAL_CAPACITY];
+	private int pathLength;
+
+	// Follows the searches as they run, or null.
+	private SearchVisitor visitor;
+	// The limits of each search.
+	private long maxExpandedNodes = Long.MAX_VALUE;
+	private boolean hasDeadline;
+	private long deadline;
+	private CancellationToken cancellationToken;
+	// The number of expansions until the deadline and cancellation token are checked.
+	private int untilLimitCheck;
+
+	// How the last search ended.
+	SearchStatus status = SearchStatus.NO_PATH;
+	// The expanded cell with the lowest heuristic estimate, and its estimate.
+	private int closestCell;
+	private int closestH;
+
+	// The number of cells expanded by the last search.
+	long expandedCount;
+	// The number of closed cells that the last search reached again at a lower cost.
+	private long reopenedCount;
+	// The number of heuristic calls made by the last search.
+	long heuristicCallCount;
+	// The time when the last search began, and its duration.
+	private long startNanos;
+	private long elapsedNanos;
+	// The factor by which the cost of the last path may exceed the optimal cost.
+	double suboptimalityBound = 1.0;
+
+	/**
+	 * Instantiates a search context for the specified maze.
+	 * @param maze The maze that will be searched.
+	 */
+	public SearchContext(MazeGrid maze)
+	{
+		final int cellCount = maze.getCellCount();
+		this.maze = maze;
+		this.g = new int[cellCount];
+		this.parent = new int[cellCount];
+		this.stamps = new GenerationStamps(cellCount);
+		this.frontier = new IndexedHeap(cellCount);
+	}
+
+	/**
+	 * Returns the maze that this context searches.
+	 * @return The maze grid.
+	 */
+	public MazeGrid getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * Sets a visitor that follows each search as it runs. The visitor is called from
+	 * the search loop, so it should be quick.
+	 * @param visitor The visitor, or null for none.
+	 */
+	public void setVisitor(SearchVisitor visitor)
+	{
+		this.visitor = visitor;
+	}
+
+	/**
+	 * Returns the visitor that follows each search.
+	 * @return The visitor, or null.
+	 */
+	public SearchVisitor getVisitor()
+	{
+		return visitor;
+	}
+
+	/**
+	 * Applies the visitor and the limits of a set of search options to the following
+	 * searches. A search that reaches a limit returns false, with the limit's status
+	 * and the best partial path.
+	 * @param options The search options.
+	 */
+	public void setOptions(SearchOptions options)
+	{
+		this.visitor = options.getVisitor();
+		this.maxExpandedNodes = options.getMaxExpandedNodes();
+		this.hasDeadline = options.hasDeadline();
+		this.deadline = options.getDeadline();
+		this.cancellationToken = options.getCancellationToken();
+	}
+
+	/**
+	 * Resets the context for a new search.
+	 */
+	void begin()
+	{
+		stamps.next();
+		frontier.clear();
+		generatedCount = 0;
+		pathLength = 0;
+		expandedCount = 0;
+		reopenedCount = 0;
+		heuristicCallCount = 0;
+		suboptimalityBound = 1.0;
+		status = SearchStatus.NO_PATH;
+		closestCell = NO_PARENT;
+		closestH = Integer.MAX_VALUE;
+		// Check the deadline and cancellation token before the first expansion.
+		untilLimitCheck = 1;
+		elapsedNanos = 0;
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Records the end of the current search.
+	 */
+	void finish()
+	{
+		elapsedNanos = System.nanoTime() - startNanos;
+	}
+
+	/**
+	 * Whether the cell has been generated (reached) by the current search.
+	 * @param cell The cell index.
+	 * @return true if the cell is open or closed in the current search.
+	 */
+	boolean isGenerated(int cell)
+	{
+		return stamps.isGenerated(cell);
+	}
+
+	/**
+	 * Whether the cell has been closed (expanded) by the current search.
+	 * @param cell The cell index.
+	 * @return true if the cell is closed.
+	 */
+	boolean isClosed(int cell)
+	{
+		return stamps.isClosed(cell);
+	}
+
+	/**
+	 * Records a newly reached cell, or a cheaper path to a reached cell. A closed cell
+	 * that is reached again is counted as reopened.
+	 * @param cell The cell index.
+	 * @param parentCell The cell that lead to this cell, or NO_PARENT.
+	 * @param cost The cumulative cost from the start cell.
+	 */
+	void generate(int cell, int parentCell, int cost)
+	{
+		if (!isGenerated(cell))
+		{
+			if (generatedCount == generated.length)
+			{
+				generated = Arrays.copyOf(generated, grow(generated.length));
+			}
+			generated[generatedCount++] = cell;
+		}
+		else if (stamps.isClosed(cell))
+		{
+			++reopenedCount;
+		}
+		stamps.open(cell);
+		g[cell] = cost;
+		parent[cell] = parentCell;
+		if (visitor != null)
+		{
+			visitor.cellReached(cell, parentCell, cost);
+		}
+	}
+
+	/**
+	 * Whether the search has reached one of its limits. Called before each expansion;
+	 * if a limit has been reached, the status is set to the limit.
+	 * @param expanded The number of cells that the search has expanded.
+	 * @return true if the search must stop.
+	 */
+	boolean limitReached(long expanded)
+	{
+		if (expanded >= maxExpandedNodes)
+		{
+			status = SearchStatus.NODE_LIMIT;
+			return true;
+		}
+		if (--untilLimitCheck == 0)
+		{
+			untilLimitCheck = LIMIT_CHECK_INTERVAL;
+			if (cancellationToken != null && cancellationToken.isCancelled())
+			{
+				status = SearchStatus.CANCELLED;
+				return true;
+			}
+			if (hasDeadline && System.nanoTime() - deadline >= 0)
+			{
+				status = SearchStatus.DEADLINE;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Marks a cell as closed (expanded), and records it as the closest cell to the 
+	 * goal if its heuristic estimate is the lowest so far.
+	 * @param cell The cell index.
+	 * @param h The cell's heuristic estimate to the goal.
+	 */
+	void close(int cell, int h)
+	{
+		close(cell);
+		if (h < closestH)
+		{
+			closestH = h;
+			closestCell = cell;
+		}
+	}
+
+	/**
+	 * Returns the expanded cell with the lowest heuristic estimate, which is the end
+	 * of the best partial path of a search that was stopped by a limit.
+	 * @return The cell index, or NO_PARENT if no cell has been expanded.
+	 */
+	int getClosestCell()
+	{
+		return closestCell;
+	}
+
+	/**
+	 * Lowers the cost of a closed cell without reopening it, for searches that do
+	 * not expand a cell twice.
+	 * @param cell The cell index.
+	 * @param parentCell The cell that lead to this cell.
+	 * @param cost The new cumulative cost from the start cell.
+	 */
+	void lowerCost(int cell, int parentCell, int cost)
+	{
+		g[cell] = cost;
+		parent[cell] = parentCell;
+		if (visitor != null)
+		{
+			visitor.cellReached(cell, parentCell, cost);
+		}
+	}
+
+	/**
+	 * Marks a cell as closed (expanded).
+	 * @param cell The cell index.
+	 */
+	void close(int cell)
+	{
+		stamps.close(cell);
+		++expandedCount;
+		if (visitor != null)
+		{
+			visitor.cellExpanded(cell);
+		}
+	}
+
+	/**
+	 * Stores the path that ends at the specified cell, by following the parent links.
+	 * @param goal The final cell in the path.
+	 */
+	void buildPath(int goal)
+	{
+		int length = 0;
+		for (int cell = goal; cell != NO_PARENT; cell = parent[cell])
+		{
+			++length;
+		}
+		if (length > path.length)
+		{
+			path = new int[Math.max(length, grow(path.length))];
+		}
+		int index = length;
+		for (int cell = goal; cell != NO_PARENT; cell = parent[cell])
+		{
+			path[--index] = cell;
+		}
+		pathLength = length;
+	}
+
+	/**
+	 * Stores the best partial path of a search that was stopped by a limit: the path
+	 * to the closest cell to the goal that was expanded.
+	 */
+	void buildPartialPath()
+	{
+		if (closestCell == NO_PARENT)
+		{
+			pathLength = 0;
+		}
+		else
+		{
+			buildPath(closestCell);
+		}
+	}
+
+	/**
+	 * Stores the path that ends at the specified cell, where each parent link is a
+	 * straight or diagonal line of cells, as in a Jump Point Search. The cells along
+	 * each line are included in the path.
+	 * @param goal The final cell in the path.
+	 */
+	void buildJumpPath(int goal)
+	{
+		final int columns = maze.getColumns();
+		int length = 1;
+		for (int cell = goal; parent[cell] != NO_PARENT; cell = parent[cell])
+		{
+			length += Math.max(Math.abs(cell / columns - parent[cell] / columns),
+					Math.abs(cell % columns - parent[cell] % columns));
+		}
+		if (length > path.length)
+		{
+			path = new int[Math.max(length, grow(path.length))];
+		}
+		int index = length;
+		path[--index] = goal;
+		for (int cell = goal; parent[cell] != NO_PARENT; cell = parent[cell])
+		{
+			// Step back from the cell towards its parent, one cell at a time.
+			final int step = Integer.signum(parent[cell] / columns - cell / columns) * columns +
+					Integer.signum(parent[cell] % columns - cell % columns);
+			for (int between = cell + step; between != parent[cell]; between += step)
+			{
+				path[--index] = between;
+			}
+			path[--index] = parent[cell];
+		}
+		pathLength = length;
+	}
+
+	/**
+	 * Returns the number of cells in the path found by the last search.
+	 * @return The path length, or zero if no path was found.
+	 */
+	public int getPathLength()
+	{
+		return pathLength;
+	}
+
+	/**
+	 * Returns a cell in the path found by the last search.
+	 * @param i The position in the path, starting with 0 for the start cell.
+	 * @return The cell index.
+	 */
+	public int getPathCell(int i)
+	{
+		if (i < 0 || i >= pathLength)
+		{
+			throw new IndexOutOfBoundsException("Path index: " + i + ", length: " + pathLength);
+		}
+		return path[i];
+	}
+
+	/**
+	 * Copies the path found by the last search into a new array.
+	 * @return The cells in the path, from start to goal.
+	 */
+	public int[] copyPath()
+	{
+		return Arrays.copyOf(path, pathLength);
+	}
+
+	/**
+	 * Returns the number of cells reached by the last search.
+	 * @return The number of generated cells.
+	 */
+	public int getGeneratedCount()
+	{
+		return generatedCount;
+	}
+
+	/**
+	 * Returns a cell that was reached by the last search.
+	 * @param i The position in generation order, starting with 0.
+	 * @return The cell index.
+	 */
+	public int getGeneratedCell(int i)
+	{
+		if (i < 0 || i >= generatedCount)
+		{
+			throw new IndexOutOfBoundsException("Index: " + i + ", count: " + generatedCount);
+		}
+		return generated[i];
+	}
+
+	/**
+	 * Returns the cost from the start cell to a cell reached by the last search.
+	 * @param cell The cell index.
+	 * @return The g cost of the cell.
+	 */
+	public int getCost(int cell)
+	{
+		return g[cell];
+	}
+
+	/**
+	 * Returns the number of cells expanded by the last search.
+	 * @return The number of expanded cells.
+	 */
+	public long getExpandedCount()
+	{
+		return expandedCount;
+	}
+
+	/**
+	 * Returns the metrics of the last search.
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		return new SearchMetrics(expandedCount, generatedCount, reopenedCount, frontier.peakSize(),
+				heuristicCallCount, elapsedNanos);
+	}
+
+	/**
+	 * Returns how the last search ended. If it was stopped by a limit, the path is
+	 * the best partial path.
+	 * @return The search status.
+	 */
+	public SearchStatus getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * Returns the factor by which the cost of the path found by the last search may
+	 * exceed the cost of an optimal path. This is 1 for the exact searches, and at
+	 * most the weight of a weighted search.
+	 * @return The suboptimality bound.
+	 */
+	public double getSuboptimalityBound()
+	{
+		return suboptimalityBound;
+	}
+
+	/**
+	 * Returns the new capacity of a growable buffer.
+	 * @param length The current capacity.
+	 * @return The new capacity.
+	 */
+	private int grow(int length)
+	{
+		return (int)Math.min((long)length * 2, maze.getCellCount());
+	}
+}
@@ -0,0 +1,21 @@
+package cdc.search;
+
+import java.util.EventListener;
+
+/**
+ * Interface for classes that are notified when the Search methods, or the searches
+ * that keep their own state such as AnytimeSearch, finish a search. Listeners are
+ * added with Search.addSearchListener, and are called on the thread that ran the
+ * search, so they must be thread safe and should be quick.
+ * @author Christopher D. Canfield
+ */
+public interface SearchListener extends EventListener
+{
+	/**
+	 * Called when a search has finished.
+	 * @param algorithm The name of the search algorithm, such as "aStar".
+	 * @param pathFound Whether the search found a path.
+	 * @param metrics The work done by the search.
+	 */
+	public void searchFinished(String algorithm, boolean pathFound, SearchMetrics metrics);
+}
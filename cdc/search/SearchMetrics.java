@@ -0,0 +1,108 @@
+package cdc.search;
+
+/**
+ * The work done by one search: the cells it expanded, generated and reopened, the
+ * peak size of its frontier, the number of heuristic calls it made, and the time it
+ * took. The metrics of the index-based engines are read from their context with
+ * getMetrics; the Search methods also attach them to the SearchResult.
+ * @author Christopher D. Canfield
+ */
+public final class SearchMetrics
+{
+	/** Metrics for a result that was not produced by a search, such as a cached path. **/
+	public static final SearchMetrics NONE = new SearchMetrics(0, 0, 0, 0, 0, 0);
+
+	private final long expandedCount;
+	private final long generatedCount;
+	private final long reopenedCount;
+	private final int peakFrontierSize;
+	private final long heuristicCallCount;
+	private final long elapsedNanos;
+
+	/**
+	 * Instantiates a set of search metrics.
+	 * @param expandedCount The number of cells (or nodes) that were expanded.
+	 * @param generatedCount The number of distinct cells that were reached.
+	 * @param reopenedCount The number of times that an expanded cell was reached again
+	 * at a lower cost.
+	 * @param peakFrontierSize The largest number of cells in the frontier.
+	 * @param heuristicCallCount The number of heuristic calls.
+	 * @param elapsedNanos The duration of the search, in nanoseconds.
+	 */
+	public SearchMetrics(long expandedCount, long generatedCount, long reopenedCount, int peakFrontierSize,
+			long heuristicCallCount, long elapsedNanos)
+	{
+		this.expandedCount = expandedCount;
+		this.generatedCount = generatedCount;
+		this.reopenedCount = reopenedCount;
+		this.peakFrontierSize = peakFrontierSize;
+		this.heuristicCallCount = heuristicCallCount;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of cells that were expanded.
+	 * @return The expanded count.
+	 */
+	public long getExpandedCount()
+	{
+		return expandedCount;
+	}
+
+	/**
+	 * Returns the number of distinct cells that were reached.
+	 * @return The generated count.
+	 */
+	public long getGeneratedCount()
+	{
+		return generatedCount;
+	}
+
+	/**
+	 * Returns the number of times that an expanded cell was reached again at a lower
+	 * cost. This is zero for consistent heuristics, except in searches that trade
+	 * optimality for speed. The Node-based Search.aStar also counts nodes that were
+	 * reached again at a lower cost before they were expanded, since each of them
+	 * adds a duplicate node to its frontier.
+	 * @return The reopened count.
+	 */
+	public long getReopenedCount()
+	{
+		return reopenedCount;
+	}
+
+	/**
+	 * Returns the largest number of cells that were in the frontier at once.
+	 * @return The peak frontier size.
+	 */
+	public int getPeakFrontierSize()
+	{
+		return peakFrontierSize;
+	}
+
+	/**
+	 * Returns the number of heuristic calls.
+	 * @return The heuristic call count.
+	 */
+	public long getHeuristicCallCount()
+	{
+		return heuristicCallCount;
+	}
+
+	/**
+	 * Returns the duration of the search.
+	 * @return The elapsed time, in nanoseconds.
+	 */
+	public long getElapsedNanos()
+	{
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "expanded=" + expandedCount + " generated=" + generatedCount + " reopened=" + reopenedCount +
+				" peakFrontier=" + peakFrontierSize + " heuristicCalls=" + heuristicCallCount +
+				" time=" + String.format("%.1f us", elapsedNanos / 1000.0);
+	}
+}
@@ -80,13 +80,12 @@ public class SearchNode extends Node implements Comparable<SearchNode>
 	
 	/**
 	 * The compareTo method is required for the A* algorithm's priority queue.
+	 * Nodes are ordered by f, and nodes with the same f by h, so that the node
+	 * closest to the end node is expanded first (see TieBreaking.LOWEST_H).
 	 */
 	@Override
 	public int compareTo(SearchNode other)
 	{
-		int cost = g + h;
-		int otherCost = other.g + other.h;
-		return (cost < otherCost) ? -1 : 
-				(cost > otherCost) ? 1 : 0;
+		return TieBreaking.LOWEST_H.compare(this, other);
 	}
 }
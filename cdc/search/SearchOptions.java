@@ -0,0 +1,258 @@
+package cdc.search;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options for the Search methods. By default, the search result includes a
+ * SearchNode for every cell that the search reached, so the searched set can be
+ * displayed. Headless callers that only need the path and the metrics can turn
+ * this off, which avoids the largest allocation of a search of a big MazeGrid. A
+ * visitor can be set to receive the exploration of a MazeGrid as the search runs.
+ * <p>
+ * A search can also be limited by a maximum number of expanded nodes, a deadline and
+ * a cancellation token. A search that reaches a limit stops, and its result has the
+ * limit's SearchStatus and the best partial path found so far.
+ * <p>
+ * The Node-based search can also be given the type of its open list and how it
+ * breaks ties between nodes with the same f value.
+ * <p>
+ * If a ComponentIndex of the maze is set, a search whose entrance and exit are in
+ * different components returns at once, instead of searching the whole component.
+ * @author Christopher D. Canfield
+ */
+public class SearchOptions
+{
+	// Whether the result includes the searched nodes.
+	private boolean retainSearchedNodes = true;
+	// Follows the search as it runs, or null.
+	private SearchVisitor visitor;
+	// The maximum number of nodes that the search may expand.
+	private long maxExpandedNodes = Long.MAX_VALUE;
+	// The deadline, in System.nanoTime units, if there is one.
+	private boolean hasDeadline;
+	private long deadline;
+	// Cancels the search, or null.
+	private CancellationToken cancellationToken;
+	// Rejects searches that cannot find a path, or null.
+	private ComponentIndex componentIndex;
+	// The open list of the Node-based search, and how it breaks ties.
+	private OpenListType openListType = OpenListType.BINARY_HEAP;
+	private TieBreaking tieBreaking = TieBreaking.LOWEST_H;
+
+	/**
+	 * Returns options that include the searched nodes in the result, as the Search
+	 * methods without options do.
+	 * @return New search options.
+	 */
+	public static SearchOptions full()
+	{
+		return new SearchOptions();
+	}
+
+	/**
+	 * Returns options that only include the path and the metrics in the result.
+	 * @return New search options.
+	 */
+	public static SearchOptions pathOnly()
+	{
+		return new SearchOptions().setRetainSearchedNodes(false);
+	}
+
+	/**
+	 * Whether the result includes the searched nodes.
+	 * @return true if the searched nodes are retained.
+	 */
+	public boolean isRetainSearchedNodes()
+	{
+		return retainSearchedNodes;
+	}
+
+	/**
+	 * Sets whether the result includes the searched nodes. If not, the result's
+	 * searched set is empty.
+	 * @param retainSearchedNodes Whether the searched nodes are retained.
+	 * @return These options.
+	 */
+	public SearchOptions setRetainSearchedNodes(boolean retainSearchedNodes)
+	{
+		this.retainSearchedNodes = retainSearchedNodes;
+		return this;
+	}
+
+	/**
+	 * Returns the visitor that follows the search.
+	 * @return The visitor, or null.
+	 */
+	public SearchVisitor getVisitor()
+	{
+		return visitor;
+	}
+
+	/**
+	 * Sets a visitor that follows the search as it runs.
+	 * @param visitor The visitor, or null for none.
+	 * @return These options.
+	 */
+	public SearchOptions setVisitor(SearchVisitor visitor)
+	{
+		this.visitor = visitor;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of nodes that the search may expand.
+	 * @return The node budget, or Long.MAX_VALUE if there is no limit.
+	 */
+	public long getMaxExpandedNodes()
+	{
+		return maxExpandedNodes;
+	}
+
+	/**
+	 * Sets the maximum number of nodes that the search may expand.
+	 * @param maxExpandedNodes The node budget; at least 1.
+	 * @return These options.
+	 */
+	public SearchOptions setMaxExpandedNodes(long maxExpandedNodes)
+	{
+		if (maxExpandedNodes < 1)
+		{
+			throw new IllegalArgumentException("The node budget must be at least 1: " + maxExpandedNodes);
+		}
+		this.maxExpandedNodes = maxExpandedNodes;
+		return this;
+	}
+
+	/**
+	 * Whether the search has a deadline.
+	 * @return true if a deadline has been set.
+	 */
+	public boolean hasDeadline()
+	{
+		return hasDeadline;
+	}
+
+	/**
+	 * Returns the deadline.
+	 * @return The deadline, in System.nanoTime units. Only valid if hasDeadline is true.
+	 */
+	public long getDeadline()
+	{
+		return deadline;
+	}
+
+	/**
+	 * Sets a deadline for the search.
+	 * @param deadline The deadline, in System.nanoTime units.
+	 * @return These options.
+	 */
+	public SearchOptions setDeadline(long deadline)
+	{
+		this.hasDeadline = true;
+		this.deadline = deadline;
+		return this;
+	}
+
+	/**
+	 * Sets a deadline for the search, a time limit from now.
+	 * @param timeLimit The time limit.
+	 * @param unit The unit of the time limit.
+	 * @return These options.
+	 */
+	public SearchOptions setTimeLimit(long timeLimit, TimeUnit unit)
+	{
+		return setDeadline(System.nanoTime() + unit.toNanos(timeLimit));
+	}
+
+	/**
+	 * Returns the token that cancels the search.
+	 * @return The cancellation token, or null.
+	 */
+	public CancellationToken getCancellationToken()
+	{
+		return cancellationToken;
+	}
+
+	/**
+	 * Sets a token that cancels the search.
+	 * @param cancellationToken The cancellation token, or null for none.
+	 * @return These options.
+	 */
+	public SearchOptions setCancellationToken(CancellationToken cancellationToken)
+	{
+		this.cancellationToken = cancellationToken;
+		return this;
+	}
+
+	/**
+	 * Returns the index that rejects searches between cells that are not connected.
+	 * @return The component index, or null.
+	 */
+	public ComponentIndex getComponentIndex()
+	{
+		return componentIndex;
+	}
+
+	/**
+	 * Sets an index of the maze's components. Searches whose entrance and exit are
+	 * not connected return null without searching.
+	 * @param componentIndex The component index of the maze that will be searched,
+	 * or null for none.
+	 * @return These options.
+	 */
+	public SearchOptions setComponentIndex(ComponentIndex componentIndex)
+	{
+		this.componentIndex = componentIndex;
+		return this;
+	}
+
+	/**
+	 * Returns the type of open list used by the Node-based search.
+	 * @return The open list type.
+	 */
+	public OpenListType getOpenListType()
+	{
+		return openListType;
+	}
+
+	/**
+	 * Sets the type of open list used by the Node-based search. The default is
+	 * OpenListType.BINARY_HEAP.
+	 * @param openListType The open list type.
+	 * @return These options.
+	 */
+	public SearchOptions setOpenListType(OpenListType openListType)
+	{
+		if (openListType == null)
+		{
+			throw new NullPointerException("openListType");
+		}
+		this.openListType = openListType;
+		return this;
+	}
+
+	/**
+	 * Returns how the Node-based search orders nodes with the same f value.
+	 * @return The tie-breaking rule.
+	 */
+	public TieBreaking getTieBreaking()
+	{
+		return tieBreaking;
+	}
+
+	/**
+	 * Sets how the Node-based search orders nodes with the same f value. The default
+	 * is TieBreaking.LOWEST_H. The index-based engines always prefer the lowest h.
+	 * @param tieBreaking The tie-breaking rule.
+	 * @return These options.
+	 */
+	public SearchOptions setTieBreaking(TieBreaking tieBreaking)
+	{
+		if (tieBreaking == null)
+		{
+			throw new NullPointerException("tieBreaking");
+		}
+		this.tieBreaking = tieBreaking;
+		return this;
+	}
+}
@@ -7,18 +7,34 @@ import cdc.maze.Node;
 
 /**
  * The results of an A* search. Bundles together the path as well as the 
- * set of searched nodes.
+ * set of searched nodes and the search metrics. A search that was stopped by a
+ * limit (see SearchOptions) returns the best partial path, and a status that says
+ * which limit was reached.
  * @author Christopher D. Canfield
  */
 public class SearchResult
 {
 	private Queue<Node> path;
 	private Set<SearchNode> searchedNodes;
+	private SearchMetrics metrics;
+	private SearchStatus status;
 	
 	public SearchResult(Queue<Node> path, Set<SearchNode> searchedNode)
+	{
+		this(path, searchedNode, SearchMetrics.NONE);
+	}
+	
+	public SearchResult(Queue<Node> path, Set<SearchNode> searchedNode, SearchMetrics metrics)
+	{
+		this(path, searchedNode, metrics, SearchStatus.FOUND);
+	}
+	
+	public SearchResult(Queue<Node> path, Set<SearchNode> searchedNode, SearchMetrics metrics, SearchStatus status)
 	{
 		this.path = path;
 		this.searchedNodes = searchedNode;
+		this.metrics = metrics;
+		this.status = status;
 	}
 	
 	/**
@@ -31,7 +47,8 @@ public class SearchResult
 	}
 	
 	/**
-	 * The nodes that were explored during the search.
+	 * The nodes that were explored during the search. The set is empty if the
+	 * search was run with SearchOptions.pathOnly.
 	 * @return
 	 */
 	public Set<SearchNode> getSearchedNodes()
@@ -39,6 +56,27 @@ public class SearchResult
 		return searchedNodes;
 	}
 	
+	/**
+	 * The work done by the search. Results that were not produced by a search,
+	 * such as cached paths, have SearchMetrics.NONE.
+	 * @return The search metrics.
+	 */
+	public SearchMetrics getMetrics()
+	{
+		return metrics;
+	}
+	
+	/**
+	 * How the search ended. If the status is not FOUND, the search was stopped by a
+	 * limit, and the path is the best partial path: it starts at the start node, but
+	 * ends at the searched node that was estimated to be closest to the end node.
+	 * @return The search status.
+	 */
+	public SearchStatus getStatus()
+	{
+		return status;
+	}
+	
 	/**
 	 * Prints the path. Does not print the list of searched nodes.
 	 */
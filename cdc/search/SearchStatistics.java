@@ -0,0 +1,189 @@
+package cdc.search;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Aggregates the metrics of many searches, for batch runs and long-running
+ * applications. Add it to Search with Search.addSearchListener, or pass it the
+ * metrics of the index-based engines directly. The totals can be read by the
+ * application, or exported through JMX with register. It is thread safe.
+ * @author Christopher D. Canfield
+ */
+public class SearchStatistics implements SearchListener, SearchStatisticsMXBean
+{
+	// The algorithm whose searches are counted, or null to count every search.
+	private final String algorithm;
+
+	private final AtomicLong searchCount = new AtomicLong();
+	private final AtomicLong pathFoundCount = new AtomicLong();
+	private final AtomicLong expandedCount = new AtomicLong();
+	private final AtomicLong generatedCount = new AtomicLong();
+	private final AtomicLong reopenedCount = new AtomicLong();
+	private final AtomicLong heuristicCallCount = new AtomicLong();
+	private final AtomicInteger maxPeakFrontierSize = new AtomicInteger();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Instantiates a collector that counts every search.
+	 */
+	public SearchStatistics()
+	{
+		this(null);
+	}
+
+	/**
+	 * Instantiates a collector that only counts the searches of one algorithm.
+	 * @param algorithm The algorithm name, as passed to SearchListener.searchFinished,
+	 * or null to count every search.
+	 */
+	public SearchStatistics(String algorithm)
+	{
+		this.algorithm = algorithm;
+	}
+
+	@Override
+	public void searchFinished(String algorithm, boolean pathFound, SearchMetrics metrics)
+	{
+		if (this.algorithm != null && !this.algorithm.equals(algorithm))
+		{
+			return;
+		}
+
+		searchCount.incrementAndGet();
+		if (pathFound)
+		{
+			pathFoundCount.incrementAndGet();
+		}
+		expandedCount.addAndGet(metrics.getExpandedCount());
+		generatedCount.addAndGet(metrics.getGeneratedCount());
+		reopenedCount.addAndGet(metrics.getReopenedCount());
+		heuristicCallCount.addAndGet(metrics.getHeuristicCallCount());
+		totalNanos.addAndGet(metrics.getElapsedNanos());
+
+		int peak = maxPeakFrontierSize.get();
+		while (metrics.getPeakFrontierSize() > peak &&
+				!maxPeakFrontierSize.compareAndSet(peak, metrics.getPeakFrontierSize()))
+		{
+			peak = maxPeakFrontierSize.get();
+		}
+		long max = maxNanos.get();
+		while (metrics.getElapsedNanos() > max && !maxNanos.compareAndSet(max, metrics.getElapsedNanos()))
+		{
+			max = maxNanos.get();
+		}
+	}
+
+	@Override
+	public long getSearchCount()
+	{
+		return searchCount.get();
+	}
+
+	@Override
+	public long getPathFoundCount()
+	{
+		return pathFoundCount.get();
+	}
+
+	@Override
+	public long getExpandedCount()
+	{
+		return expandedCount.get();
+	}
+
+	@Override
+	public long getGeneratedCount()
+	{
+		return generatedCount.get();
+	}
+
+	@Override
+	public long getReopenedCount()
+	{
+		return reopenedCount.get();
+	}
+
+	@Override
+	public long getHeuristicCallCount()
+	{
+		return heuristicCallCount.get();
+	}
+
+	@Override
+	public int getMaxPeakFrontierSize()
+	{
+		return maxPeakFrontierSize.get();
+	}
+
+	@Override
+	public long getTotalNanos()
+	{
+		return totalNanos.get();
+	}
+
+	@Override
+	public long getMaxNanos()
+	{
+		return maxNanos.get();
+	}
+
+	@Override
+	public double getMeanNanos()
+	{
+		final long count = searchCount.get();
+		return (count == 0) ? 0.0 : (double)totalNanos.get() / count;
+	}
+
+	/**
+	 * Resets the totals to zero. Searches that finish during the reset may be
+	 * partly counted.
+	 */
+	@Override
+	public void reset()
+	{
+		searchCount.set(0);
+		pathFoundCount.set(0);
+		expandedCount.set(0);
+		generatedCount.set(0);
+		reopenedCount.set(0);
+		heuristicCallCount.set(0);
+		maxPeakFrontierSize.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+	}
+
+	/**
+	 * Registers the statistics with the platform MBean server, under the name
+	 * cdc.search:type=SearchStatistics,name=[name].
+	 * @param name The name that identifies these statistics.
+	 * @return The object name that the statistics were registered under.
+	 * @throws JMException If the statistics cannot be registered, for example because
+	 * the name is already in use.
+	 */
+	public ObjectName register(String name) throws JMException
+	{
+		ObjectName objectName = new ObjectName("cdc.search:type=SearchStatistics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	/**
+	 * Prints the totals.
+	 */
+	@Override
+	public String toString()
+	{
+		return "searches=" + getSearchCount() + " found=" + getPathFoundCount() +
+				" expanded=" + getExpandedCount() + " generated=" + getGeneratedCount() +
+				" reopened=" + getReopenedCount() + " heuristicCalls=" + getHeuristicCallCount() +
+				" maxPeakFrontier=" + getMaxPeakFrontierSize() +
+				" mean=" + String.format("%.1f us", getMeanNanos() / 1000.0) +
+				" max=" + String.format("%.1f us", getMaxNanos() / 1000.0);
+	}
+}
@@ -0,0 +1,31 @@
+package cdc.search;
+
+/**
+ * The management interface of SearchStatistics, which exports the aggregate search
+ * metrics through JMX.
+ * @author Christopher D. Canfield
+ */
+public interface SearchStatisticsMXBean
+{
+	public long getSearchCount();
+
+	public long getPathFoundCount();
+
+	public long getExpandedCount();
+
+	public long getGeneratedCount();
+
+	public long getReopenedCount();
+
+	public long getHeuristicCallCount();
+
+	public int getMaxPeakFrontierSize();
+
+	public long getTotalNanos();
+
+	public long getMaxNanos();
+
+	public double getMeanNanos();
+
+	public void reset();
+}
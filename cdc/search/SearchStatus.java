@@ -0,0 +1,31 @@
+package cdc.search;
+
+/**
+ * How a search ended: with a path, without one, or because it reached one of the
+ * limits in its SearchOptions before it could decide. A search that is stopped by a
+ * limit returns the best partial path it has found: the path to the expanded cell
+ * that the heuristic estimates to be closest to the goal.
+ * @author Christopher D. Canfield
+ */
+public enum SearchStatus
+{
+	/** A path to the goal was found. **/
+	FOUND,
+	/** The search finished, and there is no path to the goal. **/
+	NO_PATH,
+	/** The search expanded its maximum number of nodes. **/
+	NODE_LIMIT,
+	/** The search reached its deadline. **/
+	DEADLINE,
+	/** The search was cancelled through its cancellation token. **/
+	CANCELLED;
+	
+	/**
+	 * Whether the search finished, rather than being stopped by a limit.
+	 * @return true if the status is FOUND or NO_PATH.
+	 */
+	public boolean isComplete()
+	{
+		return this == FOUND || this == NO_PATH;
+	}
+}
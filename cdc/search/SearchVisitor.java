@@ -0,0 +1,26 @@
+package cdc.search;
+
+/**
+ * Interface for classes that follow a search as it runs. A visitor is set on a
+ * SearchContext, or passed to the Search methods in a SearchOptions, and is told about
+ * each cell as the search reaches and expands it, so the exploration can be streamed
+ * to a display or a log without keeping a set of searched nodes.
+ * @author Christopher D. Canfield
+ */
+public interface SearchVisitor
+{
+	/**
+	 * Called when the search reaches a cell, or finds a cheaper path to it.
+	 * @param cell The cell index.
+	 * @param parentCell The cell that the search reached it from, or -1 for the start cell.
+	 * @param cost The cost from the start cell (or, in the backward half of a
+	 * bidirectional search, from the end cell).
+	 */
+	public void cellReached(int cell, int parentCell, int cost);
+
+	/**
+	 * Called when the search expands a cell.
+	 * @param cell The cell index.
+	 */
+	public void cellExpanded(int cell);
+}
@@ -0,0 +1,42 @@
+package cdc.search;
+
+import java.util.Comparator;
+
+/**
+ * How an open list orders nodes that have the same f value. On open grids, many
+ * nodes share the lowest f value; preferring the ones closest to the goal lets the
+ * search run straight to it, instead of expanding every node with that f value.
+ * @author Christopher D. Canfield
+ */
+public enum TieBreaking implements Comparator<SearchNode>
+{
+	/** Prefers the node with the lowest h value, which is closest to the goal. **/
+	LOWEST_H,
+	/** Prefers the node with the highest h value, which is closest to the start. **/
+	HIGHEST_H,
+	/** Nodes are only ordered by f; ties are removed in any order. **/
+	NONE;
+
+	/**
+	 * Compares two nodes by f value, and then by this tie-breaking rule.
+	 */
+	@Override
+	public int compare(SearchNode a, SearchNode b)
+	{
+		final int f = a.getG() + a.getH();
+		final int otherF = b.getG() + b.getH();
+		if (f != otherF)
+		{
+			return (f < otherF) ? -1 : 1;
+		}
+		switch (this)
+		{
+		case LOWEST_H:
+			return (a.getH() < b.getH()) ? -1 : (a.getH() > b.getH()) ? 1 : 0;
+		case HIGHEST_H:
+			return (a.getH() > b.getH()) ? -1 : (a.getH() < b.getH()) ? 1 : 0;
+		default:
+			return 0;
+		}
+	}
+}